@@ -1,25 +1,26 @@
 package de.unistuttgart.ims.drama.core.cr;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
 
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.Level;
 import org.cleartk.ml.CleartkSequenceAnnotator;
 import org.cleartk.ml.Feature;
 import org.cleartk.ml.Instances;
 import org.cleartk.ml.chunking.BioChunking;
-import org.cleartk.ml.feature.extractor.CleartkExtractor;
 import org.cleartk.ml.feature.extractor.CleartkExtractor.Following;
 import org.cleartk.ml.feature.extractor.CleartkExtractor.Preceding;
+import org.cleartk.ml.feature.extractor.CleartkExtractorException;
 import org.cleartk.ml.feature.extractor.CombinedExtractor1;
 import org.cleartk.ml.feature.extractor.CoveredTextExtractor;
 import org.cleartk.ml.feature.extractor.FeatureExtractor1;
+import org.cleartk.ml.feature.extractor.NamedFeatureExtractor1;
 import org.cleartk.ml.feature.extractor.TypePathExtractor;
 import org.cleartk.ml.feature.function.CharacterCategoryPatternFunction;
 import org.cleartk.ml.feature.function.CharacterCategoryPatternFunction.PatternType;
@@ -30,13 +31,34 @@ import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import de.unistuttgart.ims.drama.api.FigureMention;
 import de.unistuttgart.ims.entitydetection.api.TrainingArea;
 
+/**
+ * Detects figure mentions with a CRF, using the covered text, character
+ * pattern and part of speech of each token and its neighbours.
+ *
+ * Features are extracted once for all sentences that are covered by a
+ * {@link TrainingArea}. The tokens of the document are kept in an array, such
+ * that the features of each token are computed only once and the context
+ * features can be taken from the neighbouring array positions. Sentences
+ * that cannot be classified are counted and reported.
+ *
+ * The classifier is only used from the thread that calls
+ * {@link #process(JCas)}: Mallet's CRF looks up (and may add) the features in
+ * its alphabets while classifying, which is not thread-safe. To classify
+ * documents in parallel, run several instances of this annotator, e.g. with
+ * {@code ParallelPipeline}.
+ */
 public class ClearTkMentionAnnotator extends CleartkSequenceAnnotator<String> {
+
 	FeatureExtractor1<Token> extractor;
 
-	CleartkExtractor<Token, Token> contextExtractor;
+	Preceding preceding;
+
+	Following following;
 
 	BioChunking<Token, FigureMention> chunking;
 
+	int failures = 0;
+
 	@Override
 	public void initialize(UimaContext context) throws ResourceInitializationException {
 		super.initialize(context);
@@ -49,10 +71,10 @@ public class ClearTkMentionAnnotator extends CleartkSequenceAnnotator<String> {
 						new CharacterCategoryPatternFunction<Token>(PatternType.REPEATS_MERGED)),
 				new TypePathExtractor<Token>(Token.class, "pos/PosValue"));
 
-		// the context feature extractor: the features above for the 3 preceding
-		// and 3 following tokens
-		this.contextExtractor = new CleartkExtractor<Token, Token>(Token.class, this.extractor, new Preceding(2),
-				new Following(1));
+		// the context: the features above for the 2 preceding and the
+		// following token
+		this.preceding = new Preceding(2);
+		this.following = new Following(1);
 
 		// the chunking definition: Tokens will be combined to form
 		// NamedEntityMentions, with labels
@@ -63,52 +85,154 @@ public class ClearTkMentionAnnotator extends CleartkSequenceAnnotator<String> {
 
 	@Override
 	public void process(JCas jCas) throws AnalysisEngineProcessException {
-		Map<Sentence, Collection<TrainingArea>> index = JCasUtil.indexCovering(jCas, Sentence.class,
-				TrainingArea.class);
-
+		TokenWindow window = new TokenWindow(jCas);
+
+		// select the sentences covered by a training area, and extract
+		// features for each token in them
+		List<Sentence> sentences = new ArrayList<Sentence>();
+		List<List<Token>> tokenLists = new ArrayList<List<Token>>();
+		List<List<List<Feature>>> featureLists = new ArrayList<List<List<Feature>>>();
+		List<TrainingArea> areas = new ArrayList<TrainingArea>(JCasUtil.select(jCas, TrainingArea.class));
+		int area = 0;
+		int maxAreaEnd = -1;
+		int t = 0;
 		for (Sentence sentence : JCasUtil.select(jCas, Sentence.class)) {
-			if (!index.containsKey(sentence) || index.get(sentence).isEmpty())
+			while (area < areas.size() && areas.get(area).getBegin() <= sentence.getBegin())
+				maxAreaEnd = Math.max(maxAreaEnd, areas.get(area++).getEnd());
+			while (t < window.size() && window.get(t).getBegin() < sentence.getBegin())
+				t++;
+			if (maxAreaEnd < sentence.getEnd())
 				continue;
 
-			// extract features for each token in the sentence
-			List<Token> tokens = JCasUtil.selectCovered(jCas, Token.class, sentence);
-			List<List<Feature>> featureLists = new ArrayList<List<Feature>>();
-			for (Token token : tokens) {
-				List<Feature> features = new ArrayList<Feature>();
-				features.addAll(this.extractor.extract(jCas, token));
-				features.addAll(this.contextExtractor.extract(jCas, token));
-				featureLists.add(features);
+			List<Token> tokens = new ArrayList<Token>();
+			List<List<Feature>> features = new ArrayList<List<Feature>>();
+			for (int i = t; i < window.size() && window.get(i).getEnd() <= sentence.getEnd(); i++) {
+				tokens.add(window.get(i));
+				features.add(window.extract(i));
 			}
+			sentences.add(sentence);
+			tokenLists.add(tokens);
+			featureLists.add(features);
+		}
 
-			// during training, convert NamedEntityMentions in the CAS into
-			// expected classifier outcomes
-			if (this.isTraining()) {
-
+		// during training, convert NamedEntityMentions in the CAS into
+		// expected classifier outcomes
+		if (this.isTraining()) {
+			for (int s = 0; s < sentences.size(); s++) {
 				// extract the gold (human annotated) NamedEntityMention
 				// annotations
-				List<FigureMention> namedEntityMentions = JCasUtil.selectCovered(jCas, FigureMention.class, sentence);
+				List<FigureMention> namedEntityMentions = JCasUtil.selectCovered(jCas, FigureMention.class,
+						sentences.get(s));
 
 				// convert the NamedEntityMention annotations into token-level
 				// BIO outcome labels
-				List<String> outcomes = this.chunking.createOutcomes(jCas, tokens, namedEntityMentions);
+				List<String> outcomes = this.chunking.createOutcomes(jCas, tokenLists.get(s), namedEntityMentions);
 
 				// write the features and outcomes as training instances
-				this.dataWriter.write(Instances.toInstances(outcomes, featureLists));
+				this.dataWriter.write(Instances.toInstances(outcomes, featureLists.get(s)));
 			}
+			return;
+		}
 
-			// during classification, convert classifier outcomes into
-			// NamedEntityMentions in the CAS
-			else {
-
-				// get the predicted BIO outcome labels from the classifier
-				try {
-					List<String> outcomes = this.classifier.classify(featureLists);
-					this.chunking.createChunks(jCas, tokens, outcomes);
-				} catch (Exception e) {
-				}
-				// create the NamedEntityMention annotations in the CAS
+		// during classification, get the predicted BIO outcome labels from
+		// the classifier and convert them into FigureMentions in the CAS
+		int documentFailures = 0;
+		for (int s = 0; s < sentences.size(); s++) {
+			List<String> outcomes;
+			try {
+				outcomes = this.classifier.classify(featureLists.get(s));
+			} catch (Exception e) {
+				getLogger().log(Level.FINE, "Classification failed: " + e.getMessage());
+				documentFailures++;
+				continue;
 			}
+			this.chunking.createChunks(jCas, tokenLists.get(s), outcomes);
+		}
+		if (documentFailures > 0) {
+			failures += documentFailures;
+			getLogger().log(Level.WARNING,
+					documentFailures + " of " + sentences.size() + " sentences could not be classified.");
 		}
 	}
 
-}
\ No newline at end of file
+	@Override
+	public void collectionProcessComplete() throws AnalysisEngineProcessException {
+		super.collectionProcessComplete();
+		if (failures > 0)
+			getLogger().log(Level.WARNING, failures + " sentences could not be classified in total.");
+	}
+
+	/**
+	 * The tokens of a document, with their features. The context features have
+	 * the same names and values as those produced by a
+	 * <code>CleartkExtractor</code> with the contexts {@link #preceding} and
+	 * {@link #following}, i.e., they are not bounded by the sentence.
+	 */
+	class TokenWindow {
+		JCas jcas;
+		List<Token> tokens;
+		List<List<Feature>> features;
+
+		TokenWindow(JCas jcas) {
+			this.jcas = jcas;
+			this.tokens = new ArrayList<Token>(JCasUtil.select(jcas, Token.class));
+			this.features = new ArrayList<List<Feature>>(tokens.size());
+			for (int i = 0; i < tokens.size(); i++)
+				features.add(null);
+		}
+
+		int size() {
+			return tokens.size();
+		}
+
+		Token get(int i) {
+			return tokens.get(i);
+		}
+
+		/**
+		 * @return The features of the token itself, computed on first access
+		 */
+		List<Feature> tokenFeatures(int i) throws CleartkExtractorException {
+			List<Feature> f = features.get(i);
+			if (f == null) {
+				f = extractor.extract(jcas, tokens.get(i));
+				features.set(i, f);
+			}
+			return f;
+		}
+
+		/**
+		 * @return The features of the token and its context
+		 */
+		List<Feature> extract(int i) throws CleartkExtractorException {
+			List<Feature> f = new ArrayList<Feature>(tokenFeatures(i));
+			addContext(f, preceding.getName(), i, -1, 2);
+			addContext(f, following.getName(), i, 1, 1);
+			return f;
+		}
+
+		/**
+		 * Adds the features of the <code>length</code> tokens before
+		 * (<code>step</code> -1) or after (<code>step</code> 1) token
+		 * <code>i</code>. As in <code>CleartkExtractor</code>, the preceding
+		 * tokens are listed farthest first, and positions outside of the
+		 * document get a feature with the value <code>OOB</code><i>n</i>.
+		 */
+		@SuppressWarnings("unchecked")
+		void addContext(List<Feature> f, String name, int i, int step, int length) throws CleartkExtractorException {
+			String featureName = (extractor instanceof NamedFeatureExtractor1
+					? ((NamedFeatureExtractor1<Token>) extractor).getFeatureName() : null);
+			for (int k = 0; k < length; k++) {
+				int position = (step < 0 ? length - 1 - k : k);
+				int j = i + step * (position + 1);
+				if (j >= 0 && j < tokens.size())
+					for (Feature feature : tokenFeatures(j))
+						f.add(new Feature(Feature.createName(name, String.valueOf(position), feature.getName()),
+								feature.getValue()));
+				else
+					f.add(new Feature(Feature.createName(name, String.valueOf(position), featureName),
+							String.format(Locale.ROOT, "OOB%d", j < 0 ? -j : j - tokens.size() + 1)));
+			}
+		}
+	}
+}
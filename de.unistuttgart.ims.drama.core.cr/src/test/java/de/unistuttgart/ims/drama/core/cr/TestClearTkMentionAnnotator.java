@@ -0,0 +1,163 @@
+package de.unistuttgart.ims.drama.core.cr;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.pipeline.SimplePipeline;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.cleartk.ml.CleartkProcessingException;
+import org.cleartk.ml.CleartkSequenceAnnotator;
+import org.cleartk.ml.Feature;
+import org.cleartk.ml.SequenceClassifier;
+import org.cleartk.ml.SequenceClassifierFactory;
+import org.cleartk.ml.feature.extractor.CleartkExtractor;
+import org.cleartk.ml.feature.extractor.CleartkExtractor.Following;
+import org.cleartk.ml.feature.extractor.CleartkExtractor.Preceding;
+import org.cleartk.ml.feature.extractor.CombinedExtractor1;
+import org.cleartk.ml.feature.extractor.CoveredTextExtractor;
+import org.cleartk.ml.feature.extractor.TypePathExtractor;
+import org.cleartk.ml.feature.function.CharacterCategoryPatternFunction;
+import org.cleartk.ml.feature.function.CharacterCategoryPatternFunction.PatternType;
+import org.cleartk.ml.feature.function.FeatureFunctionExtractor;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.unistuttgart.ims.drama.api.FigureMention;
+import de.unistuttgart.ims.entitydetection.api.TrainingArea;
+
+public class TestClearTkMentionAnnotator {
+
+	static final String TEXT = "Der Graf kommt. Emilia weint. Odoardo geht.";
+
+	JCas jcas;
+
+	@Before
+	public void setUp() throws UIMAException {
+		FakeClassifier.featureLists.clear();
+
+		jcas = JCasFactory.createJCas();
+		jcas.setDocumentText(TEXT);
+		jcas.setDocumentLanguage("de");
+		String[] pos = new String[] { "ART", "NN", "VVFIN", "$.", "NE", "VVFIN", "$.", "NE", "VVFIN", "$." };
+		Matcher matcher = Pattern.compile("\\w+|\\.").matcher(TEXT);
+		for (int i = 0; matcher.find(); i++)
+			addToken(matcher.start(), matcher.end(), pos[i]);
+		new Sentence(jcas, 0, 15).addToIndexes();
+		new Sentence(jcas, 16, 29).addToIndexes();
+		new Sentence(jcas, 30, 43).addToIndexes();
+
+		// the third sentence is not covered by a training area
+		new TrainingArea(jcas, 0, 29).addToIndexes();
+	}
+
+	void addToken(int begin, int end, String posValue) {
+		POS pos = new POS(jcas, begin, end);
+		pos.setPosValue(posValue);
+		pos.addToIndexes();
+		Token token = new Token(jcas, begin, end);
+		token.setPos(pos);
+		token.addToIndexes();
+	}
+
+	@Test
+	public void testClassification() throws UIMAException {
+		SimplePipeline.runPipeline(jcas,
+				AnalysisEngineFactory.createEngineDescription(ClearTkMentionAnnotator.class,
+						CleartkSequenceAnnotator.PARAM_CLASSIFIER_FACTORY_CLASS_NAME,
+						FakeClassifierFactory.class.getName()));
+
+		// the second sentence fails, the third is not classified
+		assertEquals(2, FakeClassifier.featureLists.size());
+
+		Collection<FigureMention> mentions = JCasUtil.select(jcas, FigureMention.class);
+		assertEquals(1, mentions.size());
+		assertEquals("Der Graf", mentions.iterator().next().getCoveredText());
+	}
+
+	@Test
+	public void testContextFeatures() throws UIMAException {
+		// cover the whole document, such that the last tokens are out of
+		// bounds on the right
+		new TrainingArea(jcas, 30, 43).addToIndexes();
+		SimplePipeline.runPipeline(jcas,
+				AnalysisEngineFactory.createEngineDescription(ClearTkMentionAnnotator.class,
+						CleartkSequenceAnnotator.PARAM_CLASSIFIER_FACTORY_CLASS_NAME,
+						FakeClassifierFactory.class.getName()));
+
+		// the extractors that were used before features were taken from the
+		// token window
+		@SuppressWarnings("unchecked")
+		CombinedExtractor1<Token> extractor = new CombinedExtractor1<Token>(
+				new FeatureFunctionExtractor<Token>(new CoveredTextExtractor<Token>(),
+						new CharacterCategoryPatternFunction<Token>(PatternType.REPEATS_MERGED)),
+				new TypePathExtractor<Token>(Token.class, "pos/PosValue"));
+		CleartkExtractor<Token, Token> contextExtractor = new CleartkExtractor<Token, Token>(Token.class, extractor,
+				new Preceding(2), new Following(1));
+
+		List<Token> tokens = new ArrayList<Token>(JCasUtil.select(jcas, Token.class));
+		int t = 0;
+		for (List<List<Feature>> features : FakeClassifier.featureLists)
+			for (List<Feature> tokenFeatures : features) {
+				Token token = tokens.get(t++);
+				List<Feature> expected = new ArrayList<Feature>(extractor.extract(jcas, token));
+				expected.addAll(contextExtractor.extract(jcas, token));
+				assertEquals(token.getCoveredText(), toStrings(expected), toStrings(tokenFeatures));
+			}
+		assertEquals(tokens.size(), t);
+	}
+
+	static List<String> toStrings(List<Feature> features) {
+		List<String> strings = new ArrayList<String>(features.size());
+		for (Feature feature : features)
+			strings.add(feature.getName() + "=" + feature.getValue());
+		return strings;
+	}
+
+	public static class FakeClassifierFactory implements SequenceClassifierFactory<String> {
+		@Override
+		public SequenceClassifier<String> createClassifier() {
+			return new FakeClassifier();
+		}
+	}
+
+	/**
+	 * Marks the first two tokens of a sentence as a mention, and fails on
+	 * sentences that contain the token "weint". The features of each sentence
+	 * are recorded.
+	 */
+	static class FakeClassifier implements SequenceClassifier<String> {
+		static List<List<List<Feature>>> featureLists = new ArrayList<List<List<Feature>>>();
+
+		@Override
+		public List<String> classify(List<List<Feature>> features) throws CleartkProcessingException {
+			featureLists.add(features);
+			for (List<Feature> tokenFeatures : features)
+				for (Feature feature : tokenFeatures)
+					if ("weint".equals(feature.getValue()))
+						throw new CleartkProcessingException(new IllegalArgumentException("weint"));
+			List<String> outcomes = new ArrayList<String>(Arrays.asList("B", "I"));
+			while (outcomes.size() < features.size())
+				outcomes.add("O");
+			return outcomes;
+		}
+
+		@Override
+		public List<Map<String, Double>> score(List<List<Feature>> features) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
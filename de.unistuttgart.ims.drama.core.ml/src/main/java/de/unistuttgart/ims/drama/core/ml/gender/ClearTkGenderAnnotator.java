@@ -1,10 +1,12 @@
 package de.unistuttgart.ims.drama.core.ml.gender;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
@@ -44,6 +46,9 @@ public class ClearTkGenderAnnotator extends CleartkAnnotator<String> {
 	List<String> femaleFirstNames;
 	List<String> maleTitles;
 	List<String> femaleTitles;
+	List<String> numerals;
+
+	Map<String, List<Feature>> tokenFeatures = new HashMap<String, List<Feature>>();
 
 	@Override
 	public void initialize(UimaContext context) throws ResourceInitializationException {
@@ -55,28 +60,37 @@ public class ClearTkGenderAnnotator extends CleartkAnnotator<String> {
 			}
 		});
 		try {
-			maleFirstNames = IOUtils.readLines(this.getClass().getResourceAsStream("/gender/m.csv"), "UTF-8");
-			femaleFirstNames = IOUtils.readLines(this.getClass().getResourceAsStream("/gender/f.csv"), "UTF-8");
-			maleTitles = IOUtils.readLines(this.getClass().getResourceAsStream("/gender/m.titles.csv"), "UTF-8");
-			femaleTitles = IOUtils.readLines(this.getClass().getResourceAsStream("/gender/f.titles.csv"), "UTF-8");
+			maleFirstNames = Dictionary.getInstance("/gender/m.csv");
+			femaleFirstNames = Dictionary.getInstance("/gender/f.csv");
+			maleTitles = Dictionary.getInstance("/gender/m.titles.csv");
+			femaleTitles = Dictionary.getInstance("/gender/f.titles.csv");
+			numerals = Dictionary.getInstance("/gender/numbers.csv");
 		} catch (IOException e) {
-			e.printStackTrace();
+			throw new ResourceInitializationException(e);
 		}
 		this.contextExtractor = new CleartkExtractor.Covered();
 
-		try {
-			this.tokenExtractor = new CombinedExtractor1<Token>(new CoveredTextExtractor<Token>(),
-					new ListFeatureExtractor<Token>("male_first_names", maleFirstNames),
-					new ListFeatureExtractor<Token>("female_first_name", femaleFirstNames),
-					new ListFeatureExtractor<Token>("male_titles", maleTitles),
-					new ListFeatureExtractor<Token>("female_titles", femaleTitles),
-					new ListFeatureExtractor<Token>("numerals",
-							IOUtils.readLines(this.getClass().getResourceAsStream("/gender/numbers.csv"), "UTF-8")),
-					new SuffixFeatureExtractor<Token>("in"));
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
+		final FeatureExtractor1<Token> surfaceExtractor = new CombinedExtractor1<Token>(new CoveredTextExtractor<Token>(),
+				new ListFeatureExtractor<Token>("male_first_names", maleFirstNames),
+				new ListFeatureExtractor<Token>("female_first_name", femaleFirstNames),
+				new ListFeatureExtractor<Token>("male_titles", maleTitles),
+				new ListFeatureExtractor<Token>("female_titles", femaleTitles),
+				new ListFeatureExtractor<Token>("numerals", numerals), new SuffixFeatureExtractor<Token>("in"));
+
+		// all token features depend only on the surface, so they are computed
+		// once per distinct token
+		this.tokenExtractor = new FeatureExtractor1<Token>() {
+			@Override
+			public List<Feature> extract(JCas view, Token focusAnnotation) throws CleartkExtractorException {
+				String text = focusAnnotation.getCoveredText();
+				List<Feature> features = tokenFeatures.get(text);
+				if (features == null) {
+					features = surfaceExtractor.extract(view, focusAnnotation);
+					tokenFeatures.put(text, features);
+				}
+				return new ArrayList<Feature>(features);
+			}
+		};
 
 	}
 
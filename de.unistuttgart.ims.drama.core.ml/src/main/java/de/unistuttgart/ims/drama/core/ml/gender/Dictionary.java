@@ -0,0 +1,72 @@
+package de.unistuttgart.ims.drama.core.ml.gender;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * An immutable word list, read from a class path resource with one entry per
+ * line. It can be used wherever a {@link List} is expected, but
+ * {@link #contains(Object)} is a hash lookup. Each resource is read only once
+ * per JVM, all callers share the same instance.
+ *
+ * @since 1.0.1
+ */
+public class Dictionary extends AbstractList<String> {
+
+	static final Map<String, Dictionary> dictionaries = new HashMap<String, Dictionary>();
+
+	final String[] entries;
+	final Set<String> set;
+
+	Dictionary(List<String> lines) {
+		entries = lines.toArray(new String[lines.size()]);
+		set = new HashSet<String>(lines);
+	}
+
+	/**
+	 * @param resource
+	 *            The name of the class path resource, e.g.,
+	 *            <code>/gender/m.csv</code>
+	 * @return The dictionary
+	 * @throws IOException
+	 *             If the resource does not exist or cannot be read
+	 */
+	public static synchronized Dictionary getInstance(String resource) throws IOException {
+		Dictionary dictionary = dictionaries.get(resource);
+		if (dictionary == null) {
+			InputStream is = Dictionary.class.getResourceAsStream(resource);
+			if (is == null)
+				throw new IOException("Resource not found: " + resource);
+			try {
+				dictionary = new Dictionary(IOUtils.readLines(is, "UTF-8"));
+			} finally {
+				IOUtils.closeQuietly(is);
+			}
+			dictionaries.put(resource, dictionary);
+		}
+		return dictionary;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return set.contains(o);
+	}
+
+	@Override
+	public String get(int index) {
+		return entries[index];
+	}
+
+	@Override
+	public int size() {
+		return entries.length;
+	}
+}
@@ -0,0 +1,42 @@
+package de.unistuttgart.ims.drama.core.ml.gender;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class TestDictionary {
+
+	@Test
+	public void testDictionary() throws IOException {
+		List<String> lines = IOUtils.readLines(getClass().getResourceAsStream("/gender/m.titles.csv"), "UTF-8");
+		Dictionary dictionary = Dictionary.getInstance("/gender/m.titles.csv");
+
+		assertEquals(lines, dictionary);
+		for (String line : lines)
+			assertTrue(dictionary.contains(line));
+		assertFalse(dictionary.contains("not a title"));
+		assertFalse(dictionary.contains(null));
+	}
+
+	@Test
+	public void testShared() throws IOException {
+		assertSame(Dictionary.getInstance("/gender/numbers.csv"), Dictionary.getInstance("/gender/numbers.csv"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testMissing() throws IOException {
+		Dictionary.getInstance("/gender/does-not-exist.csv");
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testImmutable() throws IOException {
+		Dictionary.getInstance("/gender/numbers.csv").add("x");
+	}
+}
@@ -7,11 +7,18 @@ import org.apache.uima.fit.factory.AggregateBuilder;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.resource.ResourceInitializationException;
 
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.SegmenterBase;
+import de.unistuttgart.ims.drama.api.Speech;
+
 /**
  * This class provides a convenient way to get an aggregate analysis engine that
  * re-maps the views so that tokenization can be done on the utterances view
  * {@link D#SOFA_UTTERANCES}.
  * 
+ * Segmenters derived from {@link SegmenterBase} can alternatively be
+ * restricted to the {@link Speech} annotations of the default view, see
+ * {@link #getZonedSegmenterDescription(Class)}.
+ * 
  * @author Nils Reiter
  *
  */
@@ -29,6 +36,28 @@ public class D {
 		return builder.createAggregateDescription();
 	}
 
+	/**
+	 * Creates a segmenter that runs directly on the default view, but only
+	 * within {@link Speech} annotations. In contrast to
+	 * {@link #getWrappedSegmenterDescription(Class)}, no text is copied into
+	 * another view and no annotations need to be mapped back. Because each
+	 * speech is segmented on its own, sentences never span more than one
+	 * speech, i.e., a sentence interrupted by a stage direction is split into
+	 * two.
+	 * 
+	 * @param compClass
+	 *            The segmenter class
+	 * @return A description of the segmenter
+	 * @throws ResourceInitializationException
+	 *             If the description cannot be created
+	 * @since 1.0.1
+	 */
+	public static AnalysisEngineDescription getZonedSegmenterDescription(Class<? extends SegmenterBase> compClass)
+			throws ResourceInitializationException {
+		return AnalysisEngineFactory.createEngineDescription(compClass, SegmenterBase.PARAM_ZONE_TYPES,
+				new String[] { Speech.class.getName() }, SegmenterBase.PARAM_STRICT_ZONING, true);
+	}
+
 	public static AnalysisEngineDescription getDramatisPersonaeProcessing() throws ResourceInitializationException {
 		AggregateBuilder builder = new AggregateBuilder();
 		builder.add(AnalysisEngineFactory.createEngineDescription(FigureReferenceAnnotator.class));
@@ -0,0 +1,289 @@
+package de.unistuttgart.quadrama.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * The source ids and dates of the plays in a dlina
+ * <code>data/zwischenformat</code> directory. The XML files are only read up to
+ * the end of their header, and only the source ids and dates are kept. If an
+ * index file is given, these are stored in it as tab-separated values,
+ * together with the modification time of each XML file. When the index is
+ * loaded again, only files that have been added or changed since are parsed.
+ * Nothing is ever written into the directory itself.
+ * There is one index per directory, index file and JVM, it is shared by all
+ * instances of {@link ReadDlinaMetadata} with the same configuration.
+ *
+ * @since 1.0.1
+ */
+public class DlinaMetadataIndex {
+
+	static final String NAMESPACE_URI = "http://lina.digital";
+
+	static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+	static final Map<String, DlinaMetadataIndex> indexes = new HashMap<String, DlinaMetadataIndex>();
+
+	Map<String, Entry> entries = new HashMap<String, Entry>();
+
+	/**
+	 * @param directory
+	 *            The <code>zwischenformat</code> directory
+	 * @param indexFile
+	 *            The index file, or <code>null</code>. If it is
+	 *            <code>null</code> or cannot be written, the index is kept in
+	 *            memory only.
+	 * @return The index for the directory and index file
+	 * @throws IOException
+	 *             If one of the XML files cannot be read
+	 */
+	public static synchronized DlinaMetadataIndex getInstance(File directory, File indexFile) throws IOException {
+		String key = directory.getCanonicalPath() + File.pathSeparator
+				+ (indexFile == null ? "" : indexFile.getCanonicalPath());
+		DlinaMetadataIndex index = indexes.get(key);
+		if (index == null) {
+			index = new DlinaMetadataIndex();
+			index.load(directory, indexFile);
+			indexes.put(key, index);
+		}
+		return index;
+	}
+
+	/**
+	 * @param sourceId
+	 *            The source id, i.e., the document id of the drama
+	 * @return The entry for the play, or <code>null</code>
+	 */
+	public Entry get(String sourceId) {
+		return entries.get(sourceId);
+	}
+
+	void load(File directory, File indexFile) throws IOException {
+		Map<String, Entry> cached = new HashMap<String, Entry>();
+		if (indexFile != null && indexFile.exists())
+			cached = read(indexFile);
+
+		File[] files = directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(".xml");
+			}
+		});
+		Arrays.sort(files);
+
+		List<Entry> list = new ArrayList<Entry>(files.length);
+		boolean changed = (cached.size() != files.length);
+		for (File f : files) {
+			Entry entry = cached.get(f.getName());
+			if (entry == null || entry.lastModified != f.lastModified()) {
+				entry = parse(f);
+				changed = true;
+			}
+			list.add(entry);
+			entries.put(entry.sourceId, entry);
+		}
+
+		if (changed && indexFile != null)
+			try {
+				write(indexFile, list);
+			} catch (IOException e) {
+				// the index file is only a cache, the entries in memory are
+				// complete, and outdated lines are detected on the next load
+			}
+	}
+
+	static Entry parse(File f) throws IOException {
+		InputStream is = null;
+		XMLStreamReader reader = null;
+		try {
+			is = new FileInputStream(f);
+			reader = inputFactory.createXMLStreamReader(is);
+
+			// only the children of play > header are of interest
+			String sourceUrl = null;
+			List<String> types = new ArrayList<String>();
+			List<String> years = new ArrayList<String>();
+			int depth = 0;
+			boolean inHeader = false;
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					depth++;
+					if (depth == 2)
+						inHeader = isLina(reader, "header");
+					else if (depth == 3 && inHeader && isLina(reader, "date")) {
+						String type = reader.getAttributeValue(null, "type");
+						String when = reader.getAttributeValue(null, "when");
+						if (type != null && when != null) {
+							types.add(type);
+							years.add(when);
+						}
+					} else if (depth == 3 && inHeader && isLina(reader, "source") && sourceUrl == null) {
+						sourceUrl = text(reader);
+						depth--;
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					if (depth == 2 && inHeader)
+						break;
+					depth--;
+				}
+			}
+			if (sourceUrl == null)
+				throw new IOException(f.getName() + ": no source");
+
+			Entry entry = new Entry();
+			entry.fileName = f.getName();
+			entry.lastModified = f.lastModified();
+			entry.sourceId = sourceUrl.substring(56).replace("/data", "");
+			entry.types = types.toArray(new String[types.size()]);
+			entry.years = years.toArray(new String[years.size()]);
+			return entry;
+		} catch (XMLStreamException e) {
+			throw new IOException(f.getName(), e);
+		} finally {
+			if (reader != null)
+				try {
+					reader.close();
+				} catch (XMLStreamException e) {
+				}
+			IOUtils.closeQuietly(is);
+		}
+	}
+
+	static boolean isLina(XMLStreamReader reader, String localName) {
+		return NAMESPACE_URI.equals(reader.getNamespaceURI()) && localName.equals(reader.getLocalName());
+	}
+
+	/**
+	 * Reads the text content of the current element, including the text of
+	 * all descendants. Afterwards, the reader is positioned on the end tag.
+	 */
+	static String text(XMLStreamReader reader) throws XMLStreamException {
+		StringBuilder b = new StringBuilder();
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (event == XMLStreamConstants.END_ELEMENT)
+				depth--;
+			else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+					|| event == XMLStreamConstants.SPACE)
+				b.append(reader.getText());
+		}
+		return b.toString();
+	}
+
+	static Map<String, Entry> read(File indexFile) throws IOException {
+		Map<String, Entry> map = new HashMap<String, Entry>();
+		CSVParser p = null;
+		try {
+			p = new CSVParser(new InputStreamReader(new FileInputStream(indexFile), StandardCharsets.UTF_8),
+					CSVFormat.TDF);
+			for (CSVRecord rec : p) {
+				Entry entry = new Entry();
+				entry.fileName = rec.get(0);
+				entry.lastModified = Long.parseLong(rec.get(1));
+				entry.sourceId = rec.get(2);
+				int n = (rec.size() - 3) / 2;
+				entry.types = new String[n];
+				entry.years = new String[n];
+				for (int i = 0; i < n; i++) {
+					entry.types[i] = rec.get(3 + 2 * i).intern();
+					entry.years[i] = rec.get(4 + 2 * i);
+				}
+				map.put(entry.fileName, entry);
+			}
+		} catch (RuntimeException e) {
+			// a broken index file is ignored and rebuilt
+			map.clear();
+		} finally {
+			IOUtils.closeQuietly(p);
+		}
+		return map;
+	}
+
+	static void write(File indexFile, List<Entry> entries) throws IOException {
+		File tmpFile = new File(indexFile.getPath() + ".tmp");
+		CSVPrinter p = new CSVPrinter(new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8),
+				CSVFormat.TDF);
+		try {
+			for (Entry entry : entries) {
+				p.print(entry.fileName);
+				p.print(entry.lastModified);
+				p.print(entry.sourceId);
+				for (int i = 0; i < entry.types.length; i++) {
+					p.print(entry.types[i]);
+					p.print(entry.years[i]);
+				}
+				p.println();
+			}
+		} finally {
+			p.close();
+		}
+		if (!tmpFile.renameTo(indexFile)) {
+			tmpFile.delete();
+			throw new IOException("Could not replace " + indexFile);
+		}
+	}
+
+	/**
+	 * The dates of a single play, in the order of the XML file
+	 */
+	public static class Entry {
+		String fileName;
+		long lastModified;
+		String sourceId;
+		String[] types;
+		String[] years;
+
+		public String getSourceId() {
+			return sourceId;
+		}
+
+		public int getDateCount() {
+			return types.length;
+		}
+
+		/**
+		 * @param i
+		 *            The index of the date
+		 * @return The value of the <code>type</code> attribute
+		 */
+		public String getType(int i) {
+			return types[i];
+		}
+
+		/**
+		 * @param i
+		 *            The index of the date
+		 * @return The value of the <code>when</code> attribute
+		 */
+		public String getWhen(int i) {
+			return years[i];
+		}
+	}
+}
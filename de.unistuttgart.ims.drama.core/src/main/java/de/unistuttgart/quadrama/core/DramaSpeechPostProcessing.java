@@ -1,9 +1,7 @@
 package de.unistuttgart.quadrama.core;
 
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.NoSuchElementException;
 
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.cas.CASException;
@@ -20,7 +18,16 @@ import de.unistuttgart.quadrama.core.api.Origin;
 /**
  * This component re-adds the annotations done on another view back into the
  * main view.
- * 
+ *
+ * Origins, tokens and sentences of the view {@link D#SOFA_UTTERANCES} are
+ * walked through in offset order at the same time, such that each of them is
+ * looked at only once. This assumes that neither the origins nor the tokens
+ * overlap, which is the case for the views created by
+ * {@link DramaSpeechPreparation} and the usual segmenters. Tokens that are not
+ * covered by an origin and sentences whose first or last token is not covered
+ * by an origin cannot be re-mapped. Their numbers are logged once per
+ * document.
+ *
  * @author Nils Reiter
  *
  */
@@ -29,44 +36,66 @@ public class DramaSpeechPostProcessing extends JCasAnnotator_ImplBase {
 	@Override
 	public void process(JCas jcas) throws AnalysisEngineProcessException {
 
+		JCas utteranceCas;
 		try {
-			// map tokens
-			JCas utteranceCas = jcas.getView(D.SOFA_UTTERANCES);
-			for (Origin origin : JCasUtil.select(utteranceCas, Origin.class)) {
-				for (Token token : JCasUtil.selectCovered(Token.class, origin)) {
-					int begin = token.getBegin() + origin.getOffset() - origin.getBegin();
-					int end = token.getEnd() + origin.getOffset() - origin.getBegin();
-					AnnotationFactory.createAnnotation(jcas, begin, end, Token.class);
-				}
-			}
+			utteranceCas = jcas.getView(D.SOFA_UTTERANCES);
+		} catch (CASException e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+		List<Origin> origins = new ArrayList<Origin>(JCasUtil.select(utteranceCas, Origin.class));
+		List<Token> tokens = new ArrayList<Token>(JCasUtil.select(utteranceCas, Token.class));
 
-			// map sentences
-			Map<Token, Collection<Origin>> covers = JCasUtil.indexCovering(utteranceCas, Token.class, Origin.class);
-			for (Sentence sentence : JCasUtil.select(utteranceCas, Sentence.class)) {
-				List<Token> tokens = JCasUtil.selectCovered(utteranceCas, Token.class, sentence);
+		// map tokens, and remember the origin of each token
+		Origin[] tokenOrigins = new Origin[tokens.size()];
+		int unmappedTokens = 0;
+		int o = 0;
+		for (int t = 0; t < tokens.size(); t++) {
+			Token token = tokens.get(t);
+			while (o < origins.size() && origins.get(o).getEnd() < token.getEnd())
+				o++;
+			if (o < origins.size() && origins.get(o).getBegin() <= token.getBegin()) {
+				Origin origin = origins.get(o);
+				tokenOrigins[t] = origin;
+				int begin = token.getBegin() + origin.getOffset() - origin.getBegin();
+				int end = token.getEnd() + origin.getOffset() - origin.getBegin();
+				AnnotationFactory.createAnnotation(jcas, begin, end, Token.class);
+			} else {
+				unmappedTokens++;
+			}
+		}
 
-				// we search for the first and last token
-				Token firstToken = tokens.get(0);
-				Token lastToken = tokens.get(tokens.size() - 1);
-				Origin firstOrigin = null;
-				try {
-					firstOrigin = covers.get(firstToken).iterator().next();
-				} catch (NoSuchElementException e) {
-					getLogger().log(Level.SEVERE,
-							"Re-mapping of token '" + firstToken.getCoveredText() + "' did not succeed.");
-					continue;
-				}
-				int begin = sentence.getBegin() + firstOrigin.getOffset() - firstOrigin.getBegin();
-				Origin lastOrigin = covers.get(lastToken).iterator().next();
-				int end = sentence.getEnd() + lastOrigin.getOffset() - lastOrigin.getBegin();
+		// map sentences
+		int unmappedSentences = 0;
+		String example = null;
+		int t = 0;
+		for (Sentence sentence : JCasUtil.select(utteranceCas, Sentence.class)) {
+			// we search for the first and last token
+			while (t < tokens.size() && tokens.get(t).getBegin() < sentence.getBegin())
+				t++;
+			int last = t - 1;
+			while (last + 1 < tokens.size() && tokens.get(last + 1).getEnd() <= sentence.getEnd())
+				last++;
 
-				// annotations in the target view may span non-token content
-				AnnotationFactory.createAnnotation(jcas, begin, end, Sentence.class);
+			Origin firstOrigin = (last >= t ? tokenOrigins[t] : null);
+			Origin lastOrigin = (last >= t ? tokenOrigins[last] : null);
+			if (firstOrigin == null || lastOrigin == null) {
+				unmappedSentences++;
+				if (example == null)
+					example = sentence.getCoveredText();
+				continue;
 			}
+			int begin = sentence.getBegin() + firstOrigin.getOffset() - firstOrigin.getBegin();
+			int end = sentence.getEnd() + lastOrigin.getOffset() - lastOrigin.getBegin();
 
-		} catch (CASException e) {
-			throw new AnalysisEngineProcessException(e);
+			// annotations in the target view may span non-token content
+			AnnotationFactory.createAnnotation(jcas, begin, end, Sentence.class);
 		}
 
+		if (unmappedTokens > 0 || unmappedSentences > 0)
+			getLogger().log(Level.WARNING,
+					"Re-mapping did not succeed for " + unmappedTokens + " of " + tokens.size() + " tokens and "
+							+ unmappedSentences + " sentences"
+							+ (example == null ? "." : ", e.g., '" + example + "'."));
+
 	}
 }
@@ -2,13 +2,12 @@ package de.unistuttgart.quadrama.core;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
@@ -28,6 +27,7 @@ import de.unistuttgart.ims.drama.api.Drama;
 import de.unistuttgart.ims.drama.api.FigureMention;
 import de.unistuttgart.ims.drama.api.Speech;
 import de.unistuttgart.ims.drama.api.Utterance;
+import de.unistuttgart.ims.drama.util.DramaIndex;
 import de.unistuttgart.ims.drama.util.DramaUtil;
 import de.unistuttgart.ims.uima.io.xml.ArrayUtil;
 
@@ -68,36 +68,33 @@ public class FigureMentionDetection extends JCasAnnotator_ImplBase {
 			pronouns = new LinkedList<String>();
 		}
 
-		// Step 1: We search for each name in the full text (ignoring token
-		// boundaries etc.)
+		// Step 1: We search for all names in the full text (ignoring token
+		// boundaries etc.) in a single pass
 		Drama d = JCasUtil.selectSingle(jcas, Drama.class);
-		Pattern p;
-		Matcher m;
+		NameMatcher<CastFigure> nameMatcher = new NameMatcher<CastFigure>();
 		for (int i = 0; i < d.getCastList().size(); i++) {
 			CastFigure cf = d.getCastList(i);
 			for (int j = 0; j < cf.getNames().size(); j++) {
-				String name = cf.getNames(j);
-
-				p = Pattern.compile("\\b" + Pattern.quote(name) + "\\b", Pattern.CASE_INSENSITIVE);
-				m = p.matcher(jcas.getDocumentText());
-				while (m.find()) {
-					// If the found token (or multi-token) looks ok given their
-					// part of speech tags,
-					// we consider it a mention
-					if (!matches(jcas, m.start(), m.end())) {
-						FigureMention fm = AnnotationFactory.createAnnotation(jcas, m.start(), m.end(),
-								FigureMention.class);
-						fm.setEntity(ArrayUtil.toFSArray(jcas, cf));
-					}
-				}
+				nameMatcher.add(cf.getNames(j), cf);
 			}
 		}
+		final PosIndex posIndex = new PosIndex(jcas);
+		nameMatcher.find(jcas.getDocumentText(), (begin, end, cf) -> {
+			// If the found token (or multi-token) looks ok given their
+			// part of speech tags,
+			// we consider it a mention
+			if (!posIndex.matches(begin, end)) {
+				FigureMention fm = AnnotationFactory.createAnnotation(jcas, begin, end, FigureMention.class);
+				fm.setEntity(ArrayUtil.toFSArray(jcas, cf));
+			}
+		});
 
 		// 2. We connect first person pronouns to their speakers
-		for (Utterance utterance : JCasUtil.select(jcas, Utterance.class)) {
-			Collection<CastFigure> figures = DramaUtil.getCastFigures(utterance);
+		DramaIndex index = new DramaIndex(jcas);
+		for (Utterance utterance : index.getUtterances()) {
+			Collection<CastFigure> figures = DramaUtil.getCastFigures(index, utterance);
 			for (CastFigure currentFigure : figures) {
-				for (Speech speech : JCasUtil.selectCovered(jcas, Speech.class, utterance)) {
+				for (Speech speech : index.getSpeeches(utterance)) {
 					if (figures.size() <= 1)
 						for (PR pronoun : JCasUtil.selectCovered(jcas, PR.class, speech)) {
 							if (pronouns.contains(pronoun.getCoveredText())) {
@@ -113,14 +110,51 @@ public class FigureMentionDetection extends JCasAnnotator_ImplBase {
 
 	}
 
-	boolean matches(JCas jcas, int begin, int end) {
-		Collection<POS> poss = JCasUtil.selectCovered(jcas, POS.class, begin, end);
-		StringBuilder b = new StringBuilder();
-		for (POS pos : poss) {
-			b.append(pos.getPosValue()).append(' ');
+	/**
+	 * Gives access to the POS tags of a document by offset, such that the
+	 * check for exceptions does not need to query the CAS index on every hit.
+	 */
+	class PosIndex {
+		List<POS> posList;
+		int[] begins;
+
+		PosIndex(JCas jcas) {
+			posList = new ArrayList<POS>(JCasUtil.select(jcas, POS.class));
+			begins = new int[posList.size()];
+			for (int i = 0; i < begins.length; i++)
+				begins[i] = posList.get(i).getBegin();
+		}
+
+		/**
+		 * Checks whether the POS tags covered by the range are listed in
+		 * {@link FigureMentionDetection#posExceptions}.
+		 */
+		boolean matches(int begin, int end) {
+			StringBuilder b = new StringBuilder();
+			for (int i = firstIndex(begin); i < begins.length && begins[i] <= end; i++) {
+				POS pos = posList.get(i);
+				if (pos.getEnd() <= end)
+					b.append(pos.getPosValue()).append(' ');
+			}
+			String profile = b.toString().trim();
+			return ArrayUtils.contains(posExceptions, profile);
+		}
+
+		/**
+		 * @return The index of the first POS tag that begins at or after
+		 *         <code>begin</code>
+		 */
+		int firstIndex(int begin) {
+			int low = 0, high = begins.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (begins[mid] < begin)
+					low = mid + 1;
+				else
+					high = mid;
+			}
+			return low;
 		}
-		String profile = b.toString().trim();
-		return ArrayUtils.contains(posExceptions, profile);
 	}
 
 }
@@ -0,0 +1,138 @@
+package de.unistuttgart.quadrama.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * This class looks up values by (parts of) their names, either by exact token
+ * or by edit distance. Names are lower cased when they are added, tokens are
+ * the parts of a name separated by spaces. Similar names are found with a
+ * BK-tree, such that only a small part of the names needs to be compared. If
+ * several names match, the value added last is returned, which is the result
+ * of comparing against all names in order and keeping the last match. Results
+ * of similarity lookups are cached, so repeated lookups of the same name are
+ * cheap.
+ *
+ * @param <T>
+ *            The type of the values associated with the names
+ * @since 1.0.1
+ */
+public class NameIndex<T> {
+	List<T> values = new ArrayList<T>();
+	Map<String, Integer> tokens = new HashMap<String, Integer>();
+	Node root = null;
+
+	Map<String, Integer> cache = new HashMap<String, Integer>();
+	int cacheDistance = -1;
+
+	/**
+	 * Adds a name.
+	 *
+	 * @param name
+	 *            The name
+	 * @param value
+	 *            The value associated with the name
+	 */
+	public void add(String name, T value) {
+		int id = values.size();
+		values.add(value);
+		for (String token : name.toLowerCase().split(" +"))
+			tokens.put(token, id);
+
+		String key = name.trim().toLowerCase();
+		if (root == null)
+			root = new Node(key, id);
+		else
+			root.add(key, id);
+		cache.clear();
+	}
+
+	/**
+	 * @param token
+	 *            The token, will be lower cased and trimmed
+	 * @return The last value which has the token in its name, or
+	 *         <code>null</code>
+	 */
+	public T findByToken(String token) {
+		Integer id = tokens.get(token.toLowerCase().trim());
+		return (id == null ? null : values.get(id));
+	}
+
+	/**
+	 * @param name
+	 *            The name, will be trimmed and lower cased
+	 * @param maxDistance
+	 *            The maximal Levenshtein distance
+	 * @return The last value whose name is at most <code>maxDistance</code>
+	 *         edits away, or <code>null</code>
+	 */
+	public T findSimilar(String name, int maxDistance) {
+		if (maxDistance != cacheDistance) {
+			cache.clear();
+			cacheDistance = maxDistance;
+		}
+		String key = name.trim().toLowerCase();
+		Integer id;
+		if (cache.containsKey(key)) {
+			id = cache.get(key);
+		} else {
+			id = (root == null ? null : root.find(key, maxDistance));
+			cache.put(key, id);
+		}
+		return (id == null ? null : values.get(id));
+	}
+
+	/**
+	 * A node in the BK-tree. All names in the subtree of
+	 * <code>children.get(d)</code> have distance <code>d</code> to the name of
+	 * this node.
+	 */
+	static class Node {
+		String name;
+		int id;
+		Map<Integer, Node> children = new HashMap<Integer, Node>();
+
+		Node(String name, int id) {
+			this.name = name;
+			this.id = id;
+		}
+
+		void add(String name, int id) {
+			Node node = this;
+			while (true) {
+				int d = StringUtils.getLevenshteinDistance(name, node.name);
+				if (d == 0) {
+					node.id = id;
+					return;
+				}
+				Node child = node.children.get(d);
+				if (child == null) {
+					node.children.put(d, new Node(name, id));
+					return;
+				}
+				node = child;
+			}
+		}
+
+		Integer find(String name, int maxDistance) {
+			Integer best = null;
+			LinkedList<Node> queue = new LinkedList<Node>();
+			queue.add(this);
+			while (!queue.isEmpty()) {
+				Node node = queue.removeFirst();
+				int d = StringUtils.getLevenshteinDistance(name, node.name);
+				if (d <= maxDistance && (best == null || node.id > best))
+					best = node.id;
+				for (Map.Entry<Integer, Node> entry : node.children.entrySet())
+					if (Math.abs(entry.getKey() - d) <= maxDistance)
+						queue.add(entry.getValue());
+			}
+			return best;
+		}
+	}
+}
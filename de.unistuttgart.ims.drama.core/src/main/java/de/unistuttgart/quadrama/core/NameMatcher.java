@@ -0,0 +1,154 @@
+package de.unistuttgart.quadrama.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class finds many names in a text in a single pass, using an
+ * Aho-Corasick automaton. Matching follows the regular expression
+ * <code>\bNAME\b</code> with {@link java.util.regex.Pattern#CASE_INSENSITIVE}:
+ * Case is folded for US-ASCII characters only, and word characters are letters,
+ * digits and the underscore. As with a regular expression, matches of the same
+ * name do not overlap, while matches of different names may.
+ *
+ * @param <T>
+ *            The type of the values associated with the names
+ */
+public class NameMatcher<T> {
+	List<Map<Character, Integer>> transitions = new ArrayList<Map<Character, Integer>>();
+	List<List<Integer>> outputs = new ArrayList<List<Integer>>();
+	int[] failure;
+
+	List<String> names = new ArrayList<String>();
+	List<List<T>> values = new ArrayList<List<T>>();
+	Map<String, Integer> nameIndex = new HashMap<String, Integer>();
+
+	public NameMatcher() {
+		newState();
+	}
+
+	/**
+	 * Adds a name. Adding the same name several times (also with different
+	 * values) leads to one match per call.
+	 *
+	 * @param name
+	 *            The name
+	 * @param value
+	 *            The value associated with the name
+	 */
+	public void add(String name, T value) {
+		if (failure != null)
+			throw new IllegalStateException("Names cannot be added after matching has started.");
+		if (name.isEmpty())
+			return;
+		String key = fold(name);
+		if (!nameIndex.containsKey(key)) {
+			nameIndex.put(key, names.size());
+			names.add(key);
+			values.add(new LinkedList<T>());
+
+			int state = 0;
+			for (int i = 0; i < key.length(); i++) {
+				Integer next = transitions.get(state).get(key.charAt(i));
+				if (next == null) {
+					next = newState();
+					transitions.get(state).put(key.charAt(i), next);
+				}
+				state = next;
+			}
+			outputs.get(state).add(nameIndex.get(key));
+		}
+		values.get(nameIndex.get(key)).add(value);
+	}
+
+	/**
+	 * Searches all names in the text.
+	 *
+	 * @param text
+	 *            The text
+	 * @param callback
+	 *            Called for every match, in order of the end position
+	 */
+	public void find(String text, Callback<T> callback) {
+		if (failure == null)
+			computeFailure();
+		int[] lastEnd = new int[names.size()];
+		int state = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = fold(text.charAt(i));
+			Integer next = transitions.get(state).get(c);
+			while (next == null && state != 0) {
+				state = failure[state];
+				next = transitions.get(state).get(c);
+			}
+			state = (next == null ? 0 : next);
+			for (int nameId : outputs.get(state)) {
+				int end = i + 1;
+				int begin = end - names.get(nameId).length();
+				if (begin >= lastEnd[nameId] && isBoundary(text, begin) && isBoundary(text, end)) {
+					lastEnd[nameId] = end;
+					for (T value : values.get(nameId))
+						callback.match(begin, end, value);
+				}
+			}
+		}
+	}
+
+	protected void computeFailure() {
+		failure = new int[transitions.size()];
+		LinkedList<Integer> queue = new LinkedList<Integer>();
+		for (int s : transitions.get(0).values()) {
+			failure[s] = 0;
+			queue.add(s);
+		}
+		while (!queue.isEmpty()) {
+			int state = queue.removeFirst();
+			for (Map.Entry<Character, Integer> entry : transitions.get(state).entrySet()) {
+				int target = entry.getValue();
+				queue.add(target);
+				int f = failure[state];
+				while (f != 0 && !transitions.get(f).containsKey(entry.getKey()))
+					f = failure[f];
+				Integer fTarget = transitions.get(f).get(entry.getKey());
+				failure[target] = (fTarget == null || fTarget == target ? 0 : fTarget);
+				outputs.get(target).addAll(outputs.get(failure[target]));
+			}
+		}
+	}
+
+	protected int newState() {
+		transitions.add(new HashMap<Character, Integer>());
+		outputs.add(new LinkedList<Integer>());
+		return transitions.size() - 1;
+	}
+
+	protected static boolean isBoundary(String text, int position) {
+		boolean left = position > 0 && isWord(text.charAt(position - 1));
+		boolean right = position < text.length() && isWord(text.charAt(position));
+		return left != right;
+	}
+
+	protected static boolean isWord(char c) {
+		return c == '_' || Character.isLetterOrDigit(c);
+	}
+
+	protected static char fold(char c) {
+		if (c >= 'A' && c <= 'Z')
+			return (char) (c + ('a' - 'A'));
+		return c;
+	}
+
+	protected static String fold(String s) {
+		StringBuilder b = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++)
+			b.append(fold(s.charAt(i)));
+		return b.toString();
+	}
+
+	public interface Callback<T> {
+		void match(int begin, int end, T value);
+	}
+}
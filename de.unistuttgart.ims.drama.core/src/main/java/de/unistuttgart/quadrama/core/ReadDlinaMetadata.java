@@ -1,10 +1,7 @@
 package de.unistuttgart.quadrama.core;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FilenameFilter;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
 
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
@@ -21,16 +18,13 @@ import de.unistuttgart.ims.drama.api.DatePrint;
 import de.unistuttgart.ims.drama.api.DateWritten;
 import de.unistuttgart.ims.drama.api.Drama;
 import de.unistuttgart.ims.drama.util.DramaUtil;
-import nu.xom.Builder;
-import nu.xom.Document;
-import nu.xom.Element;
-import nu.xom.Elements;
 
 /**
  * This component reads meta data provided by the dlina project. To use it,
  * please clone the <a href="https://github.com/dlina/project/">dlina
  * repository</a> and provide a path to the <code>data/zwischenformat</code>
  * directory. This component then reads the xml files and copies the dates.
+ * The dates can be cached in an index file, see {@link DlinaMetadataIndex}.
  * 
  * The component has been tested with revision <a href=
  * "https://github.com/dlina/project/tree/b5c565092e5a3c84997daae4d34a3026014b64b4">
@@ -50,14 +44,22 @@ public class ReadDlinaMetadata extends JCasAnnotator_ImplBase {
 
 	public static final String PARAM_DLINA_DIRECTORY = "Dlina Directory";
 
+	/**
+	 * The file in which the dates are cached between runs. If not set, the
+	 * XML files are read on every run. The file should not be placed in the
+	 * dlina directory, which may be read-only or under version control.
+	 */
+	public static final String PARAM_INDEX_FILE = "Index File";
+
 	@ConfigurationParameter(name = PARAM_DLINA_DIRECTORY)
 	String dlinaDirectoryName;
 
-	File dlinaDirectory;
+	@ConfigurationParameter(name = PARAM_INDEX_FILE, mandatory = false)
+	String indexFileName = null;
 
-	Map<String, Document> fileIndex = new HashMap<String, Document>();
+	File dlinaDirectory;
 
-	String namespaceUri = "http://lina.digital";
+	DlinaMetadataIndex index;
 
 	@Override
 	public void initialize(final UimaContext context) throws ResourceInitializationException {
@@ -66,53 +68,37 @@ public class ReadDlinaMetadata extends JCasAnnotator_ImplBase {
 		if (!dlinaDirectory.isDirectory())
 			throw new ResourceInitializationException();
 
-		for (File f : dlinaDirectory.listFiles(new FilenameFilter() {
-			@Override
-			public boolean accept(File dir, String name) {
-				return name.endsWith(".xml");
-			}
-		})) {
-			try {
-				Builder parser = new Builder();
-				Document doc = parser.build(new FileInputStream(f));
-				String sourceUrl = doc.getRootElement().getFirstChildElement("header", namespaceUri)
-						.getFirstChildElement("source", namespaceUri).getValue();
-				String sourceId = sourceUrl.substring(56).replace("/data", "");
-				fileIndex.put(sourceId, doc);
-			} catch (Exception e) {
-				throw new ResourceInitializationException(e);
-			}
+		File indexFile = (indexFileName == null ? null : new File(indexFileName));
+		try {
+			index = DlinaMetadataIndex.getInstance(dlinaDirectory, indexFile);
+		} catch (IOException e) {
+			throw new ResourceInitializationException(e);
 		}
 	}
 
 	@Override
 	public void process(JCas jcas) throws AnalysisEngineProcessException {
 		Drama d = JCasUtil.selectSingle(jcas, Drama.class);
-		Document doc = fileIndex.get(d.getDocumentId());
-		if (doc == null)
+		DlinaMetadataIndex.Entry entry = index.get(d.getDocumentId());
+		if (entry == null)
 			return;
 
-		Elements dateElements = doc.getRootElement().getFirstChildElement("header", namespaceUri)
-				.getChildElements("date", namespaceUri);
-		for (int i = 0; i < dateElements.size(); i++) {
-			Element dateElement = dateElements.get(i);
-			if (dateElement.getAttributeValue("when") != null) {
-				String whenAttVal = dateElement.getAttributeValue("when");
-				Date date = null;
-				if (dateElement.getAttributeValue("type").equals("print")) {
-					d.setDatePrinted(Integer.valueOf(whenAttVal));
-					date = DramaUtil.createFeatureStructure(jcas, DatePrint.class);
-				} else if (dateElement.getAttributeValue("type").equals("written")) {
-					d.setDateWritten(Integer.valueOf(whenAttVal));
-					date = DramaUtil.createFeatureStructure(jcas, DateWritten.class);
-				} else if (dateElement.getAttributeValue("type").equals("premiere")) {
-					d.setDatePremiere(Integer.valueOf(whenAttVal));
-					date = DramaUtil.createFeatureStructure(jcas, DatePremiere.class);
-				}
-				if (date != null) {
-					date.setYear(Integer.valueOf(whenAttVal));
-					date.setSource("dlina");
-				}
+		for (int i = 0; i < entry.getDateCount(); i++) {
+			String whenAttVal = entry.getWhen(i);
+			Date date = null;
+			if (entry.getType(i).equals("print")) {
+				d.setDatePrinted(Integer.valueOf(whenAttVal));
+				date = DramaUtil.createFeatureStructure(jcas, DatePrint.class);
+			} else if (entry.getType(i).equals("written")) {
+				d.setDateWritten(Integer.valueOf(whenAttVal));
+				date = DramaUtil.createFeatureStructure(jcas, DateWritten.class);
+			} else if (entry.getType(i).equals("premiere")) {
+				d.setDatePremiere(Integer.valueOf(whenAttVal));
+				date = DramaUtil.createFeatureStructure(jcas, DatePremiere.class);
+			}
+			if (date != null) {
+				date.setYear(Integer.valueOf(whenAttVal));
+				date.setSource("dlina");
 			}
 		}
 		return;
@@ -0,0 +1,162 @@
+package de.unistuttgart.quadrama.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.IOUtils;
+import org.apache.uima.resource.DataResource;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.SharedResourceObject;
+
+/**
+ * The speaker assignment rules used by {@link SpeakerAssignmentRules}, read
+ * from a TSV file. Each rule file is parsed only once per JVM: All tables for
+ * the same URL share their rules, regardless of whether they have been created
+ * as an external resource or by {@link #getInstance(URL)}. The rules are kept
+ * in sorted arrays of interned strings and are never modified. If the rules
+ * come from a local file, they are read again when the file changes. The
+ * modification time of the file is checked at most once per
+ * {@link #CHECK_INTERVAL} milliseconds, lookups in between neither touch the
+ * file system nor take a lock.
+ *
+ * @since 1.0.1
+ */
+public class SpeakerAssignmentRuleTable implements SharedResourceObject {
+
+	/**
+	 * The minimal time between two checks of the modification time of the
+	 * rule file, in milliseconds
+	 */
+	public static final long CHECK_INTERVAL = 1000;
+
+	static final Map<String, SpeakerAssignmentRuleTable> tables = new HashMap<String, SpeakerAssignmentRuleTable>();
+
+	SpeakerAssignmentRuleTable shared = this;
+
+	URL url;
+	File file = null;
+	long lastModified;
+	volatile long lastCheck;
+	volatile Map<String, Rules> rules;
+
+	@Override
+	public void load(DataResource aData) throws ResourceInitializationException {
+		try {
+			shared = getInstance(aData.getUrl());
+		} catch (IOException e) {
+			throw new ResourceInitializationException(e);
+		}
+	}
+
+	/**
+	 * @param dramaId
+	 *            The document id of the drama
+	 * @return The rules for the drama, or <code>null</code> if there are none
+	 * @throws IOException
+	 *             If the rule file has changed and cannot be read again
+	 */
+	public Rules getRules(String dramaId) throws IOException {
+		return shared.current().get(dramaId);
+	}
+
+	/**
+	 * @param url
+	 *            The URL of the rule file
+	 * @return The rule table for the URL, read only on the first call
+	 * @throws IOException
+	 *             If the rule file cannot be read
+	 */
+	public static synchronized SpeakerAssignmentRuleTable getInstance(URL url) throws IOException {
+		String key = url.toExternalForm();
+		SpeakerAssignmentRuleTable table = tables.get(key);
+		if (table == null) {
+			table = new SpeakerAssignmentRuleTable();
+			table.url = url;
+			if (url.getProtocol().equals("file"))
+				try {
+					table.file = new File(url.toURI());
+				} catch (URISyntaxException e) {
+					throw new IOException(e);
+				}
+			table.current();
+			tables.put(key, table);
+		}
+		return table;
+	}
+
+	Map<String, Rules> current() throws IOException {
+		Map<String, Rules> r = rules;
+		if (r != null && (file == null || System.currentTimeMillis() - lastCheck < CHECK_INTERVAL))
+			return r;
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			if (rules == null || (file != null && now - lastCheck >= CHECK_INTERVAL)) {
+				lastCheck = now;
+				long modified = (file == null ? 0 : file.lastModified());
+				if (rules == null || modified != lastModified) {
+					lastModified = modified;
+					rules = read(url);
+				}
+			}
+			return rules;
+		}
+	}
+
+	static Map<String, Rules> read(URL url) throws IOException {
+		Map<String, Map<String, String>> ruleMap = new HashMap<String, Map<String, String>>();
+		CSVParser p = null;
+		try {
+			p = new CSVParser(new InputStreamReader(url.openStream()), CSVFormat.TDF.withHeader((String) null));
+			Iterator<CSVRecord> iter = p.iterator();
+			while (iter.hasNext()) {
+				CSVRecord rec = iter.next();
+				if (!ruleMap.containsKey(rec.get(0)))
+					ruleMap.put(rec.get(0), new TreeMap<String, String>());
+				ruleMap.get(rec.get(0)).put(rec.get(1).intern(), rec.get(2).intern());
+			}
+		} finally {
+			IOUtils.closeQuietly(p);
+		}
+
+		Map<String, Rules> r = new HashMap<String, Rules>();
+		for (Map.Entry<String, Map<String, String>> entry : ruleMap.entrySet())
+			r.put(entry.getKey().intern(), new Rules(entry.getValue()));
+		return Collections.unmodifiableMap(r);
+	}
+
+	/**
+	 * The rules for a single drama
+	 */
+	public static class Rules {
+		final String[] speakers;
+		final String[] references;
+
+		Rules(Map<String, String> map) {
+			speakers = map.keySet().toArray(new String[map.size()]);
+			references = map.values().toArray(new String[map.size()]);
+		}
+
+		/**
+		 * @param speaker
+		 *            The speaker string
+		 * @return The figure reference assigned to the speaker, or
+		 *         <code>null</code> if there is no rule for it
+		 */
+		public String getFigureReference(String speaker) {
+			int i = Arrays.binarySearch(speakers, speaker);
+			return (i < 0 ? null : references[i]);
+		}
+	}
+}
@@ -1,20 +1,15 @@
 package de.unistuttgart.quadrama.core;
 
-import java.io.InputStreamReader;
-import java.net.MalformedURLException;
+import java.io.IOException;
 import java.net.URL;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
-import org.apache.commons.io.IOUtils;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.descriptor.ExternalResource;
 import org.apache.uima.fit.descriptor.TypeCapability;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
@@ -60,6 +55,10 @@ import de.unistuttgart.ims.drama.api.Speaker;
  * "https://raw.githubusercontent.com/quadrama/DramaNLP/master/de.unistuttgart.ims.drama.core/src/test/resources/SpeakerAssignmentRules/speaker-assignment-mapping.tsv">
  * online</a> or in this package unter
  * <code>src/test/resources/SpakerAssignmentRules</code>.
+ *
+ * The rules are either read from {@link #PARAM_RULE_FILE_URL}, or given as an
+ * external resource bound to {@link #RES_RULE_TABLE}. In both cases, the rule
+ * file is read only once per JVM.
  * 
  * @author reiterns
  *
@@ -70,35 +69,29 @@ public class SpeakerAssignmentRules extends JCasAnnotator_ImplBase {
 
 	public static final String PARAM_RULE_FILE_URL = "Rule File";
 
-	@ConfigurationParameter(name = PARAM_RULE_FILE_URL)
-	String ruleFileUrlString;
+	/**
+	 * The rules as a shared resource, see {@link SpeakerAssignmentRuleTable}.
+	 * If this resource is bound, {@link #PARAM_RULE_FILE_URL} is ignored.
+	 */
+	public static final String RES_RULE_TABLE = "Rule Table";
+
+	@ConfigurationParameter(name = PARAM_RULE_FILE_URL, mandatory = false)
+	String ruleFileUrlString = null;
 
-	Map<String, Map<String, String>> ruleMap = new HashMap<String, Map<String, String>>();
+	@ExternalResource(key = RES_RULE_TABLE, mandatory = false)
+	SpeakerAssignmentRuleTable ruleTable = null;
 
 	@Override
 	public void initialize(final UimaContext context) throws ResourceInitializationException {
 		super.initialize(context);
-		CSVParser p = null;
-		URL ruleFileUrl = null;
-		try {
-			ruleFileUrl = new URL(ruleFileUrlString);
-		} catch (MalformedURLException e1) {
-			throw new ResourceInitializationException(e1);
-		}
-
+		if (ruleTable != null)
+			return;
+		if (ruleFileUrlString == null)
+			throw new ResourceInitializationException();
 		try {
-			p = new CSVParser(new InputStreamReader(ruleFileUrl.openStream()), CSVFormat.TDF.withHeader((String) null));
-			Iterator<CSVRecord> iter = p.iterator();
-			while (iter.hasNext()) {
-				CSVRecord rec = iter.next();
-				if (!ruleMap.containsKey(rec.get(0)))
-					ruleMap.put(rec.get(0), new HashMap<String, String>());
-				ruleMap.get(rec.get(0)).put(rec.get(1), rec.get(2));
-			}
-		} catch (Exception e) {
+			ruleTable = SpeakerAssignmentRuleTable.getInstance(new URL(ruleFileUrlString));
+		} catch (IOException e) {
 			throw new ResourceInitializationException(e);
-		} finally {
-			IOUtils.closeQuietly(p);
 		}
 	}
 
@@ -110,11 +103,17 @@ public class SpeakerAssignmentRules extends JCasAnnotator_ImplBase {
 			referenceMap.put(figure.getCoveredText(), figure);
 		}
 		String tgId = JCasUtil.selectSingle(jcas, Drama.class).getDocumentId();
-		if (ruleMap.containsKey(tgId)) {
-			Map<String, String> myMap = ruleMap.get(tgId);
+		SpeakerAssignmentRuleTable.Rules rules;
+		try {
+			rules = ruleTable.getRules(tgId);
+		} catch (IOException e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+		if (rules != null) {
 			for (Speaker speaker : JCasUtil.select(jcas, Speaker.class)) {
-				if (myMap.containsKey(speaker.getCoveredText())) {
-					speaker.setFigure(referenceMap.get(myMap.get(speaker.getCoveredText())));
+				String reference = rules.getFigureReference(speaker.getCoveredText());
+				if (reference != null) {
+					speaker.setFigure(referenceMap.get(reference));
 				}
 			}
 		}
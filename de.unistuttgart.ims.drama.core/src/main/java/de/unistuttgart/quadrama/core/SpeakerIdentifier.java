@@ -8,7 +8,6 @@ import java.util.Set;
 import java.util.TreeSet;
 
 import org.apache.commons.lang.ArrayUtils;
-import org.apache.commons.lang.StringUtils;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
@@ -72,9 +71,13 @@ public class SpeakerIdentifier extends JCasAnnotator_ImplBase {
 			}
 		}
 
-		unassigned = assignLevel2(map.values(), unassigned);
+		NameIndex<Figure> index = new NameIndex<Figure>();
+		for (Figure figure : map.values())
+			index.add(figure.getCoveredText(), figure);
+
+		unassigned = assignLevel2(index, unassigned);
 		// unassigned = assignLevel3(map.values(), unassigned);
-		unassigned = assignLevDistance(map.values(), unassigned, threshold);
+		unassigned = assignLevDistance(index, unassigned, threshold);
 
 		if (!unassigned.isEmpty())
 			getLogger().log(Level.WARNING, unassigned.size() + " unassigned speakers: " + JCasUtil.toText(unassigned));
@@ -103,16 +106,12 @@ public class SpeakerIdentifier extends JCasAnnotator_ImplBase {
 
 	}
 
-	protected Set<Speaker> assignLevel2(Collection<Figure> figures, Collection<Speaker> speakers) {
+	protected Set<Speaker> assignLevel2(NameIndex<Figure> figures, Collection<Speaker> speakers) {
 		Set<Speaker> unassigned = new HashSet<Speaker>();
 		for (Speaker speaker : speakers) {
-			for (Figure figure : figures) {
-				String[] nameParts = figure.getCoveredText().toLowerCase().split(" +");
-				if (ArrayUtils.contains(nameParts, speaker.getCoveredText().toLowerCase().trim())) {
-					speaker.setFigure(figure);
-				} else {
-				}
-			}
+			Figure figure = figures.findByToken(speaker.getCoveredText());
+			if (figure != null)
+				speaker.setFigure(figure);
 			if (speaker.getFigure() == null)
 				unassigned.add(speaker);
 		}
@@ -137,18 +136,13 @@ public class SpeakerIdentifier extends JCasAnnotator_ImplBase {
 		return unassigned;
 	}
 
-	protected Set<Speaker> assignLevDistance(Collection<Figure> figures, Collection<Speaker> speakers,
+	protected Set<Speaker> assignLevDistance(NameIndex<Figure> figures, Collection<Speaker> speakers,
 			int maxDistance) {
 		Set<Speaker> unassigned = new HashSet<Speaker>();
 		for (Speaker speaker : speakers) {
-			String sName = speaker.getCoveredText().trim().toLowerCase();
-			for (Figure figure : figures) {
-				String fName = figure.getCoveredText().trim().toLowerCase();
-				int lev = StringUtils.getLevenshteinDistance(sName, fName);
-				if (lev <= maxDistance) {
-					speaker.setFigure(figure);
-				}
-			}
+			Figure figure = figures.findSimilar(speaker.getCoveredText(), maxDistance);
+			if (figure != null)
+				speaker.setFigure(figure);
 			if (speaker.getFigure() == null)
 				unassigned.add(speaker);
 
@@ -0,0 +1,87 @@
+package de.unistuttgart.quadrama.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.cas.impl.XmiCasDeserializer;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.xml.sax.SAXException;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.SegmenterBase;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.dkpro.core.languagetool.LanguageToolSegmenter;
+
+/**
+ * Compares {@link D#getWrappedSegmenterDescription(Class)} with
+ * {@link D#getZonedSegmenterDescription(Class)}. For each variant, the time
+ * spent in the segmentation step is measured, as well as the size of the CAS
+ * afterwards: The number of characters in all sofas, the number of
+ * annotations in all views and the size of the CAS in compressed binary form.
+ *
+ * Usage: <code>SegmenterBenchmark [XMI file] [iterations] [segmenter class]</code>
+ */
+public class SegmenterBenchmark {
+
+	public static void main(String[] args) throws UIMAException, IOException, SAXException, ClassNotFoundException {
+		String file = (args.length > 0 ? args[0] : "src/test/resources/DramaSpeechSegmenter/rfxf.0.xmi");
+		int iterations = (args.length > 1 ? Integer.valueOf(args[1]) : 20);
+		Class<? extends SegmenterBase> segmenterClass = (args.length > 2
+				? Class.forName(args[2]).asSubclass(SegmenterBase.class) : LanguageToolSegmenter.class);
+
+		run("view copy", D.getWrappedSegmenterDescription(segmenterClass), file, iterations);
+		run("zoned", D.getZonedSegmenterDescription(segmenterClass), file, iterations);
+	}
+
+	static void run(String name, AnalysisEngineDescription description, String file, int iterations)
+			throws UIMAException, IOException, SAXException {
+		AnalysisEngine engine = AnalysisEngineFactory.createEngine(description);
+		JCas jcas = JCasFactory.createJCas();
+
+		// the first runs are not measured
+		int warmup = Math.min(5, iterations);
+		long time = 0;
+		for (int i = 0; i < warmup + iterations; i++) {
+			load(jcas, file);
+			long start = System.nanoTime();
+			engine.process(jcas);
+			if (i >= warmup)
+				time += System.nanoTime() - start;
+		}
+
+		int characters = 0;
+		int annotations = 0;
+		for (Iterator<JCas> iter = jcas.getViewIterator(); iter.hasNext();) {
+			JCas view = iter.next();
+			characters += view.getDocumentText().length();
+			annotations += view.getAnnotationIndex().size();
+		}
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		Serialization.serializeWithCompression(jcas.getCas(), bos, jcas.getTypeSystem());
+
+		System.out.println(name + ": " + (time / iterations / 1000000) + " ms per document, "
+				+ JCasUtil.select(jcas, Token.class).size() + " tokens, " + characters + " characters, "
+				+ annotations + " annotations, " + bos.size() + " bytes");
+		engine.destroy();
+	}
+
+	static void load(JCas jcas, String file) throws IOException, SAXException {
+		jcas.reset();
+		InputStream is = new FileInputStream(file);
+		try {
+			XmiCasDeserializer.deserialize(is, jcas.getCas(), true);
+		} finally {
+			is.close();
+		}
+		jcas.setDocumentLanguage("de");
+	}
+}
@@ -0,0 +1,94 @@
+package de.unistuttgart.quadrama.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestDlinaMetadataIndex {
+	File directory = new File("src/test/resources/ReadDlinaMetadata/zwischenformat");
+	File indexFile = new File("target/test-classes/dlina-index.tsv");
+
+	@Before
+	public void setUp() {
+		indexFile.getParentFile().mkdirs();
+		indexFile.delete();
+	}
+
+	@Test
+	public void testIndex() throws IOException {
+		DlinaMetadataIndex index = new DlinaMetadataIndex();
+		index.load(directory, indexFile);
+		assertTrue(indexFile.exists());
+		check(index);
+		assertNull(index.get("xxxx.0"));
+
+		// the second index is read from the index file
+		DlinaMetadataIndex cached = new DlinaMetadataIndex();
+		cached.load(directory, indexFile);
+		check(cached);
+		assertEquals(index.entries.keySet(), cached.entries.keySet());
+	}
+
+	@Test
+	public void testChangedFile() throws IOException {
+		File copy = new File("target/test-classes/dlina");
+		FileUtils.deleteDirectory(copy);
+		FileUtils.copyDirectory(directory, copy);
+
+		DlinaMetadataIndex index = new DlinaMetadataIndex();
+		index.load(copy, indexFile);
+		assertEquals("1801", index.get("twt3.0").getWhen(0));
+
+		File f = new File(copy, "1800-Schiller_Friedrich-Maria_Stuart-lina.xml");
+		FileUtils.writeStringToFile(f,
+				FileUtils.readFileToString(f, "UTF-8").replace("type=\"print\" when=\"1801\"",
+						"type=\"print\" when=\"1802\""),
+				"UTF-8");
+		f.setLastModified(f.lastModified() + 2000);
+
+		index = new DlinaMetadataIndex();
+		index.load(copy, indexFile);
+		assertEquals("1802", index.get("twt3.0").getWhen(0));
+	}
+
+	@Test
+	public void testWithoutIndexFile() throws IOException {
+		File copy = new File("target/test-classes/dlina-readonly");
+		FileUtils.deleteDirectory(copy);
+		FileUtils.copyDirectory(directory, copy);
+		String[] before = copy.list();
+
+		DlinaMetadataIndex index = DlinaMetadataIndex.getInstance(copy, null);
+		check(index);
+		assertEquals(before.length, copy.list().length);
+
+		assertSame(index, DlinaMetadataIndex.getInstance(copy, null));
+		DlinaMetadataIndex withFile = DlinaMetadataIndex.getInstance(copy, indexFile);
+		assertNotSame(index, withFile);
+		assertTrue(indexFile.exists());
+		check(withFile);
+	}
+
+	static void check(DlinaMetadataIndex index) {
+		assertEquals(23, index.entries.size());
+		DlinaMetadataIndex.Entry entry = index.get("twt3.0");
+		assertEquals(3, entry.getDateCount());
+		assertEquals("print", entry.getType(0));
+		assertEquals("1801", entry.getWhen(0));
+		assertEquals("premiere", entry.getType(1));
+		assertEquals("1800", entry.getWhen(1));
+		assertEquals("written", entry.getType(2));
+		assertEquals("1800", entry.getWhen(2));
+
+		assertEquals(1, index.get("wdq6.0").getDateCount());
+	}
+}
@@ -0,0 +1,82 @@
+package de.unistuttgart.quadrama.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.AnnotationFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.pipeline.SimplePipeline;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.unistuttgart.quadrama.core.api.Origin;
+
+public class TestDramaSpeechPostProcessing {
+	JCas jcas;
+	JCas utteranceCas;
+
+	@Before
+	public void setUp() throws UIMAException {
+		jcas = JCasFactory.createText("A: Hallo Welt. B: Ja gut.");
+		utteranceCas = jcas.createView(D.SOFA_UTTERANCES);
+		utteranceCas.setDocumentText("Hallo Welt. \n\nJa gut. \n\n");
+		AnnotationFactory.createAnnotation(utteranceCas, 0, 11, Origin.class).setOffset(3);
+		AnnotationFactory.createAnnotation(utteranceCas, 14, 21, Origin.class).setOffset(18);
+	}
+
+	@Test
+	public void testMapping() throws UIMAException {
+		int[][] tokens = new int[][] { { 0, 5 }, { 6, 10 }, { 10, 11 }, { 14, 16 }, { 17, 20 }, { 20, 21 } };
+		for (int[] token : tokens)
+			AnnotationFactory.createAnnotation(utteranceCas, token[0], token[1], Token.class);
+		AnnotationFactory.createAnnotation(utteranceCas, 0, 11, Sentence.class);
+		AnnotationFactory.createAnnotation(utteranceCas, 14, 21, Sentence.class);
+
+		SimplePipeline.runPipeline(jcas,
+				AnalysisEngineFactory.createEngineDescription(DramaSpeechPostProcessing.class));
+
+		assertEquals(6, JCasUtil.select(jcas, Token.class).size());
+		assertEquals("Hallo", JCasUtil.selectByIndex(jcas, Token.class, 0).getCoveredText());
+		assertEquals(".", JCasUtil.selectByIndex(jcas, Token.class, 2).getCoveredText());
+		assertEquals("gut", JCasUtil.selectByIndex(jcas, Token.class, 4).getCoveredText());
+		assertEquals(2, JCasUtil.select(jcas, Sentence.class).size());
+		assertEquals("Hallo Welt.", JCasUtil.selectByIndex(jcas, Sentence.class, 0).getCoveredText());
+		assertEquals("Ja gut.", JCasUtil.selectByIndex(jcas, Sentence.class, 1).getCoveredText());
+	}
+
+	@Test
+	public void testSentenceAcrossOrigins() throws UIMAException {
+		AnnotationFactory.createAnnotation(utteranceCas, 0, 5, Token.class);
+		AnnotationFactory.createAnnotation(utteranceCas, 20, 21, Token.class);
+		AnnotationFactory.createAnnotation(utteranceCas, 0, 21, Sentence.class);
+
+		SimplePipeline.runPipeline(jcas,
+				AnalysisEngineFactory.createEngineDescription(DramaSpeechPostProcessing.class));
+
+		assertEquals(1, JCasUtil.select(jcas, Sentence.class).size());
+		assertEquals("Hallo Welt. B: Ja gut.", JCasUtil.selectByIndex(jcas, Sentence.class, 0).getCoveredText());
+	}
+
+	@Test
+	public void testUnmappedToken() throws UIMAException {
+		// the second token spans both origins
+		AnnotationFactory.createAnnotation(utteranceCas, 0, 5, Token.class);
+		AnnotationFactory.createAnnotation(utteranceCas, 6, 16, Token.class);
+		AnnotationFactory.createAnnotation(utteranceCas, 17, 20, Token.class);
+		AnnotationFactory.createAnnotation(utteranceCas, 0, 5, Sentence.class);
+		AnnotationFactory.createAnnotation(utteranceCas, 6, 20, Sentence.class);
+
+		SimplePipeline.runPipeline(jcas,
+				AnalysisEngineFactory.createEngineDescription(DramaSpeechPostProcessing.class));
+
+		assertEquals(2, JCasUtil.select(jcas, Token.class).size());
+		assertEquals("gut", JCasUtil.selectByIndex(jcas, Token.class, 1).getCoveredText());
+		assertEquals(1, JCasUtil.select(jcas, Sentence.class).size());
+		assertEquals("Hallo", JCasUtil.selectByIndex(jcas, Sentence.class, 0).getCoveredText());
+	}
+}
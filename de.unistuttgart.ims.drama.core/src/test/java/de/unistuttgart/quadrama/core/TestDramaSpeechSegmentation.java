@@ -1,6 +1,7 @@
 package de.unistuttgart.quadrama.core;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -8,6 +9,7 @@ import java.io.IOException;
 import org.apache.uima.UIMAException;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.CASException;
 import org.apache.uima.cas.impl.XmiCasDeserializer;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.fit.factory.CollectionReaderFactory;
@@ -23,6 +25,7 @@ import org.xml.sax.SAXException;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiWriter;
 import de.tudarmstadt.ukp.dkpro.core.languagetool.LanguageToolSegmenter;
+import de.unistuttgart.ims.drama.api.Speech;
 import de.unistuttgart.quadrama.io.tei.GerDraCorReader;
 import de.unistuttgart.quadrama.io.tei.TextgridTEIUrlReader;
 
@@ -52,6 +55,21 @@ public class TestDramaSpeechSegmentation {
 		assertEquals("ruhig", JCasUtil.selectByIndex(jcas, Token.class, 20).getCoveredText());
 	}
 
+	@Test
+	public void testZonedSegmentation()
+			throws ResourceInitializationException, AnalysisEngineProcessException, CASException {
+
+		SimplePipeline.runPipeline(jcas, D.getZonedSegmenterDescription(LanguageToolSegmenter.class));
+
+		assertTrue(JCasUtil.exists(jcas, Token.class));
+		assertEquals("Unbegreiflich", JCasUtil.selectByIndex(jcas, Token.class, 0).getCoveredText());
+		int tokensInSpeech = 0;
+		for (Speech speech : JCasUtil.select(jcas, Speech.class))
+			tokensInSpeech += JCasUtil.selectCovered(Token.class, speech).size();
+		assertEquals(JCasUtil.select(jcas, Token.class).size(), tokensInSpeech);
+		assertFalse(jcas.getViewIterator(D.SOFA_UTTERANCES).hasNext());
+	}
+
 	public static void main(String[] args) throws ResourceInitializationException, UIMAException, IOException {
 		SimplePipeline.runPipeline(
 				CollectionReaderFactory.createReaderDescription(GerDraCorReader.class, TextgridTEIUrlReader.PARAM_INPUT,
@@ -0,0 +1,60 @@
+package de.unistuttgart.quadrama.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+public class TestNameIndex {
+
+	static String[] names = new String[] { "Graf Karl Moor", "Karl", "Franz Moor", "Amalia von Edelreich",
+			"Der alte Moor", "Spiegelberg", "Schweizer", "Grimm", "Razmann", "Schufterle", "Roller", "Kosinsky",
+			"Schwarz", "Hermann", "Daniel", "Pastor Moser", "Ein Pater", "Räuber" };
+
+	@Test
+	public void testFindByToken() {
+		NameIndex<Integer> index = index();
+		for (String query : new String[] { "moor", "Karl", " Franz ", "Pater", "Edelreich", "Räuber", "Amalia von",
+				"Moser." })
+			assertEquals(query, findByToken(query), index.findByToken(query));
+		assertEquals(Integer.valueOf(4), index.findByToken("Moor"));
+		assertNull(index.findByToken("Kosinski"));
+	}
+
+	@Test
+	public void testFindSimilar() {
+		NameIndex<Integer> index = index();
+		for (int d = 0; d < 4; d++)
+			for (String query : new String[] { "Karl", "Karle", "Carl", "Franz Mohr", "Grimm.", "Roler", "Rolle",
+					"Schwarz", "Schweitzer", "Kosinski", "Daniel ", "Räber", "Hans", "", "Graf Carl Mohr" })
+				assertEquals(query + " " + d, findSimilar(query, d), index.findSimilar(query, d));
+		assertNull(index.findSimilar("Kosinski", 0));
+		assertEquals(Integer.valueOf(11), index.findSimilar("Kosinski", 1));
+	}
+
+	static NameIndex<Integer> index() {
+		NameIndex<Integer> index = new NameIndex<Integer>();
+		for (int i = 0; i < names.length; i++)
+			index.add(names[i], i);
+		return index;
+	}
+
+	static Integer findByToken(String token) {
+		Integer r = null;
+		for (int i = 0; i < names.length; i++)
+			if (ArrayUtils.contains(names[i].toLowerCase().split(" +"), token.toLowerCase().trim()))
+				r = i;
+		return r;
+	}
+
+	static Integer findSimilar(String name, int maxDistance) {
+		Integer r = null;
+		for (int i = 0; i < names.length; i++)
+			if (StringUtils.getLevenshteinDistance(name.trim().toLowerCase(),
+					names[i].trim().toLowerCase()) <= maxDistance)
+				r = i;
+		return r;
+	}
+}
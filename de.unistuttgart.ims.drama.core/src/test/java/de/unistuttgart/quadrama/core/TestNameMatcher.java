@@ -0,0 +1,59 @@
+package de.unistuttgart.quadrama.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class TestNameMatcher {
+
+	@Test
+	public void testNameMatcher() {
+		assertEquals(find("Romeo und Julia", "romeo", "Julia"), findRegex("Romeo und Julia", "romeo", "Julia"));
+		assertEquals(2, find("Romeo und Julia", "romeo", "Julia").size());
+
+		// word boundaries
+		assertEquals(0, find("Romeos Julias", "romeo", "Julia").size());
+		assertEquals(find("Romeos Julias", "romeo", "Julia"), findRegex("Romeos Julias", "romeo", "Julia"));
+
+		// overlapping names
+		String text = "Graf Karl und Karl Moor, Moor";
+		assertEquals(findRegex(text, "Karl", "Karl Moor", "Moor", "Graf Karl"),
+				find(text, "Karl", "Karl Moor", "Moor", "Graf Karl"));
+
+		// case folding is restricted to ascii, as in the regular expression
+		text = "ÄNNCHEN und änNCHEN";
+		assertEquals(findRegex(text, "ännchen"), find(text, "ännchen"));
+		assertEquals(1, find(text, "ännchen").size());
+
+		// the same name for two figures
+		assertEquals(2, find("Der Diener", "Diener", "Diener").size());
+	}
+
+	static List<String> find(String text, String... names) {
+		NameMatcher<Integer> matcher = new NameMatcher<Integer>();
+		for (int i = 0; i < names.length; i++)
+			matcher.add(names[i], i);
+		List<String> matches = new ArrayList<String>();
+		matcher.find(text, (begin, end, i) -> matches.add(begin + "-" + end + ":" + i));
+		Collections.sort(matches);
+		return matches;
+	}
+
+	static List<String> findRegex(String text, String... names) {
+		List<String> matches = new ArrayList<String>();
+		for (int i = 0; i < names.length; i++) {
+			Matcher m = Pattern.compile("\\b" + Pattern.quote(names[i]) + "\\b", Pattern.CASE_INSENSITIVE)
+					.matcher(text);
+			while (m.find())
+				matches.add(m.start() + "-" + m.end() + ":" + i);
+		}
+		Collections.sort(matches);
+		return matches;
+	}
+}
@@ -35,7 +35,8 @@ public class TestReadDlinaMetadata {
 				CollectionReaderFactory.createReaderDescription(XmiReader.class, XmiReader.PARAM_SOURCE_LOCATION,
 						"src/test/resources/ReadDlinaMetadata/xmi/*.xmi"),
 				AnalysisEngineFactory.createEngineDescription(ReadDlinaMetadata.class,
-						ReadDlinaMetadata.PARAM_DLINA_DIRECTORY, "src/test/resources/ReadDlinaMetadata/zwischenformat"))
+						ReadDlinaMetadata.PARAM_DLINA_DIRECTORY, "src/test/resources/ReadDlinaMetadata/zwischenformat",
+						ReadDlinaMetadata.PARAM_INDEX_FILE, "target/dlina-index.tsv"))
 				.iterator();
 		JCas jcas;
 		Drama d;
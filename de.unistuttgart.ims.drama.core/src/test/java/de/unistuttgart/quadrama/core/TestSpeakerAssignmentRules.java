@@ -1,14 +1,20 @@
 package de.unistuttgart.quadrama.core;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URL;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.uima.UIMAException;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.factory.ExternalResourceFactory;
 import org.apache.uima.fit.pipeline.SimplePipeline;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
@@ -79,6 +85,46 @@ public class TestSpeakerAssignmentRules {
 		}
 	}
 
+	@Test
+	public void testRulesAsResource() throws Exception {
+		URL url = new File("src/test/resources/SpeakerAssignmentRules/speaker-assignment-mapping.tsv").toURI().toURL();
+		JCas jcas = SimplePipeline.iteratePipeline(
+				CollectionReaderFactory.createReaderDescription(XmiReader.class, XmiReader.PARAM_SOURCE_LOCATION,
+						"src/test/resources/SpeakerAssignmentRules/w3zd.0.xmi", XmiReader.PARAM_LENIENT, true),
+				AnalysisEngineFactory.createEngineDescription(FigureReferenceAnnotator.class),
+				AnalysisEngineFactory.createEngineDescription(SpeakerAssignmentRules.class,
+						SpeakerAssignmentRules.RES_RULE_TABLE, ExternalResourceFactory
+								.createExternalResourceDescription(SpeakerAssignmentRuleTable.class, url)))
+				.iterator().next();
+		for (Speaker speaker : JCasUtil.select(jcas, Speaker.class)) {
+			if (speaker.getCoveredText().equalsIgnoreCase("der capitain"))
+				assertNotNull(speaker.getCoveredText(), speaker.getFigure());
+		}
+		assertSame(SpeakerAssignmentRuleTable.getInstance(url).getRules("w3zd.0"),
+				SpeakerAssignmentRuleTable.getInstance(url).getRules("w3zd.0"));
+	}
+
+	@Test
+	public void testRuleTableReload() throws Exception {
+		File file = File.createTempFile("rules", ".tsv");
+		file.deleteOnExit();
+		FileUtils.writeStringToFile(file, "d1\tA\tFigure A\nd1\tB\tFigure B\n", "UTF-8");
+		SpeakerAssignmentRuleTable table = SpeakerAssignmentRuleTable.getInstance(file.toURI().toURL());
+
+		assertEquals("Figure A", table.getRules("d1").getFigureReference("A"));
+		assertEquals("Figure B", table.getRules("d1").getFigureReference("B"));
+		assertNull(table.getRules("d1").getFigureReference("C"));
+		assertNull(table.getRules("d2"));
+
+		FileUtils.writeStringToFile(file, "d2\tC\tFigure C\n", "UTF-8");
+		file.setLastModified(file.lastModified() + 2000);
+		// the file is not checked again within the check interval
+		assertEquals("Figure A", table.getRules("d1").getFigureReference("A"));
+		table.lastCheck -= SpeakerAssignmentRuleTable.CHECK_INTERVAL;
+		assertNull(table.getRules("d1"));
+		assertEquals("Figure C", table.getRules("d2").getFigureReference("C"));
+	}
+
 	public void testRules3() throws Exception {
 		org.apache.uima.fit.pipeline.JCasIterator iter = SimplePipeline.iteratePipeline(
 				CollectionReaderFactory.createReaderDescription(XmiReader.class, XmiReader.PARAM_SOURCE_LOCATION,
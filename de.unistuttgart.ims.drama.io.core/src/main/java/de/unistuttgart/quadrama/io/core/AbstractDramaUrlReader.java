@@ -1,15 +1,43 @@
 package de.unistuttgart.quadrama.io.core;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.FileReader;
-import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
@@ -36,6 +64,19 @@ import de.unistuttgart.quadrama.io.core.type.XMLElement;
  * <li>TSV File</li>
  * </ul>
  * 
+ * If {@link #PARAM_PREFETCH_DEPTH} is set, upcoming documents are loaded into
+ * memory on background threads while the current one is processed.
+ * 
+ * If {@link #PARAM_SHARD_COUNT} is set, only the documents of one shard of the
+ * collection are read, such that a collection can be split among several
+ * processes or machines.
+ * 
+ * If {@link #PARAM_LARGEST_FIRST} is set, the documents are read in the order
+ * of decreasing size. When the documents are distributed to several threads
+ * (e.g., by a pipeline that hands out each document to the next idle thread),
+ * the largest ones are then started first, and the run does not end with a
+ * single thread processing a large play while the others are idle.
+ * 
  * @author reiterns
  * @since 1.0
  */
@@ -69,34 +110,132 @@ public abstract class AbstractDramaUrlReader extends JCasCollectionReader_ImplBa
 	@ConfigurationParameter(name = PARAM_REMOVE_XML_ANNOTATIONS, mandatory = false)
 	boolean removeXmlAnnotations = false;
 
+	/**
+	 * The number of documents that are loaded in the background, ahead of
+	 * time. If set to 0 (the default), each document is loaded when it is
+	 * needed.
+	 */
+	public static final String PARAM_PREFETCH_DEPTH = "Prefetch Depth";
+
+	/**
+	 * The number of threads that load documents in the background
+	 */
+	public static final String PARAM_PREFETCH_THREADS = "Prefetch Threads";
+
+	/**
+	 * How often loading a document from a http(s) URL is retried
+	 */
+	public static final String PARAM_RETRIES = "Retries";
+
+	/**
+	 * The delay before the first retry, in milliseconds. The delay doubles
+	 * with each retry.
+	 */
+	public static final String PARAM_RETRY_DELAY = "Retry Delay";
+
+	/**
+	 * The connect and read timeout for http(s) URLs, in milliseconds. If set
+	 * to 0, the requests do not time out.
+	 */
+	public static final String PARAM_TIMEOUT = "Timeout";
+
+	/**
+	 * The number of shards into which the collection is split. Each document
+	 * belongs to exactly one shard, which is determined by a hash of its URL,
+	 * or of its file name if reading from a directory. The assignment is
+	 * therefore the same in every run and on every machine, as long as the
+	 * same input is given.
+	 */
+	public static final String PARAM_SHARD_COUNT = "Shard Count";
+
+	/**
+	 * The shard that is read, starting with 0
+	 */
+	public static final String PARAM_SHARD_INDEX = "Shard Index";
+
+	/**
+	 * Whether to read the largest documents first. The size of local files is
+	 * taken from the file system, the size of http(s) URLs from the
+	 * <code>Content-Length</code> of a HEAD request. These requests are sent
+	 * on the {@link #PARAM_PREFETCH_THREADS} threads if prefetching is enabled.
+	 * Documents of unknown size are read last. If reading from a directory, the
+	 * entire directory is listed during initialization.
+	 */
+	public static final String PARAM_LARGEST_FIRST = "Largest First";
+
+	/**
+	 * Local files of at least this size (in bytes) are memory-mapped, smaller
+	 * ones are read into the heap. Setting up and tearing down a mapping is
+	 * more expensive than copying a small file, and mappings are only released
+	 * when the buffer is garbage collected, such that many small mappings
+	 * accumulate. Most plays are well below this size.
+	 */
+	static final long MAP_THRESHOLD = 4L * 1024 * 1024;
+
 	@ConfigurationParameter(name = PARAM_COLLECTION_ID, mandatory = false, defaultValue = "")
 	String collectionId;
 
-	List<URL> urls = new LinkedList<URL>();
+	@ConfigurationParameter(name = PARAM_PREFETCH_DEPTH, mandatory = false, defaultValue = "0")
+	int prefetchDepth = 0;
+
+	@ConfigurationParameter(name = PARAM_PREFETCH_THREADS, mandatory = false, defaultValue = "2")
+	int prefetchThreads = 2;
+
+	@ConfigurationParameter(name = PARAM_RETRIES, mandatory = false, defaultValue = "3")
+	int retries = 3;
+
+	@ConfigurationParameter(name = PARAM_RETRY_DELAY, mandatory = false, defaultValue = "1000")
+	int retryDelay = 1000;
+
+	@ConfigurationParameter(name = PARAM_TIMEOUT, mandatory = false, defaultValue = "30000")
+	int timeout = 30000;
+
+	@ConfigurationParameter(name = PARAM_SHARD_COUNT, mandatory = false, defaultValue = "1")
+	int shardCount = 1;
+
+	@ConfigurationParameter(name = PARAM_SHARD_INDEX, mandatory = false, defaultValue = "0")
+	int shardIndex = 0;
+
+	@ConfigurationParameter(name = PARAM_LARGEST_FIRST, mandatory = false)
+	boolean largestFirst = false;
+
+	List<URL> urls = new ArrayList<URL>();
 	int currentUrlIndex = 0;
 
+	/**
+	 * If reading from a directory, the entries that have not yet been added
+	 * to {@link #urls}
+	 */
+	DirectoryStream<Path> directoryStream = null;
+	Iterator<Path> directoryIterator = null;
+
+	ExecutorService prefetchExecutor = null;
+	LinkedList<Future<ByteBuffer>> prefetched = new LinkedList<Future<ByteBuffer>>();
+	int prefetchUrlIndex = 0;
+
 	@Override
 	public void initialize(UimaContext context) throws ResourceInitializationException {
 		super.initialize(context);
+		if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount)
+			throw new ResourceInitializationException(
+					new IllegalArgumentException("Invalid shard " + shardIndex + " of " + shardCount));
 		File inputFile = new File(input);
 
 		if (inputFile.isDirectory()) {
-			File inputDir = inputFile;
-			File[] files = inputDir.listFiles(new FilenameFilter() {
+			// the directory is listed lazily, see hasUrl()
+			try {
+				directoryStream = Files.newDirectoryStream(inputFile.toPath(), new DirectoryStream.Filter<Path>() {
 
-				@Override
-				public boolean accept(File dir, String name) {
-					return name.endsWith(".xml") || name.endsWith(".tei");
-				}
+					@Override
+					public boolean accept(Path entry) {
+						String name = entry.getFileName().toString();
+						return name.endsWith(".xml") || name.endsWith(".tei");
+					}
 
-			});
-			try {
-				for (File file : files) {
-					urls.add(file.toURI().toURL());
-				}
-			} catch (Exception e) {
+				});
+				directoryIterator = directoryStream.iterator();
+			} catch (IOException e) {
 				throw new ResourceInitializationException(e);
-
 			}
 		} else if (input.endsWith(".xml") || input.endsWith(".tei") || input.startsWith("http")) {
 			try {
@@ -129,11 +268,167 @@ public abstract class AbstractDramaUrlReader extends JCasCollectionReader_ImplBa
 			}
 		}
 
+		// entries of a directory are checked when they are listed
+		for (Iterator<URL> iterator = urls.iterator(); iterator.hasNext();)
+			if (!isInShard(iterator.next().toString()))
+				iterator.remove();
+		if (shardCount > 1)
+			getLogger().log(Level.INFO, "Reading shard " + shardIndex + " of " + shardCount + ".");
+
+		if (prefetchDepth > 0) {
+			prefetchExecutor = Executors.newFixedThreadPool(prefetchThreads, new ThreadFactory() {
+				ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = defaultFactory.newThread(r);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+		if (largestFirst) {
+			try {
+				hasUrl(Integer.MAX_VALUE);
+				sortBySize();
+			} catch (IOException e) {
+				throw new ResourceInitializationException(e);
+			}
+		}
 	}
 
 	@Override
 	public boolean hasNext() throws IOException, CollectionException {
-		return currentUrlIndex < urls.size();
+		return hasUrl(currentUrlIndex);
+	}
+
+	/**
+	 * Checks whether a URL with the given index exists. If reading from a
+	 * directory, entries are added to {@link #urls} as needed.
+	 * 
+	 * @param index
+	 *            The index
+	 * @return True, if the URL exists
+	 * @throws IOException
+	 *             If the directory cannot be read
+	 */
+	protected boolean hasUrl(int index) throws IOException {
+		try {
+			while (index >= urls.size() && directoryIterator != null) {
+				if (directoryIterator.hasNext()) {
+					Path path = directoryIterator.next();
+					if (isInShard(path.getFileName().toString()))
+						urls.add(path.toUri().toURL());
+				} else {
+					closeDirectory();
+				}
+			}
+		} catch (DirectoryIteratorException e) {
+			throw e.getCause();
+		}
+		return index < urls.size();
+	}
+
+	/**
+	 * Checks whether a document belongs to the shard that is read.
+	 * 
+	 * @param key
+	 *            The URL or file name of the document
+	 * @return True, if the document belongs to the shard
+	 */
+	protected boolean isInShard(String key) {
+		if (shardCount <= 1)
+			return true;
+		CRC32 crc = new CRC32();
+		crc.update(key.getBytes(StandardCharsets.UTF_8));
+		return crc.getValue() % shardCount == shardIndex;
+	}
+
+	/**
+	 * Sorts {@link #urls} by decreasing size. The order of documents with the
+	 * same size is kept. If prefetching is enabled, the sizes are determined
+	 * on the prefetch threads.
+	 * 
+	 * @throws IOException
+	 *             If interrupted while waiting for the sizes
+	 */
+	protected void sortBySize() throws IOException {
+		// not using URL as key, because URL.equals() resolves host names
+		final Map<String, Long> sizes = new HashMap<String, Long>();
+		if (prefetchExecutor == null) {
+			for (URL url : urls)
+				sizes.put(url.toString(), size(url));
+		} else {
+			List<Future<Long>> futures = new ArrayList<Future<Long>>(urls.size());
+			for (final URL url : urls)
+				futures.add(prefetchExecutor.submit(new Callable<Long>() {
+					@Override
+					public Long call() {
+						return size(url);
+					}
+				}));
+			for (int i = 0; i < urls.size(); i++) {
+				try {
+					sizes.put(urls.get(i).toString(), futures.get(i).get());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				} catch (ExecutionException e) {
+					throw new IOException(e.getCause());
+				}
+			}
+		}
+		Collections.sort(urls, new Comparator<URL>() {
+			@Override
+			public int compare(URL o1, URL o2) {
+				return Long.compare(sizes.get(o2.toString()), sizes.get(o1.toString()));
+			}
+		});
+	}
+
+	/**
+	 * Determines the size of a document without loading it. For http(s) URLs,
+	 * the request is retried if it fails or the server reports a server error.
+	 * 
+	 * @param url
+	 *            The URL
+	 * @return The size in bytes, or -1 if it cannot be determined
+	 */
+	protected long size(final URL url) {
+		try {
+			if (isFile(url))
+				return Files.size(Paths.get(url.toURI()));
+			if (isHttp(url))
+				return withRetries(url, new IOCallable<Long>() {
+					@Override
+					public Long call() throws IOException {
+						HttpURLConnection urlc = (HttpURLConnection) url.openConnection();
+						urlc.setConnectTimeout(timeout);
+						urlc.setReadTimeout(timeout);
+						urlc.setRequestMethod("HEAD");
+						urlc.setRequestProperty("Accept", "application/xml");
+						try {
+							int status = urlc.getResponseCode();
+							if (status >= 500)
+								throw new IOException("Server returned HTTP response code: " + status);
+							return (status < 300 ? urlc.getContentLengthLong() : -1);
+						} finally {
+							urlc.disconnect();
+						}
+					}
+				});
+		} catch (IOException | URISyntaxException | IllegalArgumentException e) {
+			getLogger().log(Level.FINE, "Could not determine the size of " + url + ": " + e.getMessage());
+		}
+		return -1;
+	}
+
+	private void closeDirectory() throws IOException {
+		if (directoryStream != null)
+			directoryStream.close();
+		directoryStream = null;
+		directoryIterator = null;
 	}
 
 	@Override
@@ -155,13 +450,15 @@ public abstract class AbstractDramaUrlReader extends JCasCollectionReader_ImplBa
 		drama.addToIndexes();
 		jcas.setDocumentLanguage(language);
 
-		if (url.getProtocol().equalsIgnoreCase("http")) {
-			URLConnection urlc = url.openConnection();
-			urlc.setRequestProperty("Accept", "application/xml");
-			getNext(jcas, urlc.getInputStream(), drama);
-		} else {
-			getNext(jcas, url.openStream(), drama);
-
+		InputStream is;
+		if (prefetchExecutor != null)
+			is = new ByteBufferInputStream(nextPrefetched());
+		else
+			is = open(url);
+		try {
+			getNext(jcas, is, drama);
+		} finally {
+			IOUtils.closeQuietly(is);
 		}
 
 		if (removeXmlAnnotations) {
@@ -169,6 +466,184 @@ public abstract class AbstractDramaUrlReader extends JCasCollectionReader_ImplBa
 		}
 	}
 
+	@Override
+	public void close() throws IOException {
+		super.close();
+		if (prefetchExecutor != null)
+			prefetchExecutor.shutdownNow();
+		closeDirectory();
+	}
+
+	/**
+	 * Returns the content of the current URL, and schedules loading of the
+	 * following ones, such that {@link #prefetchDepth} documents are loaded
+	 * in the background.
+	 */
+	protected ByteBuffer nextPrefetched() throws IOException {
+		fillPrefetchQueue();
+		Future<ByteBuffer> future = prefetched.removeFirst();
+		fillPrefetchQueue();
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private void fillPrefetchQueue() throws IOException {
+		while (prefetched.size() < prefetchDepth && hasUrl(prefetchUrlIndex)) {
+			final URL url = urls.get(prefetchUrlIndex++);
+			prefetched.add(prefetchExecutor.submit(new Callable<ByteBuffer>() {
+				@Override
+				public ByteBuffer call() throws IOException {
+					return load(url);
+				}
+			}));
+		}
+	}
+
+	/**
+	 * Reads the entire content of a URL into memory. Large local files are
+	 * memory-mapped, and their pages are loaded. For http(s) URLs, the
+	 * content is requested again if reading fails.
+	 * 
+	 * @param url
+	 *            The URL
+	 * @return The content
+	 * @throws IOException
+	 *             If the content cannot be read
+	 */
+	protected ByteBuffer load(final URL url) throws IOException {
+		if (isFile(url)) {
+			ByteBuffer buffer = readFile(url);
+			if (buffer instanceof MappedByteBuffer)
+				return ((MappedByteBuffer) buffer).load();
+			else if (buffer != null)
+				return buffer;
+		}
+		return withRetries(url, new IOCallable<ByteBuffer>() {
+			@Override
+			public ByteBuffer call() throws IOException {
+				InputStream is = openConnection(url);
+				try {
+					return ByteBuffer.wrap(IOUtils.toByteArray(is));
+				} finally {
+					IOUtils.closeQuietly(is);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Opens a URL. For http(s) URLs, opening the connection is retried if it
+	 * fails.
+	 * 
+	 * @param url
+	 *            The URL
+	 * @return An input stream
+	 * @throws IOException
+	 *             If the URL cannot be opened
+	 */
+	protected InputStream open(final URL url) throws IOException {
+		return withRetries(url, new IOCallable<InputStream>() {
+			@Override
+			public InputStream call() throws IOException {
+				return openConnection(url);
+			}
+		});
+	}
+
+	private InputStream openConnection(URL url) throws IOException {
+		if (isFile(url)) {
+			ByteBuffer buffer = readFile(url);
+			if (buffer != null)
+				return new ByteBufferInputStream(buffer);
+		}
+		if (!isHttp(url))
+			return url.openStream();
+		URLConnection urlc = url.openConnection();
+		urlc.setConnectTimeout(timeout);
+		urlc.setReadTimeout(timeout);
+		urlc.setRequestProperty("Accept", "application/xml");
+		urlc.setRequestProperty("Accept-Encoding", "gzip");
+		InputStream is = urlc.getInputStream();
+		if ("gzip".equalsIgnoreCase(urlc.getContentEncoding()))
+			is = new GZIPInputStream(is);
+		return is;
+	}
+
+	private <T> T withRetries(URL url, IOCallable<T> callable) throws IOException {
+		for (int attempt = 0;; attempt++) {
+			try {
+				return callable.call();
+			} catch (FileNotFoundException e) {
+				// the server reported 404 or 410, no need to ask again
+				throw e;
+			} catch (IOException e) {
+				if (!isHttp(url) || attempt >= retries)
+					throw e;
+				long delay = (long) retryDelay << attempt;
+				getLogger().log(Level.WARNING,
+						"Could not load " + url + " (" + e.getMessage() + "), retrying in " + delay + "ms.");
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e1) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads a local file into memory. Files of at least
+	 * {@link #MAP_THRESHOLD} bytes are mapped, their pages are only loaded
+	 * when accessed.
+	 * 
+	 * @param url
+	 *            A file URL
+	 * @return The content of the file, or null if the file is too large to be
+	 *         mapped at once, or the URL cannot be converted into a path
+	 * @throws IOException
+	 *             If the file cannot be read
+	 */
+	protected static ByteBuffer readFile(URL url) throws IOException {
+		Path path;
+		try {
+			path = Paths.get(url.toURI());
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			return null;
+		}
+		if (Files.size(path) < MAP_THRESHOLD)
+			return ByteBuffer.wrap(Files.readAllBytes(path));
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			if (channel.size() > Integer.MAX_VALUE)
+				return null;
+			// the mapping stays valid after the channel is closed
+			return channel.map(MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			channel.close();
+		}
+	}
+
+	private static boolean isFile(URL url) {
+		return url.getProtocol().equalsIgnoreCase("file");
+	}
+
+	private static boolean isHttp(URL url) {
+		return url.getProtocol().equalsIgnoreCase("http") || url.getProtocol().equalsIgnoreCase("https");
+	}
+
+	private interface IOCallable<T> {
+		T call() throws IOException;
+	}
+
 	public abstract void getNext(JCas jcas, InputStream is, Drama drama) throws IOException, CollectionException;
 
 }
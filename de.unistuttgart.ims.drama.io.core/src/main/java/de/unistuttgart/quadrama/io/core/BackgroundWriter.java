@@ -0,0 +1,159 @@
+package de.unistuttgart.quadrama.io.core;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes text into a file on a separate thread, optionally gzip-compressed.
+ * Text is appended in chunks, each chunk is written as a whole. Writers are
+ * shared: Opening the same file several times (e.g., from several instances
+ * of a pipeline) returns the same writer, and the file is closed when the
+ * last user has closed it.
+ *
+ * @since 1.0.1
+ */
+public class BackgroundWriter {
+
+	/**
+	 * The number of chunks that can be waiting to be written. If the queue is
+	 * full, {@link #append(String)} blocks.
+	 */
+	public static final int QUEUE_CAPACITY = 16;
+
+	static Map<File, BackgroundWriter> openWriters = new HashMap<File, BackgroundWriter>();
+
+	/**
+	 * Marks the end of the queue, compared by identity
+	 */
+	static final String END = new String();
+
+	File file;
+	int users = 0;
+	BlockingQueue<String> queue = new ArrayBlockingQueue<String>(QUEUE_CAPACITY);
+	Thread thread;
+	volatile IOException exception = null;
+
+	/**
+	 * Opens a file for writing. If the file is not yet open, it is created
+	 * (or truncated) and the header is written.
+	 *
+	 * @param file
+	 *            The file
+	 * @param gzip
+	 *            Whether to compress the output. Only used when the file is
+	 *            created.
+	 * @param header
+	 *            The first chunk, may be null. Only used when the file is
+	 *            created.
+	 * @return The writer
+	 * @throws IOException
+	 *             If the file cannot be created
+	 */
+	public static synchronized BackgroundWriter open(File file, boolean gzip, String header) throws IOException {
+		File key = file.getCanonicalFile();
+		BackgroundWriter bw = openWriters.get(key);
+		if (bw == null) {
+			OutputStream os = new BufferedOutputStream(new FileOutputStream(key));
+			if (gzip)
+				os = new GZIPOutputStream(os, 65536);
+			bw = new BackgroundWriter(key, new OutputStreamWriter(os, StandardCharsets.UTF_8));
+			openWriters.put(key, bw);
+			if (header != null)
+				bw.append(header);
+		}
+		bw.users++;
+		return bw;
+	}
+
+	private BackgroundWriter(File file, final Writer writer) {
+		this.file = file;
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					String chunk;
+					while ((chunk = queue.take()) != END) {
+						if (exception == null)
+							try {
+								writer.write(chunk);
+							} catch (IOException e) {
+								exception = e;
+							}
+					}
+				} catch (InterruptedException e) {
+					exception = new InterruptedIOException();
+				} finally {
+					try {
+						writer.close();
+					} catch (IOException e) {
+						if (exception == null)
+							exception = e;
+					}
+				}
+			}
+		}, "BackgroundWriter " + file.getName());
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Schedules a chunk of text for writing
+	 *
+	 * @param chunk
+	 *            The text
+	 * @throws IOException
+	 *             If writing a previous chunk has failed
+	 */
+	public void append(String chunk) throws IOException {
+		if (exception != null)
+			throw exception;
+		try {
+			queue.put(chunk);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+
+	/**
+	 * Closes the writer for the caller. If this is the last user, the
+	 * remaining chunks are written and the file is closed.
+	 *
+	 * @throws IOException
+	 *             If writing has failed
+	 */
+	public void close() throws IOException {
+		synchronized (BackgroundWriter.class) {
+			if (users == 0)
+				throw new IllegalStateException(file + " has already been closed.");
+			if (--users > 0)
+				return;
+			openWriters.remove(file);
+		}
+		try {
+			queue.put(END);
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		if (exception != null)
+			throw exception;
+	}
+
+	public File getFile() {
+		return file;
+	}
+}
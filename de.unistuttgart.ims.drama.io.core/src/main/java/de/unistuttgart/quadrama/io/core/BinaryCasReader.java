@@ -0,0 +1,37 @@
+package de.unistuttgart.quadrama.io.core;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.CASRuntimeException;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.collection.CollectionException;
+
+import de.tudarmstadt.ukp.dkpro.core.api.io.ResourceCollectionReaderBase;
+import de.tudarmstadt.ukp.dkpro.core.api.resources.CompressionUtils;
+
+/**
+ * Reads files written by {@link ExportAsBinaryCas}. The type system of the
+ * reading pipeline needs to be the same as the one of the writing pipeline.
+ *
+ * @since 1.0.1
+ */
+public class BinaryCasReader extends ResourceCollectionReaderBase {
+
+	@Override
+	public void getNext(CAS aCAS) throws IOException, CollectionException {
+		Resource res = nextFile();
+		InputStream is = null;
+		try {
+			is = new BufferedInputStream(CompressionUtils.getInputStream(res.getLocation(), res.getInputStream()));
+			Serialization.deserializeCAS(aCAS, is);
+		} catch (CASRuntimeException e) {
+			throw new IOException(e);
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+}
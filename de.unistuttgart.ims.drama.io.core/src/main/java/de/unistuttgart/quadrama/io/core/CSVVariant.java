@@ -1,28 +1,30 @@
 package de.unistuttgart.quadrama.io.core;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.csv.CSVPrinter;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.StringArray;
 import org.apache.uima.jcas.tcas.Annotation;
 
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import de.unistuttgart.ims.drama.api.Act;
 import de.unistuttgart.ims.drama.api.Author;
 import de.unistuttgart.ims.drama.api.CastFigure;
-import de.unistuttgart.ims.drama.api.DiscourseEntity;
 import de.unistuttgart.ims.drama.api.Drama;
 import de.unistuttgart.ims.drama.api.FigureMention;
 import de.unistuttgart.ims.drama.api.Scene;
 import de.unistuttgart.ims.drama.api.Speaker;
 import de.unistuttgart.ims.drama.api.Translator;
 import de.unistuttgart.ims.drama.api.Utterance;
-import de.unistuttgart.ims.drama.util.DramaUtil;
 
 public enum CSVVariant {
 	/**
@@ -52,26 +54,71 @@ public enum CSVVariant {
 	 *             If an I/O error occurs
 	 */
 	public void header(CSVPrinter p) throws IOException {
+		header(asRowPrinter(p));
+	}
+
+	public void convert(JCas jcas, CSVPrinter p) throws IOException {
+		convert(jcas, asRowPrinter(p));
+	}
+
+	/**
+	 * Prints a record representing the header onto p
+	 * 
+	 * @param p
+	 *            The target
+	 * @throws IOException
+	 *             If an I/O error occurs
+	 * @since 1.0.1
+	 */
+	public void header(RowPrinter p) throws IOException {
 		switch (this) {
 		case Segments:
-			p.printRecord("corpus", "drama", "begin.Act", "end.Act", "Number.Act", "begin.Scene", "end.Scene",
+			printRecord(p, "corpus", "drama", "begin.Act", "end.Act", "Number.Act", "begin.Scene", "end.Scene",
 					"Number.Scene");
 			break;
 		case Metadata:
-			p.printRecord("corpus", "drama", "documentTitle", "language", "Name", "Pnd", "Translator.Name",
+			printRecord(p, "corpus", "drama", "documentTitle", "language", "Name", "Pnd", "Translator.Name",
 					"Translator.Pnd", "Date.Written", "Date.Printed", "Date.Premiere", "Date.Translation");
 			break;
 		case Characters:
-			p.printRecord("corpus", "drama", "figure_surface", "figure_id", "Gender", "Age");
+			printRecord(p, "corpus", "drama", "figure_surface", "figure_id", "Gender", "Age");
 			break;
 		default:
-			p.printRecord("corpus", "drama", "begin", "end", "Speaker.figure_surface", "Speaker.figure_id",
+			printRecord(p, "corpus", "drama", "begin", "end", "Speaker.figure_surface", "Speaker.figure_id",
 					"Token.surface", "Token.pos", "Token.lemma", "length", "Mentioned.figure_surface",
 					"Mentioned.figure_id");
 		}
 	}
 
-	public void convert(JCas jcas, CSVPrinter p) throws IOException {
+	/**
+	 * Returns the types of the columns, in the order of
+	 * {@link #header(RowPrinter)}: {@link Integer} for numbers and
+	 * {@link String} for everything else. The types are the same for all
+	 * documents, also if a column only contains missing values.
+	 * 
+	 * @return The column types
+	 * @since 1.0.1
+	 */
+	public Class<?>[] getColumnTypes() {
+		switch (this) {
+		case Segments:
+			return new Class<?>[] { String.class, String.class, Integer.class, Integer.class, Integer.class,
+					Integer.class, Integer.class, Integer.class };
+		case Metadata:
+			return new Class<?>[] { String.class, String.class, String.class, String.class, String.class,
+					String.class, String.class, String.class, Integer.class, Integer.class, Integer.class,
+					Integer.class };
+		case Characters:
+			return new Class<?>[] { String.class, String.class, String.class, String.class, String.class,
+					String.class };
+		default:
+			return new Class<?>[] { String.class, String.class, Integer.class, Integer.class, String.class,
+					String.class, String.class, String.class, String.class, Integer.class, String.class,
+					String.class };
+		}
+	}
+
+	public void convert(JCas jcas, RowPrinter p) throws IOException {
 		switch (this) {
 		case Characters:
 			this.convertCharacters(jcas, p);
@@ -88,143 +135,226 @@ public enum CSVVariant {
 
 	}
 
-	private void convertCharacters(JCas jcas, CSVPrinter p) throws IOException {
+	private void convertCharacters(JCas jcas, RowPrinter p) throws IOException {
 		Drama drama = JCasUtil.selectSingle(jcas, Drama.class);
 		for (CastFigure cf : JCasUtil.select(jcas, CastFigure.class)) {
-			p.printRecord(drama.getCollectionId(), drama.getDocumentId(), cf.getNames(0), cf.getXmlId(0),
+			printRecord(p, drama.getCollectionId(), drama.getDocumentId(), cf.getNames(0), cf.getXmlId(0),
 					cf.getGender(), cf.getAge());
 		}
 	}
 
-	private void convertMeta(JCas jcas, CSVPrinter p) throws IOException {
+	private void convertMeta(JCas jcas, RowPrinter p) throws IOException {
 		Drama drama = JCasUtil.selectSingle(jcas, Drama.class);
 		for (Author author : JCasUtil.select(jcas, Author.class)) {
 			if (JCasUtil.exists(jcas, Translator.class))
 				for (Translator transl : JCasUtil.select(jcas, Translator.class)) {
-					p.printRecord(drama.getCollectionId(), drama.getDocumentId(), drama.getDocumentTitle(),
+					printRecord(p, drama.getCollectionId(), drama.getDocumentId(), drama.getDocumentTitle(),
 							drama.getLanguage(), author.getName(), author.getPnd(), transl.getName(), transl.getPnd(),
 							drama.getDateWritten(), drama.getDatePrinted(), drama.getDatePremiere(),
 							drama.getDateTranslation());
 				}
 			else {
-				p.printRecord(drama.getCollectionId(), drama.getDocumentId(), drama.getDocumentTitle(),
+				printRecord(p, drama.getCollectionId(), drama.getDocumentId(), drama.getDocumentTitle(),
 						drama.getLanguage(), author.getName(), author.getPnd(), null, null, drama.getDateWritten(),
 						drama.getDatePrinted(), drama.getDatePremiere(), drama.getDateTranslation());
 			}
 		}
 	}
 
-	private void convertSegments(JCas jcas, CSVPrinter p) throws IOException {
+	private void convertSegments(JCas jcas, RowPrinter p) throws IOException {
 		Drama drama = JCasUtil.selectSingle(jcas, Drama.class);
 		if (JCasUtil.exists(jcas, Act.class)) {
 			for (Act act : JCasUtil.select(jcas, Act.class)) {
 				Collection<Scene> scenes = JCasUtil.selectCovered(Scene.class, act);
 				if (scenes.isEmpty()) {
-					p.printRecord(drama.getCollectionId(), drama.getDocumentId(), act.getBegin(), act.getEnd(),
+					printRecord(p, drama.getCollectionId(), drama.getDocumentId(), act.getBegin(), act.getEnd(),
 							act.getNumber(), null, null, null);
 
 				} else
 					for (Scene scene : scenes) {
-						p.printRecord(drama.getCollectionId(), drama.getDocumentId(), act.getBegin(), act.getEnd(),
+						printRecord(p, drama.getCollectionId(), drama.getDocumentId(), act.getBegin(), act.getEnd(),
 								act.getNumber(), scene.getBegin(), scene.getEnd(), scene.getNumber());
 					}
 			}
 		} else {
 			Collection<Scene> scenes = JCasUtil.select(jcas, Scene.class);
 			if (scenes.isEmpty()) {
-				p.printRecord(drama.getCollectionId(), drama.getDocumentId(), null, null, null, null, null, null);
+				printRecord(p, drama.getCollectionId(), drama.getDocumentId(), null, null, null, null, null, null);
 
 			} else
 				for (Scene scene : scenes) {
-					p.printRecord(drama.getCollectionId(), drama.getDocumentId(), null, null, null, scene.getBegin(),
+					printRecord(p, drama.getCollectionId(), drama.getDocumentId(), null, null, null, scene.getBegin(),
 							scene.getEnd(), scene.getNumber());
 				}
 		}
 	}
 
-	private void convertUtterancesWithTokens(JCas jcas, CSVPrinter p) throws IOException {
-		Map<Token, Collection<FigureMention>> mentionMap = JCasUtil.indexCovering(jcas, Token.class,
-				FigureMention.class);
+	/**
+	 * Writes one row for each token of each utterance, repeated for each cast
+	 * figure the speakers of the utterance refer to. Tokens, speakers and
+	 * mentions are visited in a single sweep in offset order, the extra memory
+	 * needed is therefore bounded by the size of a single utterance. Utterances
+	 * are expected not to overlap.
+	 */
+	private void convertUtterancesWithTokens(JCas jcas, RowPrinter p) throws IOException {
 		Drama drama = JCasUtil.selectSingle(jcas, Drama.class);
-		int length = JCasUtil.select(jcas, Token.class).size();
-		Set<FigureMention> used = new HashSet<FigureMention>();
+		int length = jcas.getAnnotationIndex(Token.type).size();
+
+		Sweep<Token> tokenSweep = new Sweep<Token>(JCasUtil.iterator(jcas, Token.class));
+		Sweep<Speaker> speakerSweep = new Sweep<Speaker>(JCasUtil.iterator(jcas, Speaker.class));
+		MentionWindow mentionWindow = new MentionWindow(JCasUtil.iterator(jcas, FigureMention.class));
+
+		List<Token> tokens = new ArrayList<Token>();
+		List<Speaker> speakers = new ArrayList<Speaker>();
+		List<String[]> mentionCells = new ArrayList<String[]>();
 		for (Utterance utterance : JCasUtil.select(jcas, Utterance.class)) {
-			for (Speaker speaker : DramaUtil.getSpeakers(utterance)) {
+			tokenSweep.covered(utterance, tokens);
+			speakerSweep.covered(utterance, speakers);
+
+			// a mention is only printed once, i.e., in the rows for the first
+			// cast figure
+			boolean first = true;
+			for (Speaker speaker : speakers) {
+				if (speaker.getCastFigure() == null)
+					continue;
 				for (int i = 0; i < speaker.getCastFigure().size(); i++) {
-					for (Token token : JCasUtil.selectCovered(Token.class, utterance)) {
+					CastFigure cf = speaker.getCastFigure(i);
+					if (first) {
+						mentionCells.clear();
+						for (Token token : tokens)
+							mentionCells.add(mentionWindow.getMentionedFigure(token));
+					}
+					for (int j = 0; j < tokens.size(); j++) {
+						Token token = tokens.get(j);
 						p.print(drama.getCollectionId());
 						p.print(drama.getDocumentId());
 						p.print(utterance.getBegin());
 						p.print(utterance.getEnd());
-						try {
-							p.print(speaker.getCastFigure(i).getNames(0));
-						} catch (Exception e) {
-							p.print(null);
-						}
-						try {
-							p.print(speaker.getCastFigure(i).getXmlId(0));
-						} catch (Exception e) {
-							p.print(null);
-						}
+						p.print(cf == null ? null : getFirst(cf.getNames()));
+						p.print(cf == null ? null : getFirst(cf.getXmlId()));
 						p.print(token.getCoveredText());
 						p.print(token.getPos().getPosValue());
 						p.print(token.getLemma().getValue());
 						p.print(length);
-						if (mentionMap.containsKey(token)) {
-							FigureMention fm = selectLongest(mentionMap.get(token));
-							if (used.contains(fm) || fm.getEntity() == null) {
-								p.print(null);
-								p.print(null);
-							} else {
-								DiscourseEntity de = fm.getEntity(0);
-								CastFigure cf = null;
-								if (de instanceof CastFigure) {
-									cf = (CastFigure) de;
-								}
-								try {
-									p.print(cf == null ? null : cf.getNames(0));
-								} catch (Exception e) {
-									p.print(null);
-								}
-								try {
-									p.print(cf == null ? null : cf.getXmlId(0));
-								} catch (Exception e) {
-									p.print(null);
-								}
-								used.add(fm);
-							}
-						} else {
-							p.print(null);
-							p.print(null);
-						}
+						String[] mention = (first ? mentionCells.get(j) : NO_MENTION);
+						p.print(mention[0]);
+						p.print(mention[1]);
 						p.println();
 					}
+					first = false;
 				}
 			}
 		}
 	}
 
+	private static final String[] NO_MENTION = new String[2];
+
+	private static void printRecord(RowPrinter p, Object... values) throws IOException {
+		for (Object value : values)
+			p.print(value);
+		p.println();
+	}
+
+	private static RowPrinter asRowPrinter(final CSVPrinter p) {
+		return new RowPrinter() {
+			@Override
+			public void print(Object value) throws IOException {
+				p.print(value);
+			}
+
+			@Override
+			public void println() throws IOException {
+				p.println();
+			}
+		};
+	}
+
+	private static String getFirst(StringArray arr) {
+		if (arr == null || arr.size() == 0)
+			return null;
+		return arr.get(0);
+	}
+
 	/**
-	 * This function returns the longest from a given collection of annotations.
-	 * Length measured as <code>end - begin</code>.
-	 * 
-	 * @param coll
-	 *            The annotation collection
-	 * @return The longest of the annotation.
+	 * Iterates over annotations in offset order and collects those covered by
+	 * (non-overlapping) covering annotations that are passed in order.
 	 */
-	private <T extends Annotation> T selectLongest(Collection<T> coll) {
-		int l = -1;
-		T fm = null;
-		for (T ment : coll) {
-			int cl = ment.getEnd() - ment.getBegin();
-			if (cl > l) {
-				l = cl;
-				fm = ment;
+	private static class Sweep<T extends Annotation> {
+		Iterator<T> iterator;
+		T current;
+
+		Sweep(Iterator<T> iterator) {
+			this.iterator = iterator;
+			this.current = (iterator.hasNext() ? iterator.next() : null);
+		}
+
+		void covered(Annotation covering, List<T> target) {
+			target.clear();
+			while (current != null && current.getBegin() < covering.getBegin())
+				advance();
+			while (current != null && current.getEnd() <= covering.getEnd()) {
+				target.add(current);
+				advance();
 			}
 		}
-		if (fm == null)
-			return coll.iterator().next();
-		else
-			return fm;
+
+		void advance() {
+			current = (iterator.hasNext() ? iterator.next() : null);
+		}
+	}
+
+	/**
+	 * Keeps track of the figure mentions that may cover the current token. The
+	 * tokens need to be passed in offset order.
+	 */
+	private static class MentionWindow {
+		Iterator<FigureMention> iterator;
+		FigureMention next;
+		/**
+		 * The mentions that have started, in index order
+		 */
+		List<FigureMention> active = new LinkedList<FigureMention>();
+		/**
+		 * The active mentions that have already been printed
+		 */
+		Set<FigureMention> used = new HashSet<FigureMention>();
+
+		MentionWindow(Iterator<FigureMention> iterator) {
+			this.iterator = iterator;
+			this.next = (iterator.hasNext() ? iterator.next() : null);
+		}
+
+		/**
+		 * Determines the longest mention covering the token and returns the
+		 * name and id of the figure it refers to. If the mention has been
+		 * printed before, or there is none, an array of nulls is returned.
+		 */
+		String[] getMentionedFigure(Token token) {
+			while (next != null && next.getBegin() <= token.getBegin()) {
+				active.add(next);
+				next = (iterator.hasNext() ? iterator.next() : null);
+			}
+
+			FigureMention fm = null;
+			for (Iterator<FigureMention> iter = active.iterator(); iter.hasNext();) {
+				FigureMention ment = iter.next();
+				if (ment.getEnd() < token.getBegin()) {
+					// cannot cover this or any following token
+					iter.remove();
+					used.remove(ment);
+				} else if (ment.getEnd() >= token.getEnd()
+						&& (fm == null || ment.getEnd() - ment.getBegin() > fm.getEnd() - fm.getBegin())) {
+					fm = ment;
+				}
+			}
+
+			if (fm == null || used.contains(fm) || fm.getEntity() == null)
+				return NO_MENTION;
+			used.add(fm);
+			if (fm.getEntity().size() == 0 || !(fm.getEntity(0) instanceof CastFigure))
+				return NO_MENTION;
+			CastFigure cf = (CastFigure) fm.getEntity(0);
+			return new String[] { getFirst(cf.getNames()), getFirst(cf.getXmlId()) };
+		}
 	}
 }
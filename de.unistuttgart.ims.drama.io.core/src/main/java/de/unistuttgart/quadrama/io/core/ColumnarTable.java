@@ -0,0 +1,252 @@
+package de.unistuttgart.quadrama.io.core;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects a table row by row and writes it in a simple binary, column
+ * oriented format. The first row is taken as the header and gives the column
+ * names. The column types are given when the table is created, e.g., from
+ * {@link CSVVariant#getColumnTypes()}, such that a column has the same type in
+ * the files of all documents, even if it only contains missing values in some
+ * of them. {@link Integer} columns are stored as integer columns, all other
+ * columns as dictionary-encoded strings.
+ *
+ * <p>
+ * The format is designed to be memory-mapped and read column by column, e.g.,
+ * with <code>numpy.frombuffer()</code> in Python or <code>readBin()</code> in
+ * R. All numbers are little-endian, all strings are UTF-8, and each section
+ * starts at an offset divisible by 8.
+ * </p>
+ *
+ * <pre>
+ * header      magic "QDCOLS01" (8 bytes), rows (int32), columns (int32)
+ * directory   per column: type (int32, 0 = int, 1 = string),
+ *             dictionary size (int32), name offset (int64),
+ *             data offset (int64), dictionary offset (int64)
+ * name        length in bytes (int32), bytes
+ * data        one int32 per row: the value, or the dictionary code
+ * dictionary  (dictionary size + 1) int32 offsets relative to the end of the
+ *             offsets, followed by the bytes of all entries
+ * </pre>
+ *
+ * Missing values are stored as {@value #NULL_INT} in integer columns (which
+ * is R's <code>NA_integer_</code>), and as {@value #NULL_CODE} in string
+ * columns.
+ *
+ * @since 1.0.1
+ */
+public class ColumnarTable implements RowPrinter {
+
+	public static final String MAGIC = "QDCOLS01";
+
+	public static final int TYPE_INT = 0;
+
+	public static final int TYPE_STRING = 1;
+
+	public static final int NULL_INT = Integer.MIN_VALUE;
+
+	public static final int NULL_CODE = -1;
+
+	Class<?>[] types;
+	List<String> names = null;
+	List<List<Object>> columns = new ArrayList<List<Object>>();
+	List<Object> currentRow = new ArrayList<Object>();
+
+	/**
+	 * @param types
+	 *            The type of each column, {@link Integer} or {@link String}
+	 */
+	public ColumnarTable(Class<?>... types) {
+		this.types = types;
+	}
+
+	@Override
+	public void print(Object value) {
+		currentRow.add(value);
+	}
+
+	@Override
+	public void println() {
+		if (names == null) {
+			if (currentRow.size() != types.length)
+				throw new IllegalStateException(
+						"Header has " + currentRow.size() + " cells, but there are " + types.length + " column types.");
+			names = new ArrayList<String>(currentRow.size());
+			for (Object name : currentRow) {
+				names.add(String.valueOf(name));
+				columns.add(new ArrayList<Object>());
+			}
+		} else {
+			if (currentRow.size() != names.size())
+				throw new IllegalStateException(
+						"Row has " + currentRow.size() + " cells, but there are " + names.size() + " columns.");
+			for (int i = 0; i < currentRow.size(); i++) {
+				Object value = currentRow.get(i);
+				if (types[i] == Integer.class && value != null && !(value instanceof Integer))
+					throw new IllegalStateException(
+							"Column " + names.get(i) + " holds integers, but the value is " + value + ".");
+				columns.get(i).add(value);
+			}
+		}
+		currentRow.clear();
+	}
+
+	/**
+	 * @return The number of rows, not counting the header
+	 */
+	public int getRowCount() {
+		return (columns.isEmpty() ? 0 : columns.get(0).size());
+	}
+
+	/**
+	 * Writes the table. The stream is not closed.
+	 *
+	 * @param os
+	 *            The target
+	 * @throws IOException
+	 *             If an I/O error occurs
+	 */
+	public void write(OutputStream os) throws IOException {
+		if (names == null)
+			throw new IllegalStateException("No header has been printed.");
+		int rows = getRowCount();
+		Column[] encoded = new Column[names.size()];
+
+		// compute the layout
+		long position = MAGIC.length() + 8 + 32 * encoded.length;
+		for (int c = 0; c < encoded.length; c++) {
+			Column column = new Column(names.get(c), types[c] == Integer.class ? TYPE_INT : TYPE_STRING,
+					columns.get(c));
+			column.nameOffset = position;
+			position = align(position + 4 + column.name.length);
+			column.dataOffset = position;
+			position = align(position + 4L * rows);
+			if (column.type == TYPE_STRING) {
+				column.dictionaryOffset = position;
+				position = align(position + 4L * (column.dictionary.size() + 1) + column.dictionaryLength);
+			}
+			encoded[c] = column;
+		}
+
+		LittleEndianOutput out = new LittleEndianOutput(os);
+		out.write(MAGIC.getBytes(StandardCharsets.US_ASCII));
+		out.writeInt(rows);
+		out.writeInt(encoded.length);
+		for (Column column : encoded) {
+			out.writeInt(column.type);
+			out.writeInt(column.dictionary.size());
+			out.writeLong(column.nameOffset);
+			out.writeLong(column.dataOffset);
+			out.writeLong(column.dictionaryOffset);
+		}
+		for (Column column : encoded) {
+			out.padTo(column.nameOffset);
+			out.writeInt(column.name.length);
+			out.write(column.name);
+			out.padTo(column.dataOffset);
+			for (int value : column.data)
+				out.writeInt(value);
+			if (column.type == TYPE_STRING) {
+				out.padTo(column.dictionaryOffset);
+				int offset = 0;
+				out.writeInt(offset);
+				for (byte[] entry : column.dictionary) {
+					offset += entry.length;
+					out.writeInt(offset);
+				}
+				for (byte[] entry : column.dictionary)
+					out.write(entry);
+			}
+		}
+		out.padTo(position);
+		out.flush();
+	}
+
+	private static long align(long position) {
+		return (position + 7) & ~7L;
+	}
+
+	/**
+	 * A single column, encoded for writing
+	 */
+	private static class Column {
+		byte[] name;
+		int type;
+		int[] data;
+		List<byte[]> dictionary = new ArrayList<byte[]>();
+		long dictionaryLength = 0;
+		long nameOffset, dataOffset, dictionaryOffset;
+
+		Column(String name, int type, List<Object> values) {
+			this.name = name.getBytes(StandardCharsets.UTF_8);
+			this.type = type;
+
+			data = new int[values.size()];
+			Map<String, Integer> codes = new HashMap<String, Integer>();
+			for (int i = 0; i < data.length; i++) {
+				Object value = values.get(i);
+				if (value == null) {
+					data[i] = (type == TYPE_INT ? NULL_INT : NULL_CODE);
+				} else if (type == TYPE_INT) {
+					data[i] = (Integer) value;
+				} else {
+					String s = String.valueOf(value);
+					Integer code = codes.get(s);
+					if (code == null) {
+						code = dictionary.size();
+						codes.put(s, code);
+						byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+						dictionary.add(bytes);
+						dictionaryLength += bytes.length;
+					}
+					data[i] = code;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes little-endian numbers and keeps track of the position
+	 */
+	private static class LittleEndianOutput {
+		DataOutputStream out;
+		long position = 0;
+
+		LittleEndianOutput(OutputStream os) {
+			out = new DataOutputStream(os);
+		}
+
+		void write(byte[] bytes) throws IOException {
+			out.write(bytes);
+			position += bytes.length;
+		}
+
+		void writeInt(int i) throws IOException {
+			out.writeInt(Integer.reverseBytes(i));
+			position += 4;
+		}
+
+		void writeLong(long l) throws IOException {
+			out.writeLong(Long.reverseBytes(l));
+			position += 8;
+		}
+
+		void padTo(long target) throws IOException {
+			while (position < target) {
+				out.write(0);
+				position++;
+			}
+		}
+
+		void flush() throws IOException {
+			out.flush();
+		}
+	}
+}
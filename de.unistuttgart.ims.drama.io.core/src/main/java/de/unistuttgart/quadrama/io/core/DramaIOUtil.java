@@ -2,6 +2,7 @@ package de.unistuttgart.quadrama.io.core;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
 import org.apache.uima.fit.factory.AnnotationFactory;
@@ -70,4 +71,71 @@ public class DramaIOUtil {
 		return AnnotationFactory.createAnnotation(jcas, begin, end, annoClass);
 	}
 
+	/**
+	 * Creates an annotation of type <code>annoClass</code> for each element
+	 * matching <code>cssSelector</code>. In contrast to
+	 * {@link #select2Annotation(JCas, Element, Map, String, Class, Annotation)},
+	 * the {@link XMLElement} annotations are looked up by element identity,
+	 * e.g., in the map created by {@link ElementMapVisitor}.
+	 */
+	public static <T extends Annotation> Collection<T> select2Annotation(JCas jcas, Element rootElement,
+			IdentityHashMap<Element, XMLElement> elementMap, String cssSelector, Class<T> annoClass,
+			Annotation coveringAnnotation) {
+		return select2Annotation(jcas, rootElement, elementMap, cssSelector, annoClass, coveringAnnotation, null);
+	}
+
+	/**
+	 * Like {@link #select2Annotation(JCas, Element, IdentityHashMap, String, Class, Annotation)},
+	 * and calls the <code>callback</code> on each new annotation.
+	 */
+	public static <T extends Annotation> Collection<T> select2Annotation(JCas jcas, Element rootElement,
+			IdentityHashMap<Element, XMLElement> elementMap, String cssSelector, Class<T> annoClass,
+			Annotation coveringAnnotation, Select2AnnotationCallback<T> callback) {
+		HashSet<T> set = new HashSet<T>();
+		Elements elms = rootElement.select(cssSelector);
+		for (Element elm : elms) {
+			XMLElement hAnno = elementMap.get(elm);
+			if (elm.hasText() || elm.childNodeSize() > 0) {
+				if (coveringAnnotation == null || (coveringAnnotation.getBegin() <= hAnno.getBegin()
+						&& coveringAnnotation.getEnd() >= hAnno.getEnd())) {
+					T annotation = AnnotationFactory.createAnnotation(jcas, hAnno.getBegin(), hAnno.getEnd(),
+							annoClass);
+					if (callback != null)
+						callback.call(annotation, elm);
+					set.add(annotation);
+				}
+			}
+		}
+		return set;
+	}
+
+	/**
+	 * Creates an annotation of type <code>annoClass</code> from the beginning
+	 * of the elements matching <code>beginCssSelector</code> to the end of the
+	 * elements matching <code>endCssSelector</code>. The {@link XMLElement}
+	 * annotations are looked up by element identity, e.g., in the map created
+	 * by {@link ElementMapVisitor}.
+	 */
+	public static <T extends Annotation> T selectRange2Annotation(JCas jcas, Element rootElement,
+			IdentityHashMap<Element, XMLElement> elementMap, String beginCssSelector, String endCssSelector,
+			Class<T> annoClass) {
+		Elements elms = rootElement.select(beginCssSelector);
+		int begin = jcas.size();
+		for (Element elm : elms) {
+			XMLElement hAnno = elementMap.get(elm);
+			if (hAnno.getBegin() < begin)
+				begin = hAnno.getBegin();
+		}
+
+		elms = rootElement.select(endCssSelector);
+		int end = 0;
+		for (Element elm : elms) {
+			XMLElement hAnno = elementMap.get(elm);
+			if (hAnno.getEnd() > end)
+				end = hAnno.getEnd();
+		}
+
+		return AnnotationFactory.createAnnotation(jcas, begin, end, annoClass);
+	}
+
 }
@@ -0,0 +1,48 @@
+package de.unistuttgart.quadrama.io.core;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import org.apache.uima.jcas.JCas;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+
+import de.unistuttgart.ims.uima.io.xml.Visitor;
+import de.unistuttgart.ims.uima.io.xml.type.XMLElement;
+
+/**
+ * A {@link Visitor} that maps each element onto its {@link XMLElement}
+ * annotation by identity. The map returned by {@link #getAnnotationMap()},
+ * whose keys are the CSS selectors of the elements, is not filled, because
+ * computing the unique selector of each element requires walking through its
+ * ancestors and siblings. Use {@link #getElementMap()} and the corresponding
+ * methods in {@link DramaIOUtil} instead.
+ *
+ * @since 1.0.1
+ */
+public class ElementMapVisitor extends Visitor {
+
+	protected IdentityHashMap<Element, XMLElement> elementMap = new IdentityHashMap<Element, XMLElement>();
+
+	public ElementMapVisitor(JCas jcas) {
+		super(jcas);
+	}
+
+	@Override
+	public void tail(Node node, int depth) {
+		if (node.getClass().equals(Element.class)) {
+			Element elm = (Element) node;
+			XMLElement anno = builder.add(beginMap.get(node), XMLElement.class);
+			anno.setTag(elm.tagName());
+			anno.setId(elm.id());
+			anno.setCls(elm.className());
+			elementMap.put(elm, anno);
+			if (elm.isBlock() || Arrays.asList(blockElements).contains(elm.tagName()))
+				builder.add("\n");
+		}
+	}
+
+	public IdentityHashMap<Element, XMLElement> getElementMap() {
+		return elementMap;
+	}
+}
@@ -0,0 +1,110 @@
+package de.unistuttgart.quadrama.io.core;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+
+/**
+ * This exporter generates the same tables as {@link ExportAsCSV}, but writes
+ * one file per variant for the entire collection, instead of one file per
+ * document and variant. The header is written once, the rows of each drama
+ * are appended as a block. Writing (and compression) happens on a background
+ * thread, see {@link BackgroundWriter}. Several instances of this component
+ * with the same output directory (e.g., in parallel pipelines) share the
+ * files. The files are complete after
+ * {@link #collectionProcessComplete()} has been called.
+ * 
+ * @since 1.0.1
+ */
+public class ExportAsAggregatedCSV extends AbstractDramaConsumer {
+
+	/**
+	 * The CSV variants to generate. See
+	 * {@link de.unistuttgart.quadrama.io.core.CSVVariant} for details.
+	 */
+	public static final String PARAM_CSV_VARIANT_NAMES = "CSV Variant Names";
+
+	/**
+	 * The exact format. See {@link org.apache.commons.csv.CSVFormat} for
+	 * details.
+	 */
+	public static final String PARAM_CSV_FORMAT_NAME = "CSV Format Name";
+
+	/**
+	 * If set to true, the files are gzip-compressed.
+	 */
+	public static final String PARAM_COMPRESS = "Compress";
+
+	@ConfigurationParameter(name = PARAM_CSV_VARIANT_NAMES, defaultValue = { "UtterancesWithTokens", "Segments",
+			"Metadata", "Characters" })
+	String[] csvVariantNames;
+
+	@ConfigurationParameter(name = PARAM_CSV_FORMAT_NAME, defaultValue = "Default")
+	String csvFormatName = "Default";
+
+	@ConfigurationParameter(name = PARAM_COMPRESS, defaultValue = "false")
+	boolean compress = false;
+
+	CSVVariant[] csvVariants;
+	CSVFormat csvFormat;
+	BackgroundWriter[] writers;
+
+	@Override
+	public void initialize(final UimaContext context) throws ResourceInitializationException {
+		super.initialize(context);
+		csvFormat = CSVFormat.valueOf(csvFormatName);
+		csvVariants = new CSVVariant[csvVariantNames.length];
+		writers = new BackgroundWriter[csvVariantNames.length];
+		try {
+			for (int i = 0; i < csvVariantNames.length; i++) {
+				csvVariants[i] = CSVVariant.valueOf(csvVariantNames[i]);
+				StringBuilder header = new StringBuilder();
+				CSVPrinter p = new CSVPrinter(header, csvFormat);
+				csvVariants[i].header(p);
+				p.flush();
+				writers[i] = BackgroundWriter.open(
+						new File(outputDirectory, csvVariantNames[i] + ".csv" + (compress ? ".gz" : "")), compress,
+						header.toString());
+			}
+		} catch (IOException e) {
+			throw new ResourceInitializationException(e);
+		}
+	}
+
+	@Override
+	public void process(JCas jcas) throws AnalysisEngineProcessException {
+		try {
+			for (int i = 0; i < csvVariants.length; i++) {
+				StringBuilder rows = new StringBuilder();
+				CSVPrinter p = new CSVPrinter(rows, csvFormat);
+				csvVariants[i].convert(jcas, p);
+				p.flush();
+				writers[i].append(rows.toString());
+			}
+		} catch (IOException e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+	}
+
+	@Override
+	public void collectionProcessComplete() throws AnalysisEngineProcessException {
+		super.collectionProcessComplete();
+		IOException exception = null;
+		for (BackgroundWriter writer : writers) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				exception = e;
+			}
+		}
+		if (exception != null)
+			throw new AnalysisEngineProcessException(exception);
+	}
+}
@@ -0,0 +1,101 @@
+package de.unistuttgart.quadrama.io.core;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.MetaDataObject;
+import org.apache.uima.util.CasCopier;
+import org.apache.uima.util.CasCreationUtils;
+
+import de.tudarmstadt.ukp.dkpro.core.api.io.JCasFileWriter_ImplBase;
+
+/**
+ * Writes each CAS in UIMA's compressed binary format (form 6), which is much
+ * smaller and faster to write and read than XMI. The files can be read with
+ * {@link BinaryCasReader}, using the same type system.
+ *
+ * Views whose name starts with {@link #PARAM_VIEW_PREFIX} are not written.
+ * If a document contains such views, the other views are copied into a
+ * separate CAS before writing, such that no cleanup of the output files is
+ * needed.
+ *
+ * @since 1.0.1
+ */
+public class ExportAsBinaryCas extends JCasFileWriter_ImplBase {
+
+	/**
+	 * Views with this prefix are not written. Defaults to <code>tmp:</code>.
+	 */
+	public static final String PARAM_VIEW_PREFIX = "View Prefix";
+
+	@ConfigurationParameter(name = PARAM_VIEW_PREFIX, mandatory = false, defaultValue = "tmp:")
+	String viewPrefix = "tmp:";
+
+	CAS copy = null;
+
+	@Override
+	public void process(JCas jcas) throws AnalysisEngineProcessException {
+		CAS cas = jcas.getCas();
+		OutputStream os = null;
+		try {
+			if (hasTemporaryViews(cas)) {
+				copyViews(cas);
+				cas = copy;
+			}
+			os = new BufferedOutputStream(getOutputStream(jcas, ".bcas"));
+			Serialization.serializeWithCompression(cas, os, cas.getTypeSystem());
+			os.flush();
+		} catch (IOException | ResourceInitializationException e) {
+			throw new AnalysisEngineProcessException(e);
+		} finally {
+			IOUtils.closeQuietly(os);
+			if (copy != null)
+				copy.reset();
+		}
+	}
+
+	protected boolean hasTemporaryViews(CAS cas) {
+		Iterator<CAS> iter = cas.getViewIterator();
+		while (iter.hasNext())
+			if (iter.next().getViewName().startsWith(viewPrefix))
+				return true;
+		return false;
+	}
+
+	protected void copyViews(CAS cas) throws ResourceInitializationException {
+		if (copy == null || copy.getTypeSystem() != cas.getTypeSystem())
+			copy = CasCreationUtils.createCas(Collections.<MetaDataObject> emptyList(), cas.getTypeSystem(), null);
+		CasCopier copier = new CasCopier(cas, copy);
+		Type documentAnnotationType = cas.getTypeSystem().getType(CAS.TYPE_NAME_DOCUMENT_ANNOTATION);
+		Iterator<CAS> iter = cas.getViewIterator();
+		while (iter.hasNext()) {
+			CAS view = iter.next();
+			if (view.getViewName().startsWith(viewPrefix))
+				continue;
+
+			// CasCopier copies the features of the document annotation into
+			// the one of the target view, which would otherwise be created
+			// with the default type and lose, e.g., the document meta data
+			FSIterator<AnnotationFS> dIter = view.getAnnotationIndex(documentAnnotationType).iterator();
+			if (dIter.hasNext() && dIter.get().getType() != documentAnnotationType) {
+				CAS target = (view.getViewName().equals(CAS.NAME_DEFAULT_SOFA) ? copy.getView(CAS.NAME_DEFAULT_SOFA)
+						: copy.createView(view.getViewName()));
+				target.addFsToIndexes(target.createAnnotation(dIter.get().getType(), 0, 0));
+			}
+			copier.copyCasView(view, true);
+		}
+	}
+}
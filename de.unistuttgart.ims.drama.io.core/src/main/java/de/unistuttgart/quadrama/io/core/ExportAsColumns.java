@@ -0,0 +1,62 @@
+package de.unistuttgart.quadrama.io.core;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+
+import de.tudarmstadt.ukp.dkpro.core.api.io.JCasFileWriter_ImplBase;
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+
+/**
+ * This exporter writes the same tables as {@link ExportAsCSV}, but in the
+ * binary column format described in {@link ColumnarTable}. Strings are
+ * dictionary-encoded and numbers are stored as integers, such that the files
+ * can be memory-mapped and read column by column without parsing.
+ * 
+ * @since 1.0.1
+ */
+public class ExportAsColumns extends JCasFileWriter_ImplBase {
+
+	/**
+	 * The variant controls what is contained in the output. See
+	 * {@link de.unistuttgart.quadrama.io.core.CSVVariant} for details.
+	 */
+	public static final String PARAM_VARIANT_NAME = "Variant Name";
+
+	@ConfigurationParameter(name = PARAM_VARIANT_NAME, defaultValue = "UtterancesWithTokens")
+	String variantName = "UtterancesWithTokens";
+
+	CSVVariant variant;
+
+	@Override
+	public void initialize(final UimaContext context) throws ResourceInitializationException {
+		super.initialize(context);
+		variant = CSVVariant.valueOf(variantName);
+	}
+
+	@Override
+	public void process(JCas jcas) throws AnalysisEngineProcessException {
+		DocumentMetaData dmd = DocumentMetaData.get(jcas);
+		ColumnarTable table = new ColumnarTable(variant.getColumnTypes());
+		OutputStream os = null;
+		try {
+			variant.header(table);
+			variant.convert(jcas, table);
+			os = new BufferedOutputStream(getOutputStream(dmd.getDocumentId(), "." + variantName + ".columns"));
+			table.write(os);
+			os.flush();
+		} catch (IOException e) {
+			throw new AnalysisEngineProcessException(e);
+		} finally {
+			IOUtils.closeQuietly(os);
+		}
+	}
+
+}
@@ -0,0 +1,29 @@
+package de.unistuttgart.quadrama.io.core;
+
+import java.io.IOException;
+
+/**
+ * Receives the cells of a table, row by row. This allows the variants defined
+ * in {@link CSVVariant} to be written in formats other than CSV.
+ * 
+ * @since 1.0.1
+ */
+public interface RowPrinter {
+	/**
+	 * Adds a cell to the current row
+	 * 
+	 * @param value
+	 *            The value, may be null
+	 * @throws IOException
+	 *             If an I/O error occurs
+	 */
+	void print(Object value) throws IOException;
+
+	/**
+	 * Finishes the current row
+	 * 
+	 * @throws IOException
+	 *             If an I/O error occurs
+	 */
+	void println() throws IOException;
+}
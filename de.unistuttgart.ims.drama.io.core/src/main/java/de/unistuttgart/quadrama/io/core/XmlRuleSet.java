@@ -0,0 +1,431 @@
+package de.unistuttgart.quadrama.io.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.fit.factory.AnnotationFactory;
+import org.apache.uima.fit.util.CasUtil;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.TOP;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.parser.Parser;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.NodeVisitor;
+import org.jsoup.select.QueryParser;
+
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import de.unistuttgart.quadrama.io.core.type.XMLElement;
+
+/**
+ * A set of rules that map XML elements onto annotations, in the same way as
+ * <code>GenericXmlReader</code>. The rules and their CSS selectors are set up
+ * and compiled once, e.g., in the <code>initialize()</code> method of a
+ * reader, and can then be applied to any number of documents. Everything that
+ * belongs to a single document is kept in a {@link Context}, which is created
+ * for each call to {@link #read(JCas, InputStream)} and handed to the
+ * callbacks. A rule set can therefore be shared between threads once it has
+ * been set up.
+ *
+ * The document text consists of the text below the element selected by the
+ * text root selector (or the entire document). A line break is added after
+ * each block element, and each element in the text is represented by an
+ * {@link XMLElement} annotation. Rules are applied in the order in which they
+ * have been added. Global rules match anywhere in the XML document, the other
+ * rules only within the text root.
+ *
+ * The XML document is walked through only once. During this walk, the text is
+ * collected and the elements matching each rule are found. To this end, the
+ * rules are indexed by the element name of their selector (e.g.,
+ * <code>head</code> for <code>div[type=act] &gt; head</code>) or, if the
+ * selector matches any element, by the attribute it requires (e.g.,
+ * <code>ref</code> for <code>text *[ref]</code>). For each element, only the
+ * rules found under its name and attributes are tested, such that the time
+ * needed does not grow with the number of rules. The rules are applied
+ * afterwards, so that callbacks can look up elements that come later in the
+ * document.
+ *
+ * @param <D>
+ *            The type of the document meta data annotation
+ * @since 1.0.1
+ */
+public class XmlRuleSet<D extends DocumentMetaData> {
+
+	/**
+	 * Elements after which a line break is added to the document text, in
+	 * addition to jsoup's block elements
+	 */
+	static final Set<String> BLOCK_ELEMENTS = new HashSet<String>(Arrays.asList("l", "p", "sp"));
+
+	Class<D> documentClass;
+
+	Evaluator textRoot = null;
+
+	boolean preserveWhitespace = false;
+
+	List<Rule<?>> rules = new ArrayList<Rule<?>>();
+
+	/**
+	 * The rules, indexed by the element name they key on
+	 */
+	Map<String, List<Rule<?>>> rulesByTag = new HashMap<String, List<Rule<?>>>();
+
+	/**
+	 * The rules for any element, indexed by the attribute they key on
+	 */
+	Map<String, List<Rule<?>>> rulesByAttribute = new HashMap<String, List<Rule<?>>>();
+
+	/**
+	 * The rules that cannot be indexed and are tested on each element
+	 */
+	List<Rule<?>> otherRules = new LinkedList<Rule<?>>();
+
+	public XmlRuleSet(Class<D> documentClass) {
+		this.documentClass = documentClass;
+	}
+
+	public void setTextRootSelector(String selector) {
+		this.textRoot = (selector == null ? null : QueryParser.parse(selector));
+	}
+
+	public void setPreserveWhitespace(boolean preserveWhitespace) {
+		this.preserveWhitespace = preserveWhitespace;
+	}
+
+	/**
+	 * Adds a rule that is applied to the document meta data for each matching
+	 * element in the entire XML document.
+	 */
+	public void addGlobalRule(String selector, Callback<D> callback) {
+		add(new Rule<D>(selector, null, true, callback));
+	}
+
+	/**
+	 * Adds a rule that creates a feature structure of type <code>cl</code> for
+	 * each matching element in the entire XML document.
+	 */
+	public <T extends TOP> void addGlobalRule(String selector, Class<T> cl, Callback<T> callback) {
+		add(new Rule<T>(selector, cl, true, callback));
+	}
+
+	/**
+	 * Adds a rule that creates an annotation of type <code>cl</code> for each
+	 * matching element within the text root. If <code>cl</code> is not an
+	 * annotation type, a feature structure without offsets is created.
+	 */
+	public <T extends TOP> void addRule(String selector, Class<T> cl) {
+		addRule(selector, cl, null);
+	}
+
+	/**
+	 * Adds a rule that creates an annotation of type <code>cl</code> for each
+	 * matching element within the text root, and calls the
+	 * <code>callback</code> on it.
+	 */
+	public <T extends TOP> void addRule(String selector, Class<T> cl, Callback<T> callback) {
+		add(new Rule<T>(selector, cl, false, callback));
+	}
+
+	void add(Rule<?> rule) {
+		rule.index = rules.size();
+		rules.add(rule);
+
+		String[] key = key(rule.selectorString);
+		if (key[0] != null)
+			index(rulesByTag, key[0], rule);
+		else if (key[1] != null)
+			index(rulesByAttribute, key[1], rule);
+		else
+			otherRules.add(rule);
+	}
+
+	void index(Map<String, List<Rule<?>>> map, String key, Rule<?> rule) {
+		List<Rule<?>> list = map.get(key);
+		if (list == null) {
+			list = new LinkedList<Rule<?>>();
+			map.put(key, list);
+		}
+		list.add(rule);
+	}
+
+	/**
+	 * Determines the element name and attribute a selector keys on, i.e., the
+	 * ones in its last simple selector. Both are lower case, because jsoup
+	 * compares them case insensitively.
+	 *
+	 * @return An array containing the element name (or <code>null</code> for
+	 *         any element) and the first attribute outside of parentheses (or
+	 *         <code>null</code>).
+	 *         Both are <code>null</code> for groups of selectors.
+	 */
+	static String[] key(String selector) {
+		String[] key = new String[2];
+		int depth = 0;
+		int start = 0;
+		String s = selector.trim();
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '[' || c == '(')
+				depth++;
+			else if (c == ']' || c == ')')
+				depth--;
+			else if (depth == 0 && c == ',')
+				return key;
+			else if (depth == 0 && (Character.isWhitespace(c) || c == '>' || c == '+' || c == '~'))
+				start = i + 1;
+		}
+		String last = s.substring(start);
+
+		int end = 0;
+		while (end < last.length() && "[:.#".indexOf(last.charAt(end)) < 0)
+			end++;
+		String tag = last.substring(0, end);
+		if (!tag.isEmpty() && !tag.equals("*") && tag.indexOf('|') < 0)
+			key[0] = tag.toLowerCase();
+
+		// brackets within parentheses, e.g. in :not([ref]), do not restrict
+		// the element
+		int bracket = -1;
+		depth = 0;
+		for (int i = 0; i < last.length() && bracket < 0; i++) {
+			char c = last.charAt(i);
+			if (c == '(')
+				depth++;
+			else if (c == ')')
+				depth--;
+			else if (depth == 0 && c == '[')
+				bracket = i;
+		}
+		if (bracket >= 0) {
+			int attrEnd = bracket + 1;
+			while (attrEnd < last.length() && "]=!^$*~".indexOf(last.charAt(attrEnd)) < 0)
+				attrEnd++;
+			String attribute = last.substring(bracket + 1, attrEnd).trim();
+			if (!attribute.isEmpty() && !attribute.startsWith("^"))
+				key[1] = attribute.toLowerCase();
+		}
+		return key;
+	}
+
+	/**
+	 * Reads the XML document from the input stream, sets the document text
+	 * and applies all rules.
+	 *
+	 * @return The context of the document, which can be used to look up
+	 *         feature structures by their <code>xml:id</code>
+	 * @throws IOException
+	 *             If the document cannot be read or the text root cannot be
+	 *             found
+	 */
+	public Context read(JCas jcas, InputStream is) throws IOException {
+		Document doc = Jsoup.parse(is, "UTF-8", "", Parser.xmlParser());
+		doc.outputSettings().prettyPrint(false);
+
+		D document;
+		if (JCasUtil.exists(jcas, documentClass))
+			document = JCasUtil.selectSingle(jcas, documentClass);
+		else
+			document = AnnotationFactory.createAnnotation(jcas, 0, 0, documentClass);
+
+		Context context = new Context(jcas, document);
+		Walk walk = new Walk(context, doc);
+		doc.traverse(walk);
+		if (walk.root == null)
+			throw new IOException("Text root not found.");
+		jcas.setDocumentText(walk.text.toString());
+
+		for (Rule<?> rule : rules)
+			for (Element element : walk.matches.get(rule.index))
+				rule.apply(element, context);
+		return context;
+	}
+
+	/**
+	 * A callback that sets features of the feature structure created for an
+	 * element.
+	 */
+	@FunctionalInterface
+	public interface Callback<T> {
+		void call(T fs, Element element, Context context);
+	}
+
+	/**
+	 * The state while reading a single document
+	 */
+	public static class Context {
+		JCas jcas;
+		DocumentMetaData document;
+		Map<Element, XMLElement> elements = new IdentityHashMap<Element, XMLElement>();
+		Map<String, FeatureStructure> ids = new HashMap<String, FeatureStructure>();
+
+		Context(JCas jcas, DocumentMetaData document) {
+			this.jcas = jcas;
+			this.document = document;
+		}
+
+		public JCas getJCas() {
+			return jcas;
+		}
+
+		public DocumentMetaData getDocument() {
+			return document;
+		}
+
+		/**
+		 * @return The annotation representing the element, or
+		 *         <code>null</code> if the element is not in the text
+		 */
+		public XMLElement getXmlElement(Element element) {
+			return elements.get(element);
+		}
+
+		public boolean exists(String xmlId) {
+			return ids.containsKey(xmlId);
+		}
+
+		/**
+		 * @return The first feature structure that has been created for an
+		 *         element with this <code>xml:id</code>
+		 */
+		public FeatureStructure get(String xmlId) {
+			return ids.get(xmlId);
+		}
+
+		void register(Element element, FeatureStructure fs) {
+			if (element.hasAttr("xml:id") && !ids.containsKey(element.attr("xml:id")))
+				ids.put(element.attr("xml:id"), fs);
+		}
+	}
+
+	class Rule<T> {
+		int index;
+		String selectorString;
+		Evaluator selector;
+		Class<T> cl;
+		boolean global;
+		Callback<T> callback;
+
+		Rule(String selector, Class<T> cl, boolean global, Callback<T> callback) {
+			this.selectorString = selector;
+			this.selector = QueryParser.parse(selector);
+			this.cl = cl;
+			this.global = global;
+			this.callback = callback;
+		}
+
+		@SuppressWarnings("unchecked")
+		void apply(Element element, Context context) {
+			JCas jcas = context.jcas;
+			if (cl == null) {
+				if (callback != null)
+					callback.call((T) context.document, element, context);
+				return;
+			}
+			TOP fs;
+			XMLElement xmlElement = context.elements.get(element);
+			if (!global && xmlElement != null && Annotation.class.isAssignableFrom(cl)) {
+				fs = AnnotationFactory.createAnnotation(jcas, xmlElement.getBegin(), xmlElement.getEnd(),
+						(Class<? extends Annotation>) cl);
+			} else {
+				fs = jcas.getCas().createFS(CasUtil.getType(jcas.getCas(), cl));
+				fs.addToIndexes();
+			}
+			if (callback != null)
+				callback.call((T) fs, element, context);
+			context.register(element, fs);
+		}
+	}
+
+	/**
+	 * Walks through the XML document once. It finds the text root, collects
+	 * the document text, creates an {@link XMLElement} for each element in
+	 * the text and finds the elements each rule matches.
+	 */
+	class Walk implements NodeVisitor {
+		Context context;
+		Document doc;
+		Element root = null;
+		boolean inText = false;
+		StringBuilder text = new StringBuilder();
+		List<Integer> begins = new ArrayList<Integer>();
+
+		/**
+		 * The matching elements for each rule, in document order
+		 */
+		List<List<Element>> matches = new ArrayList<List<Element>>(rules.size());
+
+		Walk(Context context, Document doc) {
+			this.context = context;
+			this.doc = doc;
+			for (int i = 0; i < rules.size(); i++)
+				matches.add(new LinkedList<Element>());
+		}
+
+		@Override
+		public void head(Node node, int depth) {
+			if (node instanceof TextNode) {
+				if (inText) {
+					TextNode textNode = (TextNode) node;
+					text.append(preserveWhitespace ? textNode.getWholeText() : textNode.text());
+				}
+			} else if (node instanceof Element) {
+				Element element = (Element) node;
+				if (root == null && (textRoot == null || textRoot.matches(doc, element))) {
+					root = element;
+					inText = true;
+				}
+				if (inText)
+					begins.add(text.length());
+
+				match(element, rulesByTag.get(element.tagName().toLowerCase()));
+				for (Attribute attribute : element.attributes())
+					match(element, rulesByAttribute.get(attribute.getKey().toLowerCase()));
+				match(element, otherRules);
+			}
+		}
+
+		void match(Element element, List<Rule<?>> candidates) {
+			if (candidates == null)
+				return;
+			for (Rule<?> rule : candidates)
+				if (rule.global ? rule.selector.matches(doc, element)
+						: inText && rule.selector.matches(root, element))
+					matches.get(rule.index).add(element);
+		}
+
+		@Override
+		public void tail(Node node, int depth) {
+			if (!inText || !(node instanceof Element))
+				return;
+			Element element = (Element) node;
+			int begin = begins.remove(begins.size() - 1);
+			if (element == root)
+				inText = false;
+			if (node instanceof Document)
+				return;
+			XMLElement xmlElement = AnnotationFactory.createAnnotation(context.jcas, begin, text.length(),
+					XMLElement.class);
+			xmlElement.setTag(element.tagName());
+			xmlElement.setAttributes(element.attributes().html());
+			context.elements.put(element, xmlElement);
+			if (element.isBlock() || BLOCK_ELEMENTS.contains(element.tagName()))
+				text.append('\n');
+		}
+	}
+}
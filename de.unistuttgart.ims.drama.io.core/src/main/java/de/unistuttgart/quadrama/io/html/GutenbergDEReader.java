@@ -8,6 +8,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.TreeSet;
 
@@ -35,11 +36,11 @@ import de.unistuttgart.ims.drama.api.Speaker;
 import de.unistuttgart.ims.drama.api.Speech;
 import de.unistuttgart.ims.drama.api.StageDirection;
 import de.unistuttgart.ims.drama.api.Utterance;
-import de.unistuttgart.ims.uima.io.xml.Visitor;
 import de.unistuttgart.ims.uima.io.xml.type.XMLElement;
 import de.unistuttgart.ims.uimautil.AnnotationUtil;
 import de.unistuttgart.quadrama.io.core.AbstractDramaUrlReader;
 import de.unistuttgart.quadrama.io.core.DramaIOUtil;
+import de.unistuttgart.quadrama.io.core.ElementMapVisitor;
 
 public class GutenbergDEReader extends AbstractDramaUrlReader {
 
@@ -48,10 +49,10 @@ public class GutenbergDEReader extends AbstractDramaUrlReader {
 
 		String str = IOUtils.toString(file, "UTF-8");
 		org.jsoup.nodes.Document doc = Jsoup.parseBodyFragment(str);
-		Visitor vis = new Visitor(jcas);
+		ElementMapVisitor vis = new ElementMapVisitor(jcas);
 		doc.traverse(vis);
 		jcas = vis.getJCas();
-		Map<String, XMLElement> annoMap = vis.getAnnotationMap();
+		IdentityHashMap<Element, XMLElement> annoMap = vis.getElementMap();
 
 		// identify front and main matter
 		select2Annotation(jcas, doc, annoMap, "div.gutenb:eq(0)", FrontMatter.class, null);
@@ -73,7 +74,7 @@ public class GutenbergDEReader extends AbstractDramaUrlReader {
 		// they are (in RuJ) marked with class leftmarg
 		Elements elms = doc.select("p.leftmarg");
 		for (Element elm : elms) {
-			XMLElement hAnno = annoMap.get(elm.cssSelector());
+			XMLElement hAnno = annoMap.get(elm);
 			Utterance utterance = JCasUtil.selectPreceding(Utterance.class, hAnno, 1).get(0);
 			utterance.setEnd(hAnno.getEnd());
 		}
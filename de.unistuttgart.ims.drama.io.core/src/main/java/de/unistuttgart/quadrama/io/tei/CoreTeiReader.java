@@ -33,10 +33,10 @@ import de.unistuttgart.ims.drama.api.Speech;
 import de.unistuttgart.ims.drama.api.StageDirection;
 import de.unistuttgart.ims.drama.api.Utterance;
 import de.unistuttgart.ims.uima.io.xml.ArrayUtil;
-import de.unistuttgart.ims.uima.io.xml.GenericXmlReader;
 import de.unistuttgart.ims.uima.io.xml.type.XMLElement;
 import de.unistuttgart.ims.uimautil.AnnotationUtil;
 import de.unistuttgart.quadrama.io.core.AbstractDramaUrlReader;
+import de.unistuttgart.quadrama.io.core.XmlRuleSet;
 
 public class CoreTeiReader extends AbstractDramaUrlReader {
 
@@ -45,56 +45,58 @@ public class CoreTeiReader extends AbstractDramaUrlReader {
 	@ConfigurationParameter(name = PARAM_STRICT, mandatory = false, defaultValue = "false")
 	boolean strict = false;
 
+	XmlRuleSet<Drama> rules;
+
 	@Override
 	public void initialize(UimaContext context) throws ResourceInitializationException {
 		super.initialize(context);
-	}
-
-	@Override
-	public void getNext(final JCas jcas, InputStream file, Drama drama) throws IOException, CollectionException {
 
-		GenericXmlReader<Drama> gxr = new GenericXmlReader<Drama>(Drama.class);
-		gxr.setTextRootSelector("TEI > text");
-		gxr.setPreserveWhitespace(false);
+		rules = new XmlRuleSet<Drama>(Drama.class);
+		rules.setTextRootSelector("TEI > text");
+		rules.setPreserveWhitespace(false);
 
-		gxr.addGlobalRule("fileDesc > publicationStmt > idno[type=quadramaX]", (d, e) -> d.setDocumentId(e.text()));
+		rules.addGlobalRule("fileDesc > publicationStmt > idno[type=quadramaX]",
+				(d, e, c) -> d.setDocumentId(e.text()));
 
-		gxr.addGlobalRule("profileDesc > particDesc > listPerson > person", CastFigure.class, (cf, e) -> {
-			cf.setNames(ArrayUtil.toStringArray(jcas, e.text()));
-			cf.setXmlId(ArrayUtil.toStringArray(jcas, e.attr("xml:id")));
+		rules.addGlobalRule("profileDesc > particDesc > listPerson > person", CastFigure.class, (cf, e, c) -> {
+			cf.setNames(ArrayUtil.toStringArray(c.getJCas(), e.text()));
+			cf.setXmlId(ArrayUtil.toStringArray(c.getJCas(), e.attr("xml:id")));
 			cf.setDisplayName(cf.getNames(0));
 		});
 
 		// segmentation
-		gxr.addRule("div[type=act]", Act.class, (a, e) -> a.setRegular(true));
-		gxr.addRule("div[type=act] > head", ActHeading.class);
+		rules.addRule("div[type=act]", Act.class, (a, e, c) -> a.setRegular(true));
+		rules.addRule("div[type=act] > head", ActHeading.class);
 
-		gxr.addRule("div[type=scene]", Scene.class, (a, e) -> a.setRegular(true));
-		gxr.addRule("div[type=scene] > head", SceneHeading.class);
+		rules.addRule("div[type=scene]", Scene.class, (a, e, c) -> a.setRegular(true));
+		rules.addRule("div[type=scene] > head", SceneHeading.class);
 
-		gxr.addRule("speaker", Speaker.class);
-		gxr.addRule("stage", StageDirection.class);
-		gxr.addRule("l", Speech.class);
-		gxr.addRule("p", Speech.class);
+		rules.addRule("speaker", Speaker.class);
+		rules.addRule("stage", StageDirection.class);
+		rules.addRule("l", Speech.class);
+		rules.addRule("p", Speech.class);
 
-		gxr.addRule("sp", Utterance.class, (u, e) -> {
+		rules.addRule("sp", Utterance.class, (u, e, c) -> {
 			Collection<Speaker> speakers = JCasUtil.selectCovered(Speaker.class, u);
 			for (Speaker sp : speakers) {
 				String[] whos = e.attr("who").split(" ");
-				sp.setXmlId(new StringArray(jcas, whos.length));
-				sp.setCastFigure(new FSArray(jcas, whos.length));
+				sp.setXmlId(new StringArray(c.getJCas(), whos.length));
+				sp.setCastFigure(new FSArray(c.getJCas(), whos.length));
 				for (int i = 0; i < whos.length; i++) {
 					String xmlid = whos[i].substring(1);
 					sp.setXmlId(i, xmlid);
-					if (gxr.exists(xmlid)) {
-						sp.setCastFigure(i, (CastFigure) gxr.getAnnotation(xmlid).getValue());
-						u.setCastFigure((CastFigure) gxr.getAnnotation(xmlid).getValue());
+					if (c.exists(xmlid)) {
+						sp.setCastFigure(i, (CastFigure) c.get(xmlid));
+						u.setCastFigure((CastFigure) c.get(xmlid));
 					}
 				}
 			}
 		});
+	}
 
-		gxr.read(jcas, file);
+	@Override
+	public void getNext(final JCas jcas, InputStream file, Drama drama) throws IOException, CollectionException {
+		rules.read(jcas, file);
 
 		try {
 			AnnotationUtil.trim(new ArrayList<Figure>(JCasUtil.select(jcas, Figure.class)));
@@ -9,6 +9,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.uima.UimaContext;
 import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.collection.CollectionException;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
@@ -17,6 +18,7 @@ import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.cas.FSArray;
 import org.apache.uima.jcas.cas.StringArray;
+import org.apache.uima.resource.ResourceInitializationException;
 import org.jsoup.nodes.TextNode;
 import org.jsoup.select.Elements;
 
@@ -39,9 +41,9 @@ import de.unistuttgart.ims.drama.api.StageDirection;
 import de.unistuttgart.ims.drama.api.Translator;
 import de.unistuttgart.ims.drama.api.Utterance;
 import de.unistuttgart.ims.uima.io.xml.ArrayUtil;
-import de.unistuttgart.ims.uima.io.xml.GenericXmlReader;
 import de.unistuttgart.ims.uimautil.AnnotationUtil;
 import de.unistuttgart.quadrama.io.core.AbstractDramaUrlReader;
+import de.unistuttgart.quadrama.io.core.XmlRuleSet;
 
 public class GerDraCorReader extends AbstractDramaUrlReader {
 
@@ -55,24 +57,34 @@ public class GerDraCorReader extends AbstractDramaUrlReader {
 	@ConfigurationParameter(name = PARAM_TEI_COMPAT, mandatory = false, defaultValue = "false")
 	boolean teiCompatibility = false;
 
+	XmlRuleSet<Drama> rules;
+
+	/**
+	 * Maps the ids of <code>persName</code> elements to the ids of the persons
+	 */
+	Map<String, String> xmlAlias = new HashMap<String, String>();
+
+	Map<String, DiscourseEntity> fallbackEntities = new HashMap<String, DiscourseEntity>();
+
 	@Override
-	public void getNext(final JCas jcas, InputStream file, Drama drama) throws IOException, CollectionException {
+	public void initialize(UimaContext context) throws ResourceInitializationException {
+		super.initialize(context);
 
-		GenericXmlReader<Drama> gxr = new GenericXmlReader<Drama>(Drama.class);
-		gxr.setTextRootSelector(teiCompatibility ? null : "TEI > text");
-		gxr.setPreserveWhitespace(teiCompatibility);
+		rules = new XmlRuleSet<Drama>(Drama.class);
+		rules.setTextRootSelector(teiCompatibility ? null : "TEI > text");
+		rules.setPreserveWhitespace(teiCompatibility);
 
 		// title
 		// gxr.addAction("titleStmt > title:first-child", Drama.class, (d, e) ->
 		// d.setDocumentTitle(e.text()));
 
-		gxr.addGlobalRule("titleStmt > title:first-child", (d, e) -> d.setDocumentTitle(e.text()));
+		rules.addGlobalRule("titleStmt > title:first-child", (d, e, c) -> d.setDocumentTitle(e.text()));
 
 		// id
-		gxr.addGlobalRule("sourceDesc > bibl > idno[type=URL]", (d, e) -> d.setDocumentId(e.text().substring(36)));
+		rules.addGlobalRule("sourceDesc > bibl > idno[type=URL]", (d, e, c) -> d.setDocumentId(e.text().substring(36)));
 
 		// author
-		gxr.addGlobalRule("author", Author.class, (author, e) -> {
+		rules.addGlobalRule("author", Author.class, (author, e, c) -> {
 			author.setName(e.text());
 			if (e.hasAttr("key"))
 				author.setPnd(e.attr("key").replace("pnd:", ""));
@@ -80,39 +92,39 @@ public class GerDraCorReader extends AbstractDramaUrlReader {
 		});
 
 		// translator
-		gxr.addGlobalRule("editor[role=translator]", Translator.class, (transl, e) -> {
+		rules.addGlobalRule("editor[role=translator]", Translator.class, (transl, e, c) -> {
 			transl.setName(e.text());
 			if (e.hasAttr("key"))
 				transl.setPnd(e.attr("key").replace("pnd:", ""));
 		});
 
 		// date printed
-		gxr.addGlobalRule("date[type=print][when]", (d, e) -> d.setDatePrinted(Integer.valueOf(e.attr("when"))));
+		rules.addGlobalRule("date[type=print][when]", (d, e, c) -> d.setDatePrinted(Integer.valueOf(e.attr("when"))));
 
 		// date written
-		gxr.addGlobalRule("date[type=written][when]", (d, e) -> d.setDateWritten(Integer.valueOf(e.attr("when"))));
+		rules.addGlobalRule("date[type=written][when]", (d, e, c) -> d.setDateWritten(Integer.valueOf(e.attr("when"))));
 
 		// date premiere
-		gxr.addGlobalRule("date[type=premiere][when]", (d, e) -> d.setDatePremiere(Integer.valueOf(e.attr("when"))));
+		rules.addGlobalRule("date[type=premiere][when]",
+				(d, e, c) -> d.setDatePremiere(Integer.valueOf(e.attr("when"))));
 
-		gxr.addRule("front", FrontMatter.class);
-		gxr.addRule("body", MainMatter.class);
+		rules.addRule("front", FrontMatter.class);
+		rules.addRule("body", MainMatter.class);
 
 		// Segmentation
-		gxr.addRule("div[type=prologue]", Act.class, (a, e) -> a.setRegular(false));
+		rules.addRule("div[type=prologue]", Act.class, (a, e, c) -> a.setRegular(false));
 
-		gxr.addRule("div[type=act]", Act.class, (a, e) -> a.setRegular(true));
-		gxr.addRule("div[type=act] > div > desc > title", ActHeading.class);
-		gxr.addRule("div[type=act] > div > head", ActHeading.class);
+		rules.addRule("div[type=act]", Act.class, (a, e, c) -> a.setRegular(true));
+		rules.addRule("div[type=act] > div > desc > title", ActHeading.class);
+		rules.addRule("div[type=act] > div > head", ActHeading.class);
 
-		gxr.addRule("div[type=scene]", Scene.class, (a, e) -> a.setRegular(true));
-		gxr.addRule("div[type=scene] > div > desc > title", SceneHeading.class);
+		rules.addRule("div[type=scene]", Scene.class, (a, e, c) -> a.setRegular(true));
+		rules.addRule("div[type=scene] > div > desc > title", SceneHeading.class);
 
 		// Dramatis Personae
-		gxr.addRule("body castList castItem", Figure.class);
-		gxr.addRule("div[type=Dramatis_Personae]", DramatisPersonae.class);
-		Map<String, String> xmlAlias = new HashMap<String, String>();
-		gxr.addGlobalRule("particDesc > listPerson > person", CastFigure.class, (cf, e) -> {
+		rules.addRule("body castList castItem", Figure.class);
+		rules.addRule("div[type=Dramatis_Personae]", DramatisPersonae.class);
+		rules.addGlobalRule("particDesc > listPerson > person", CastFigure.class, (cf, e, c) -> {
 			List<String> nameList = new LinkedList<String>();
 			List<String> xmlIdList = new LinkedList<String>();
 
@@ -137,57 +149,56 @@ public class GerDraCorReader extends AbstractDramaUrlReader {
 				if (tn.text().trim().length() > 0)
 					nameList.add(tn.text().trim());
 			}
-			cf.setXmlId(ArrayUtil.toStringArray(jcas, xmlIdList));
-			cf.setNames(ArrayUtil.toStringArray(jcas, nameList));
+			cf.setXmlId(ArrayUtil.toStringArray(c.getJCas(), xmlIdList));
+			cf.setNames(ArrayUtil.toStringArray(c.getJCas(), nameList));
 			cf.setDisplayName(cf.getNames(0));
 
 		});
 
-		gxr.addRule("speaker", Speaker.class);
-		gxr.addRule("stage", StageDirection.class);
-		gxr.addRule("l", Speech.class);
-		gxr.addRule("p", Speech.class);
-		gxr.addRule("ab", Speech.class);
-		gxr.addRule("sp", Utterance.class, (u, e) -> {
+		rules.addRule("speaker", Speaker.class);
+		rules.addRule("stage", StageDirection.class);
+		rules.addRule("l", Speech.class);
+		rules.addRule("p", Speech.class);
+		rules.addRule("ab", Speech.class);
+		rules.addRule("sp", Utterance.class, (u, e, c) -> {
 			Collection<Speaker> speakers = JCasUtil.selectCovered(Speaker.class, u);
 			for (Speaker sp : speakers) {
 				String[] whos = e.attr("who").split(" ");
-				sp.setXmlId(new StringArray(jcas, whos.length));
-				sp.setCastFigure(new FSArray(jcas, whos.length));
+				sp.setXmlId(new StringArray(c.getJCas(), whos.length));
+				sp.setCastFigure(new FSArray(c.getJCas(), whos.length));
 				for (int i = 0; i < whos.length; i++) {
 					String xmlid = whos[i].substring(1);
 					sp.setXmlId(i, xmlid);
 					if (xmlAlias.containsKey(xmlid))
 						xmlid = xmlAlias.get(xmlid);
-					if (gxr.exists(xmlid)) {
-						sp.setCastFigure(i, (CastFigure) gxr.getAnnotation(xmlid).getValue());
-						u.setCastFigure((CastFigure) gxr.getAnnotation(xmlid).getValue());
+					if (c.exists(xmlid)) {
+						sp.setCastFigure(i, (CastFigure) c.get(xmlid));
+						u.setCastFigure((CastFigure) c.get(xmlid));
 					}
 				}
 			}
 		});
 
-		gxr.addRule("text *[xml:id]", DiscourseEntity.class, (de, e) -> de.setDisplayName(e.attr("xml:id")));
+		rules.addRule("text *[xml:id]", DiscourseEntity.class, (de, e, c) -> de.setDisplayName(e.attr("xml:id")));
 
-		gxr.addRule("text *[xml:id]", Mention.class, (m, e) -> {
+		rules.addRule("text *[xml:id]", Mention.class, (m, e, c) -> {
 			String id = e.attr("xml:id");
-			FSArray arr = new FSArray(jcas, 1);
+			FSArray arr = new FSArray(c.getJCas(), 1);
 			arr.addToIndexes();
 			m.setEntity(arr);
-			m.setEntity(0, (DiscourseEntity) gxr.getAnnotation(id).getValue());
+			m.setEntity(0, (DiscourseEntity) c.get(id));
 		});
 
-		Map<String, DiscourseEntity> fallbackEntities = new HashMap<String, DiscourseEntity>();
 		// mentions
-		gxr.addRule("text *[ref]", Mention.class, (cl, e) -> {
+		rules.addRule("text *[ref]", Mention.class, (cl, e, c) -> {
 			String[] splitted = e.attr("ref").split(" ");
-			FSArray arr = new FSArray(jcas, splitted.length);
+			FSArray arr = new FSArray(c.getJCas(), splitted.length);
 			for (int i = 0; i < splitted.length; i++) {
 				String xmlId = splitted[i].substring(1);
 
 				DiscourseEntity de = null;
-				if (gxr.exists(xmlId)) {
-					FeatureStructure fs = gxr.getAnnotation(xmlId).getValue();
+				if (c.exists(xmlId)) {
+					FeatureStructure fs = c.get(xmlId);
 					if (fs instanceof DiscourseEntity)
 						de = (DiscourseEntity) fs;
 				}
@@ -203,8 +214,14 @@ public class GerDraCorReader extends AbstractDramaUrlReader {
 			}
 			cl.setEntity(arr);
 		});
+	}
+
+	@Override
+	public void getNext(final JCas jcas, InputStream file, Drama drama) throws IOException, CollectionException {
+		xmlAlias.clear();
+		fallbackEntities.clear();
 
-		gxr.read(jcas, file);
+		rules.read(jcas, file);
 
 		AnnotationUtil.trim(new ArrayList<Figure>(JCasUtil.select(jcas, Figure.class)));
 		AnnotationUtil.trim(new ArrayList<Speech>(JCasUtil.select(jcas, Speech.class)));
@@ -0,0 +1,570 @@
+package de.unistuttgart.quadrama.io.tei;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.uima.UimaContext;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.fit.factory.AnnotationFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.jcas.cas.StringArray;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.jsoup.helper.StringUtil;
+import org.jsoup.parser.ParseSettings;
+import org.jsoup.parser.Tag;
+
+import de.unistuttgart.ims.drama.api.Act;
+import de.unistuttgart.ims.drama.api.ActHeading;
+import de.unistuttgart.ims.drama.api.Author;
+import de.unistuttgart.ims.drama.api.CastFigure;
+import de.unistuttgart.ims.drama.api.DiscourseEntity;
+import de.unistuttgart.ims.drama.api.Drama;
+import de.unistuttgart.ims.drama.api.DramatisPersonae;
+import de.unistuttgart.ims.drama.api.Figure;
+import de.unistuttgart.ims.drama.api.FrontMatter;
+import de.unistuttgart.ims.drama.api.MainMatter;
+import de.unistuttgart.ims.drama.api.Mention;
+import de.unistuttgart.ims.drama.api.Scene;
+import de.unistuttgart.ims.drama.api.SceneHeading;
+import de.unistuttgart.ims.drama.api.Speaker;
+import de.unistuttgart.ims.drama.api.Speech;
+import de.unistuttgart.ims.drama.api.StageDirection;
+import de.unistuttgart.ims.drama.api.Translator;
+import de.unistuttgart.ims.drama.api.Utterance;
+import de.unistuttgart.ims.uima.io.xml.ArrayUtil;
+import de.unistuttgart.ims.uimautil.AnnotationUtil;
+import de.unistuttgart.quadrama.io.core.AbstractDramaUrlReader;
+import de.unistuttgart.quadrama.io.core.type.XMLElement;
+
+/**
+ * A variant of {@link GerDraCorReader} that reads the XML file as a stream of
+ * StAX events instead of building a DOM. The same rules are applied, but each
+ * rule is evaluated when the end tag of an element has been read. Apart from
+ * the document text and the annotations themselves, memory usage therefore
+ * only depends on the nesting depth of the XML file. References in
+ * <code>ref</code> attributes are resolved at the end of the document, such
+ * that they can point to elements later in the text.
+ *
+ * The document text and the annotations are the same as the ones produced by
+ * {@link GerDraCorReader} in its default configuration (i.e., without TEI
+ * compatibility). {@link XMLElement} annotations contain the tag and the
+ * attributes, but no CSS selector.
+ *
+ * @since 1.0.1
+ */
+public class GerDraCorStreamReader extends AbstractDramaUrlReader {
+
+	XMLInputFactory inputFactory;
+
+	Map<String, Tag> tags = new HashMap<String, Tag>();
+
+	@Override
+	public void initialize(UimaContext context) throws ResourceInitializationException {
+		super.initialize(context);
+		inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+		inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+	}
+
+	@Override
+	public void getNext(final JCas jcas, InputStream file, Drama drama) throws IOException, CollectionException {
+		try {
+			XMLStreamReader reader = inputFactory.createXMLStreamReader(file);
+			try {
+				new Parse(jcas, drama).read(reader);
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new CollectionException(e);
+		}
+
+		AnnotationUtil.trim(new ArrayList<Figure>(JCasUtil.select(jcas, Figure.class)));
+		AnnotationUtil.trim(new ArrayList<Speech>(JCasUtil.select(jcas, Speech.class)));
+		AnnotationUtil.trim(new ArrayList<Utterance>(JCasUtil.select(jcas, Utterance.class)));
+		AnnotationUtil.trim(new ArrayList<Scene>(JCasUtil.select(jcas, Scene.class)));
+		AnnotationUtil.trim(new ArrayList<Act>(JCasUtil.select(jcas, Act.class)));
+		AnnotationUtil.trim(new ArrayList<StageDirection>(JCasUtil.select(jcas, StageDirection.class)));
+	}
+
+	/**
+	 * Block elements and whitespace handling follow jsoup, which is used by
+	 * {@link GerDraCorReader}
+	 */
+	protected Tag getTag(String name) {
+		Tag tag = tags.get(name);
+		if (tag == null) {
+			tag = Tag.valueOf(name, ParseSettings.preserveCase);
+			tags.put(name, tag);
+		}
+		return tag;
+	}
+
+	/**
+	 * An open element
+	 */
+	static class Element {
+		String tag;
+		Map<String, String> attributes = new LinkedHashMap<String, String>();
+		String namespaces = "";
+		Element parent;
+		/**
+		 * The position of the element among the element children of its
+		 * parent
+		 */
+		int index;
+		int children = 0;
+		int begin;
+		/**
+		 * Whether the element is (in) the text root
+		 */
+		boolean inText;
+
+		/**
+		 * The text content, collected only if a rule needs it
+		 */
+		StringBuilder textContent = null;
+
+		/**
+		 * The text nodes directly below the element, collected only if a rule
+		 * needs them
+		 */
+		List<String> ownText = null;
+
+		List<Speaker> speakers = null;
+		List<String> names = null;
+		List<String> nameIds = null;
+
+		boolean is(String tag) {
+			return this.tag.equals(tag);
+		}
+
+		boolean is(String tag, String attribute, String value) {
+			return this.tag.equals(tag) && value.equals(attributes.get(attribute));
+		}
+
+		boolean parentIs(String tag) {
+			return parent != null && parent.is(tag);
+		}
+
+		Element ancestor(String tag) {
+			for (Element e = parent; e != null; e = e.parent)
+				if (e.is(tag))
+					return e;
+			return null;
+		}
+
+		String attr(String key) {
+			String value = attributes.get(key);
+			return (value == null ? "" : value);
+		}
+
+		String text() {
+			return textContent.toString().trim();
+		}
+	}
+
+	/**
+	 * The state while reading a single document
+	 */
+	class Parse {
+		JCas jcas;
+		Drama drama;
+		StringBuilder text = new StringBuilder();
+		StringBuilder pendingText = new StringBuilder();
+		Element current = null;
+		boolean rootSeen = false;
+
+		/**
+		 * Elements whose text content is being collected
+		 */
+		List<Element> collectors = new LinkedList<Element>();
+
+		Map<String, FeatureStructure> ids = new HashMap<String, FeatureStructure>();
+		Map<String, String> xmlAlias = new HashMap<String, String>();
+		List<Mention> references = new LinkedList<Mention>();
+		List<String> referenceAttributes = new LinkedList<String>();
+
+		Parse(JCas jcas, Drama drama) {
+			this.jcas = jcas;
+			this.drama = drama;
+		}
+
+		void read(XMLStreamReader reader) throws XMLStreamException {
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					flushText();
+					start(reader);
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					flushText();
+					end();
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					pendingText.append(reader.getText());
+					break;
+				default:
+					// comments and processing instructions end a text node
+					flushText();
+				}
+			}
+			jcas.setDocumentText(text.toString());
+			resolveReferences();
+		}
+
+		void start(XMLStreamReader reader) {
+			Element e = new Element();
+			e.tag = name(reader.getPrefix(), reader.getLocalName());
+			e.parent = current;
+			if (current != null)
+				e.index = current.children++;
+			for (int i = 0; i < reader.getNamespaceCount(); i++)
+				e.namespaces += " " + name("xmlns", reader.getNamespacePrefix(i)) + "=\""
+						+ escape(reader.getNamespaceURI(i)) + "\"";
+			for (int i = 0; i < reader.getAttributeCount(); i++)
+				e.attributes.put(name(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+						reader.getAttributeValue(i));
+			e.begin = text.length();
+			if (current != null && current.inText) {
+				e.inText = true;
+			} else if (!rootSeen && e.is("text") && e.parentIs("TEI")) {
+				e.inText = true;
+				rootSeen = true;
+			}
+
+			// same as jsoup's Element.text()
+			Tag tag = getTag(e.tag);
+			for (Element collector : collectors) {
+				StringBuilder b = collector.textContent;
+				if (b.length() > 0 && (tag.isBlock() || e.is("br")) && !lastCharIsWhitespace(b))
+					b.append(' ');
+			}
+
+			if ((e.is("title") && e.parentIs("titleStmt") && e.index == 0)
+					|| (e.is("idno", "type", "URL") && e.parentIs("bibl") && e.parent.parentIs("sourceDesc"))
+					|| e.is("author") || e.is("editor", "role", "translator")
+					|| (e.is("persName") && getPerson(e) != null)) {
+				e.textContent = new StringBuilder();
+				collectors.add(e);
+			}
+			if (isPerson(e)) {
+				e.ownText = new LinkedList<String>();
+				e.names = new LinkedList<String>();
+				e.nameIds = new LinkedList<String>();
+			}
+			if (e.inText && e.is("sp"))
+				e.speakers = new LinkedList<Speaker>();
+			current = e;
+		}
+
+		void flushText() {
+			if (pendingText.length() == 0 || current == null)
+				return;
+			String s = pendingText.toString();
+			pendingText.setLength(0);
+
+			if (current.inText)
+				text.append(StringUtil.normaliseWhitespace(s));
+			if (current.ownText != null && s.trim().length() > 0)
+				current.ownText.add(StringUtil.normaliseWhitespace(s).trim());
+			if (!collectors.isEmpty()) {
+				boolean preserve = preserveWhitespace(current);
+				for (Element collector : collectors) {
+					if (preserve)
+						collector.textContent.append(s);
+					else
+						StringUtil.appendNormalisedWhitespace(collector.textContent, s,
+								lastCharIsWhitespace(collector.textContent));
+				}
+			}
+		}
+
+		void end() {
+			Element e = current;
+			int end = text.length();
+			if (e.inText) {
+				XMLElement xmlElement = AnnotationFactory.createAnnotation(jcas, e.begin, end, XMLElement.class);
+				xmlElement.setTag(e.tag);
+				xmlElement.setAttributes(attributeString(e));
+				applyRules(e, end);
+			}
+			applyGlobalRules(e);
+			if (e.textContent != null)
+				collectors.remove(e);
+			if (e.inText && (getTag(e.tag).isBlock() || e.is("l") || e.is("sp")))
+				text.append('\n');
+			current = e.parent;
+		}
+
+		void applyGlobalRules(Element e) {
+			if (e.is("title") && e.parentIs("titleStmt") && e.index == 0)
+				drama.setDocumentTitle(e.text());
+
+			if (e.is("idno", "type", "URL") && e.parentIs("bibl") && e.parent.parentIs("sourceDesc")
+					&& e.text().length() > 36)
+				drama.setDocumentId(e.text().substring(36));
+
+			if (e.is("author")) {
+				Author author = new Author(jcas);
+				author.setName(e.text());
+				if (e.attributes.containsKey("key"))
+					author.setPnd(e.attr("key").replace("pnd:", ""));
+				author.addToIndexes();
+			}
+
+			if (e.is("editor", "role", "translator")) {
+				Translator transl = new Translator(jcas);
+				transl.setName(e.text());
+				if (e.attributes.containsKey("key"))
+					transl.setPnd(e.attr("key").replace("pnd:", ""));
+				transl.addToIndexes();
+			}
+
+			if (e.is("date") && e.attributes.containsKey("when")) {
+				if (e.attr("type").equals("print"))
+					drama.setDatePrinted(Integer.valueOf(e.attr("when")));
+				else if (e.attr("type").equals("written"))
+					drama.setDateWritten(Integer.valueOf(e.attr("when")));
+				else if (e.attr("type").equals("premiere"))
+					drama.setDatePremiere(Integer.valueOf(e.attr("when")));
+			}
+
+			if (e.is("persName") && e.textContent != null) {
+				Element person = getPerson(e);
+				person.names.add(e.text());
+				if (e.attributes.containsKey("xml:id")) {
+					person.nameIds.add(e.attr("xml:id"));
+					xmlAlias.put(e.attr("xml:id"), person.attr("xml:id"));
+				}
+			}
+
+			if (isPerson(e)) {
+				CastFigure cf = new CastFigure(jcas);
+				List<String> nameList = new LinkedList<String>(e.names);
+				List<String> xmlIdList = new LinkedList<String>();
+				if (e.attributes.containsKey("xml:id"))
+					xmlIdList.add(e.attr("xml:id"));
+				if (e.attributes.containsKey("sex"))
+					cf.setGender(e.attr("sex"));
+				if (e.attributes.containsKey("age"))
+					cf.setAge(e.attr("age"));
+				xmlIdList.addAll(e.nameIds);
+				nameList.addAll(e.ownText);
+				cf.setXmlId(ArrayUtil.toStringArray(jcas, xmlIdList));
+				cf.setNames(ArrayUtil.toStringArray(jcas, nameList));
+				if (!nameList.isEmpty())
+					cf.setDisplayName(cf.getNames(0));
+				cf.addToIndexes();
+				register(e, cf);
+			}
+		}
+
+		void applyRules(Element e, int end) {
+			if (e.is("front"))
+				create(e, end, FrontMatter.class);
+			if (e.is("body"))
+				create(e, end, MainMatter.class);
+
+			// Segmentation
+			if (e.is("div", "type", "prologue"))
+				create(e, end, Act.class).setRegular(false);
+			if (e.is("div", "type", "act"))
+				create(e, end, Act.class).setRegular(true);
+			if (e.is("title") && e.parentIs("desc") && e.parent.parentIs("div") && e.parent.parent.parent != null) {
+				if (e.parent.parent.parent.is("div", "type", "act"))
+					create(e, end, ActHeading.class);
+				if (e.parent.parent.parent.is("div", "type", "scene"))
+					create(e, end, SceneHeading.class);
+			}
+			if (e.is("head") && e.parentIs("div") && e.parent.parent != null
+					&& e.parent.parent.is("div", "type", "act"))
+				create(e, end, ActHeading.class);
+			if (e.is("div", "type", "scene"))
+				create(e, end, Scene.class).setRegular(true);
+
+			// Dramatis Personae
+			if (e.is("castItem")) {
+				Element castList = e.ancestor("castList");
+				if (castList != null && castList.ancestor("body") != null)
+					create(e, end, Figure.class);
+			}
+			if (e.is("div", "type", "Dramatis_Personae"))
+				create(e, end, DramatisPersonae.class);
+
+			if (e.is("speaker")) {
+				Speaker speaker = create(e, end, Speaker.class);
+				for (Element sp = e.ancestor("sp"); sp != null; sp = sp.ancestor("sp"))
+					sp.speakers.add(speaker);
+			}
+			if (e.is("stage"))
+				create(e, end, StageDirection.class);
+			if (e.is("l") || e.is("p") || e.is("ab"))
+				create(e, end, Speech.class);
+			if (e.is("sp")) {
+				Utterance u = create(e, end, Utterance.class);
+				for (Speaker sp : e.speakers) {
+					String[] whos = e.attr("who").split(" ");
+					sp.setXmlId(new StringArray(jcas, whos.length));
+					sp.setCastFigure(new FSArray(jcas, whos.length));
+					for (int i = 0; i < whos.length; i++) {
+						String xmlid = stripHash(whos[i]);
+						sp.setXmlId(i, xmlid);
+						if (xmlAlias.containsKey(xmlid))
+							xmlid = xmlAlias.get(xmlid);
+						if (ids.get(xmlid) instanceof CastFigure) {
+							sp.setCastFigure(i, (CastFigure) ids.get(xmlid));
+							u.setCastFigure((CastFigure) ids.get(xmlid));
+						}
+					}
+				}
+			}
+
+			if (e.attributes.containsKey("xml:id") && e.ancestor("text") != null) {
+				String id = e.attr("xml:id");
+				DiscourseEntity de = new DiscourseEntity(jcas);
+				de.setDisplayName(id);
+				de.addToIndexes();
+				register(e, de);
+
+				Mention m = create(e, end, Mention.class);
+				FSArray arr = new FSArray(jcas, 1);
+				arr.addToIndexes();
+				m.setEntity(arr);
+				m.setEntity(0, (ids.get(id) instanceof DiscourseEntity ? (DiscourseEntity) ids.get(id) : de));
+			}
+
+			// mentions
+			if (e.attributes.containsKey("ref") && e.ancestor("text") != null) {
+				references.add(create(e, end, Mention.class));
+				referenceAttributes.add(e.attr("ref"));
+			}
+		}
+
+		/**
+		 * Sets the entities of all mentions, after the entire document has
+		 * been read
+		 */
+		void resolveReferences() {
+			Map<String, DiscourseEntity> fallbackEntities = new HashMap<String, DiscourseEntity>();
+			while (!references.isEmpty()) {
+				Mention cl = references.remove(0);
+				String[] splitted = referenceAttributes.remove(0).split(" ");
+				FSArray arr = new FSArray(jcas, splitted.length);
+				for (int i = 0; i < splitted.length; i++) {
+					String xmlId = stripHash(splitted[i]);
+
+					DiscourseEntity de = null;
+					if (ids.get(xmlId) instanceof DiscourseEntity)
+						de = (DiscourseEntity) ids.get(xmlId);
+					if (fallbackEntities.containsKey(xmlId))
+						de = fallbackEntities.get(xmlId);
+					if (de == null) {
+						de = new DiscourseEntity(jcas);
+						de.addToIndexes();
+						de.setDisplayName(cl.getCoveredText());
+						fallbackEntities.put(xmlId, de);
+					}
+					arr.set(i, de);
+				}
+				cl.setEntity(arr);
+			}
+		}
+
+		<T extends Annotation> T create(Element e, int end, Class<T> cl) {
+			return AnnotationFactory.createAnnotation(jcas, e.begin, end, cl);
+		}
+
+		void register(Element e, FeatureStructure fs) {
+			String id = e.attributes.get("xml:id");
+			if (id != null && !ids.containsKey(id))
+				ids.put(id, fs);
+		}
+
+		boolean isPerson(Element e) {
+			return e.is("person") && e.parentIs("listPerson") && e.parent.parentIs("particDesc");
+		}
+
+		Element getPerson(Element e) {
+			for (Element p = e.parent; p != null; p = p.parent)
+				if (isPerson(p))
+					return p;
+			return null;
+		}
+
+		/**
+		 * Same as jsoup: Looks at the element and five levels up.
+		 */
+		boolean preserveWhitespace(Element e) {
+			for (int i = 0; i < 6 && e != null; i++, e = e.parent)
+				if (getTag(e.tag).preserveWhitespace())
+					return true;
+			return false;
+		}
+	}
+
+	static String name(String prefix, String localName) {
+		if (prefix == null || prefix.isEmpty())
+			return localName;
+		if (localName == null || localName.isEmpty())
+			return prefix;
+		return prefix + ":" + localName;
+	}
+
+	static String stripHash(String s) {
+		return (s.startsWith("#") ? s.substring(1) : s);
+	}
+
+	static boolean lastCharIsWhitespace(StringBuilder b) {
+		return b.length() != 0 && b.charAt(b.length() - 1) == ' ';
+	}
+
+	/**
+	 * Formats the attributes like jsoup's Attributes.html()
+	 */
+	static String attributeString(Element e) {
+		StringBuilder b = new StringBuilder(e.namespaces);
+		for (Map.Entry<String, String> entry : e.attributes.entrySet())
+			b.append(' ').append(entry.getKey()).append("=\"").append(escape(entry.getValue())).append('"');
+		return b.toString();
+	}
+
+	static String escape(String s) {
+		StringBuilder b = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '&':
+				b.append("&amp;");
+				break;
+			case '"':
+				b.append("&quot;");
+				break;
+			case '\u00A0':
+				b.append("&nbsp;");
+				break;
+			default:
+				b.append(c);
+			}
+		}
+		return b.toString();
+	}
+}
@@ -1,12 +1,14 @@
 package de.unistuttgart.quadrama.io.tei;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
@@ -17,14 +19,41 @@ import de.tudarmstadt.ukp.dkpro.core.api.io.JCasFileWriter_ImplBase;
 import de.unistuttgart.quadrama.io.core.type.XMLElement;
 import de.unistuttgart.quadrama.io.core.type.XMLParsingDescription;
 
+/**
+ * Writes the document text with all {@link XMLElement} annotations as tags.
+ * Tag boundaries are collected and sorted once, text and tags are then written
+ * in a single forward pass directly into the output stream.
+ */
 public class TEIWriter extends JCasFileWriter_ImplBase {
 
 	@Override
 	public void process(JCas jcas) throws AnalysisEngineProcessException {
-		StringBuilder b = new StringBuilder(jcas.getDocumentText());
+		try {
+			Writer w = new BufferedWriter(new OutputStreamWriter(getOutputStream(jcas, ".xml")));
+			write(jcas, w);
+			w.flush();
+			w.close();
+		} catch (IOException e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+	}
+
+	/**
+	 * Writes the XML representation of the document in <code>jcas</code>.
+	 * 
+	 * @param jcas
+	 *            The document
+	 * @param w
+	 *            The target
+	 * @throws IOException
+	 *             If an I/O error occurs
+	 */
+	public static void write(JCas jcas, Writer w) throws IOException {
+		String text = jcas.getDocumentText();
 
 		Collection<XMLElement> htmls = JCasUtil.select(jcas, XMLElement.class);
-		Map<Integer, List<XMLElement>> positions = new HashMap<Integer, List<XMLElement>>();
+		// sorted by position
+		TreeMap<Integer, List<XMLElement>> positions = new TreeMap<Integer, List<XMLElement>>();
 
 		for (XMLElement h : htmls) {
 			if (!positions.containsKey(h.getBegin())) {
@@ -41,41 +70,38 @@ public class TEIWriter extends JCasFileWriter_ImplBase {
 
 		}
 
-		for (int i = b.length() + 10; i >= 0; i--) {
-			final int currentPos = i;
-			if (positions.containsKey(i)) {
-				TreeSet<XMLElement> ts = new TreeSet<XMLElement>(new AnnotationChooser(currentPos));
-				ts.addAll(positions.get(i));
-				for (XMLElement h : ts) {
-					if (h.getEnd() == h.getBegin()) {
-						b.insert(i, "<" + h.getTag() + h.getAttributes() + "/>");
-					} else {
-						if (h.getEnd() == i) {
-							b.insert(i, "</" + h.getTag() + ">");
-						} else if (h.getBegin() == i) {
-							b.insert(i, "<" + h.getTag() + h.getAttributes() + ">");
-						}
-					}
-				}
-			}
-		}
-
 		if (JCasUtil.exists(jcas, XMLParsingDescription.class)) {
 			XMLParsingDescription xpd = JCasUtil.selectSingle(jcas, XMLParsingDescription.class);
-			for (int i = xpd.getXmlDeclarations().size() - 1; i >= 0; i--) {
-				b.insert(0, xpd.getXmlDeclarations(i));
+			for (int i = 0; i < xpd.getXmlDeclarations().size(); i++) {
+				w.write(xpd.getXmlDeclarations(i));
 			}
 		} else {
-			b.insert(0, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+			w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
 		}
-		try {
-			OutputStreamWriter fos = new OutputStreamWriter(getOutputStream(jcas, ".xml"));
-			fos.write(b.toString());
-			fos.flush();
-			fos.close();
-		} catch (IOException e) {
-			throw new AnalysisEngineProcessException(e);
+
+		int written = 0;
+		for (Map.Entry<Integer, List<XMLElement>> entry : positions.subMap(0, true, text.length(), true).entrySet()) {
+			int currentPos = entry.getKey();
+			w.write(text, written, currentPos - written);
+			written = currentPos;
+
+			TreeSet<XMLElement> ts = new TreeSet<XMLElement>(new AnnotationChooser(currentPos));
+			ts.addAll(entry.getValue());
+			// the tree set contains the tags in reverse order of their
+			// appearance in the output
+			for (XMLElement h : ts.descendingSet()) {
+				if (h.getEnd() == h.getBegin()) {
+					w.write("<" + h.getTag() + h.getAttributes() + "/>");
+				} else {
+					if (h.getEnd() == currentPos) {
+						w.write("</" + h.getTag() + ">");
+					} else if (h.getBegin() == currentPos) {
+						w.write("<" + h.getTag() + h.getAttributes() + ">");
+					}
+				}
+			}
 		}
+		w.write(text, written, text.length() - written);
 	}
 
 }
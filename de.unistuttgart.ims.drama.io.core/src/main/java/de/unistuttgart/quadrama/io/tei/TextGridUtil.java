@@ -7,7 +7,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.IdentityHashMap;
 import java.util.NoSuchElementException;
 
 import org.apache.uima.collection.CollectionException;
@@ -35,9 +35,9 @@ import de.unistuttgart.ims.drama.api.Speaker;
 import de.unistuttgart.ims.drama.api.Speech;
 import de.unistuttgart.ims.drama.api.StageDirection;
 import de.unistuttgart.ims.drama.api.Utterance;
-import de.unistuttgart.ims.uima.io.xml.Visitor;
 import de.unistuttgart.ims.uima.io.xml.type.XMLElement;
 import de.unistuttgart.ims.uimautil.AnnotationUtil;
+import de.unistuttgart.quadrama.io.core.ElementMapVisitor;
 
 @Deprecated
 public class TextGridUtil {
@@ -64,26 +64,27 @@ public class TextGridUtil {
 			author.addToIndexes();
 		}
 
-		Visitor vis = new Visitor(jcas);
+		ElementMapVisitor vis = new ElementMapVisitor(jcas);
 
 		Element root = doc.select("TEI > text").first();
 		root.traverse(vis);
 		jcas = vis.getJCas();
+		IdentityHashMap<Element, XMLElement> map = vis.getElementMap();
 
-		select2Annotation(jcas, root, vis.getAnnotationMap(), "front", FrontMatter.class, null);
-		select2Annotation(jcas, root, vis.getAnnotationMap(), "body", MainMatter.class, null);
+		select2Annotation(jcas, root, map, "front", FrontMatter.class, null);
+		select2Annotation(jcas, root, map, "body", MainMatter.class, null);
 
 		MainMatter mainMatter = JCasUtil.selectSingle(jcas, MainMatter.class);
 
-		select2Annotation(jcas, root, vis.getAnnotationMap(), "speaker", Speaker.class, null);
-		select2Annotation(jcas, root, vis.getAnnotationMap(), "stage", StageDirection.class, mainMatter);
-		select2Annotation(jcas, root, vis.getAnnotationMap(), "sp", Utterance.class, null);
-		select2Annotation(jcas, root, vis.getAnnotationMap(), "l", Speech.class, mainMatter);
-		select2Annotation(jcas, root, vis.getAnnotationMap(), "ab", Speech.class, mainMatter);
-		select2Annotation(jcas, root, vis.getAnnotationMap(), "p", Speech.class, mainMatter);
+		select2Annotation(jcas, root, map, "speaker", Speaker.class, null);
+		select2Annotation(jcas, root, map, "stage", StageDirection.class, mainMatter);
+		select2Annotation(jcas, root, map, "sp", Utterance.class, null);
+		select2Annotation(jcas, root, map, "l", Speech.class, mainMatter);
+		select2Annotation(jcas, root, map, "ab", Speech.class, mainMatter);
+		select2Annotation(jcas, root, map, "p", Speech.class, mainMatter);
 
-		readActsAndScenes(jcas, root, vis.getAnnotationMap(), strict);
-		readDramatisPersonae(jcas, root, vis.getAnnotationMap());
+		readActsAndScenes(jcas, root, map, strict);
+		readDramatisPersonae(jcas, root, map);
 
 		fixSpeakerAnnotations(jcas);
 
@@ -97,7 +98,7 @@ public class TextGridUtil {
 
 	}
 
-	public static void readActs(JCas jcas, Element root, Map<String, XMLElement> map, boolean strict) {
+	public static void readActs(JCas jcas, Element root, IdentityHashMap<Element, XMLElement> map, boolean strict) {
 		if (!root.select("div[type=act]").isEmpty()) {
 			for (Act a : select2Annotation(jcas, root, map, "div[type=act]", Act.class, null)) {
 				a.setRegular(true);
@@ -131,7 +132,7 @@ public class TextGridUtil {
 	 * @param root
 	 * @param map
 	 */
-	public static void readScenes(JCas jcas, Element root, Map<String, XMLElement> map, boolean strict) {
+	public static void readScenes(JCas jcas, Element root, IdentityHashMap<Element, XMLElement> map, boolean strict) {
 		if (!root.select("div[type=scene]").isEmpty()) {
 			select2Annotation(jcas, root, map, "div[type=scene]", Scene.class, null);
 			select2Annotation(jcas, root, map, "div[type=scene] > div > desc > title", SceneHeading.class, null);
@@ -156,12 +157,13 @@ public class TextGridUtil {
 		}
 	}
 
-	public static void readActsAndScenes(JCas jcas, Element root, Map<String, XMLElement> map, boolean strict) {
+	public static void readActsAndScenes(JCas jcas, Element root, IdentityHashMap<Element, XMLElement> map,
+			boolean strict) {
 		readActs(jcas, root, map, strict);
 		readScenes(jcas, root, map, strict);
 	}
 
-	public static void readDramatisPersonae(JCas jcas, Element root, Map<String, XMLElement> map) {
+	public static void readDramatisPersonae(JCas jcas, Element root, IdentityHashMap<Element, XMLElement> map) {
 		DramatisPersonae dp;
 		if (!root.select("castList").isEmpty()) {
 			dp = select2Annotation(jcas, root, map, "castList", DramatisPersonae.class, null).iterator().next();
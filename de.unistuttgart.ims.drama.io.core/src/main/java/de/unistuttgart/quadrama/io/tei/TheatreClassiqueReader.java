@@ -7,12 +7,14 @@ import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.apache.uima.UimaContext;
 import org.apache.uima.collection.CollectionException;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.cas.FSArray;
 import org.apache.uima.jcas.cas.StringArray;
+import org.apache.uima.resource.ResourceInitializationException;
 
 import de.unistuttgart.ims.drama.api.Act;
 import de.unistuttgart.ims.drama.api.ActHeading;
@@ -29,9 +31,9 @@ import de.unistuttgart.ims.drama.api.Speech;
 import de.unistuttgart.ims.drama.api.StageDirection;
 import de.unistuttgart.ims.drama.api.Utterance;
 import de.unistuttgart.ims.uima.io.xml.ArrayUtil;
-import de.unistuttgart.ims.uima.io.xml.GenericXmlReader;
 import de.unistuttgart.ims.uimautil.AnnotationUtil;
 import de.unistuttgart.quadrama.io.core.AbstractDramaUrlReader;
+import de.unistuttgart.quadrama.io.core.XmlRuleSet;
 
 public class TheatreClassiqueReader extends AbstractDramaUrlReader {
 
@@ -45,43 +47,46 @@ public class TheatreClassiqueReader extends AbstractDramaUrlReader {
 	@ConfigurationParameter(name = PARAM_TEI_COMPAT, mandatory = false, defaultValue = "false")
 	boolean teiCompatibility = false;
 
+	XmlRuleSet<Drama> rules;
+
 	@Override
-	public void getNext(final JCas jcas, InputStream file, Drama drama) throws IOException, CollectionException {
+	public void initialize(UimaContext context) throws ResourceInitializationException {
+		super.initialize(context);
 
-		GenericXmlReader<Drama> gxr = new GenericXmlReader<Drama>(Drama.class);
-		gxr.setTextRootSelector(teiCompatibility ? null : "TEI > text");
-		gxr.setPreserveWhitespace(teiCompatibility);
+		rules = new XmlRuleSet<Drama>(Drama.class);
+		rules.setTextRootSelector(teiCompatibility ? null : "TEI > text");
+		rules.setPreserveWhitespace(teiCompatibility);
 
 		// title
-		gxr.addGlobalRule("titleStmt > title[type=main]", (d, e) -> d.setDocumentTitle(e.text()));
+		rules.addGlobalRule("titleStmt > title[type=main]", (d, e, c) -> d.setDocumentTitle(e.text()));
 
 		// id
-		gxr.addGlobalRule("publicationStmt > idno[type=cligs]", (d, e) -> d.setDocumentId(e.text()));
+		rules.addGlobalRule("publicationStmt > idno[type=cligs]", (d, e, c) -> d.setDocumentId(e.text()));
 
 		// author
-		gxr.addGlobalRule("author", Author.class, (author, e) -> {
+		rules.addGlobalRule("author", Author.class, (author, e, c) -> {
 			author.setName(e.select("name[type=full]").text());
 		});
 
 		// date printed
-		gxr.addGlobalRule("sourceDesc > bibl[type=print-source] > date",
-				(d, e) -> d.setDatePrinted(Integer.valueOf(e.text())));
+		rules.addGlobalRule("sourceDesc > bibl[type=print-source] > date",
+				(d, e, c) -> d.setDatePrinted(Integer.valueOf(e.text())));
 
 		// data premiere
-		gxr.addGlobalRule("sourceDesc > bibl[type=performance-first] > date",
-				(d, e) -> d.setDatePrinted(Integer.valueOf(e.text())));
+		rules.addGlobalRule("sourceDesc > bibl[type=performance-first] > date",
+				(d, e, c) -> d.setDatePrinted(Integer.valueOf(e.text())));
 
-		gxr.addRule("front", FrontMatter.class);
-		gxr.addRule("body", MainMatter.class);
+		rules.addRule("front", FrontMatter.class);
+		rules.addRule("body", MainMatter.class);
 
 		// segmentation
-		gxr.addRule("div[type=act]", Act.class, (a, e) -> a.setRegular(true));
-		gxr.addRule("div[type=act] > head", ActHeading.class);
+		rules.addRule("div[type=act]", Act.class, (a, e, c) -> a.setRegular(true));
+		rules.addRule("div[type=act] > head", ActHeading.class);
 
-		gxr.addRule("div[type=scene]", Scene.class, (a, e) -> a.setRegular(true));
-		gxr.addRule("div[type=scene] > head", SceneHeading.class);
+		rules.addRule("div[type=scene]", Scene.class, (a, e, c) -> a.setRegular(true));
+		rules.addRule("div[type=scene] > head", SceneHeading.class);
 
-		gxr.addGlobalRule("castList > castItem > role", CastFigure.class, (cf, e) -> {
+		rules.addGlobalRule("castList > castItem > role", CastFigure.class, (cf, e, c) -> {
 			List<String> nameList = new LinkedList<String>();
 			List<String> xmlIdList = new LinkedList<String>();
 
@@ -94,37 +99,40 @@ public class TheatreClassiqueReader extends AbstractDramaUrlReader {
 
 			// gather names
 			nameList.add(e.text());
-			cf.setXmlId(ArrayUtil.toStringArray(jcas, xmlIdList));
-			cf.setNames(ArrayUtil.toStringArray(jcas, nameList));
+			cf.setXmlId(ArrayUtil.toStringArray(c.getJCas(), xmlIdList));
+			cf.setNames(ArrayUtil.toStringArray(c.getJCas(), nameList));
 			cf.setDisplayName(cf.getNames(0));
 
 		});
 
-		gxr.addRule("speaker", Speaker.class);
-		gxr.addRule("stage", StageDirection.class);
-		gxr.addRule("l", Speech.class);
-		gxr.addRule("p", Speech.class);
-		gxr.addRule("ab", Speech.class);
+		rules.addRule("speaker", Speaker.class);
+		rules.addRule("stage", StageDirection.class);
+		rules.addRule("l", Speech.class);
+		rules.addRule("p", Speech.class);
+		rules.addRule("ab", Speech.class);
 
-		gxr.addRule("sp", Utterance.class, (u, e) -> {
+		rules.addRule("sp", Utterance.class, (u, e, c) -> {
 			Collection<Speaker> speakers = JCasUtil.selectCovered(Speaker.class, u);
 			for (Speaker sp : speakers) {
 				String[] whos = e.attr("who").split(" ");
-				sp.setXmlId(new StringArray(jcas, whos.length));
-				sp.setCastFigure(new FSArray(jcas, whos.length));
+				sp.setXmlId(new StringArray(c.getJCas(), whos.length));
+				sp.setCastFigure(new FSArray(c.getJCas(), whos.length));
 				for (int i = 0; i < whos.length; i++) {
 					// theatreclassique does not use # before ids
 					String xmlid = whos[i];
 					sp.setXmlId(i, xmlid);
-					if (gxr.exists(xmlid)) {
-						sp.setCastFigure(i, (CastFigure) gxr.getAnnotation(xmlid).getValue());
-						u.setCastFigure((CastFigure) gxr.getAnnotation(xmlid).getValue());
+					if (c.exists(xmlid)) {
+						sp.setCastFigure(i, (CastFigure) c.get(xmlid));
+						u.setCastFigure((CastFigure) c.get(xmlid));
 					}
 				}
 			}
 		});
+	}
 
-		gxr.read(jcas, file);
+	@Override
+	public void getNext(final JCas jcas, InputStream file, Drama drama) throws IOException, CollectionException {
+		rules.read(jcas, file);
 
 		AnnotationUtil.trim(new ArrayList<Figure>(JCasUtil.select(jcas, Figure.class)));
 		try {
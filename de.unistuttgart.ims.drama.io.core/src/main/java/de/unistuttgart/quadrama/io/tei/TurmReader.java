@@ -23,9 +23,9 @@ import de.unistuttgart.ims.drama.api.Speech;
 import de.unistuttgart.ims.drama.api.StageDirection;
 import de.unistuttgart.ims.drama.api.Utterance;
 import de.unistuttgart.ims.uima.io.xml.ArrayUtil;
-import de.unistuttgart.ims.uima.io.xml.GenericXmlReader;
 import de.unistuttgart.ims.uimautil.AnnotationUtil;
 import de.unistuttgart.quadrama.io.core.AbstractDramaUrlReader;
+import de.unistuttgart.quadrama.io.core.XmlRuleSet;
 
 public class TurmReader extends AbstractDramaUrlReader {
 
@@ -34,39 +34,40 @@ public class TurmReader extends AbstractDramaUrlReader {
 	@ConfigurationParameter(name = PARAM_STRICT, mandatory = false, defaultValue = "false")
 	boolean strict = false;
 
+	XmlRuleSet<Drama> rules;
+
 	@Override
 	public void initialize(UimaContext context) throws ResourceInitializationException {
 		super.initialize(context);
-	}
-
-	@Override
-	public void getNext(final JCas jcas, InputStream file, Drama drama) throws IOException, CollectionException {
 
-		GenericXmlReader<Drama> gxr = new GenericXmlReader<Drama>(Drama.class);
-		gxr.setTextRootSelector("TEI > text");
-		gxr.setPreserveWhitespace(false);
+		rules = new XmlRuleSet<Drama>(Drama.class);
+		rules.setTextRootSelector("TEI > text");
+		rules.setPreserveWhitespace(false);
 
-		gxr.addGlobalRule("castItem", CastFigure.class, (cf, e) -> {
-			cf.setNames(ArrayUtil.toStringArray(jcas, e.text()));
+		rules.addGlobalRule("castItem", CastFigure.class, (cf, e, c) -> {
+			cf.setNames(ArrayUtil.toStringArray(c.getJCas(), e.text()));
 			cf.setDisplayName(cf.getNames(0));
-			cf.setXmlId(ArrayUtil.toStringArray(jcas, e.text()));
+			cf.setXmlId(ArrayUtil.toStringArray(c.getJCas(), e.text()));
 		});
 
 		// segmentation
-		gxr.addRule("body > div", Act.class, (a, e) -> a.setRegular(true));
-		gxr.addRule("body > div  > head", ActHeading.class);
+		rules.addRule("body > div", Act.class, (a, e, c) -> a.setRegular(true));
+		rules.addRule("body > div  > head", ActHeading.class);
 
-		gxr.addRule("body > div > div", Scene.class, (a, e) -> a.setRegular(true));
-		gxr.addRule("body > div > div > head", SceneHeading.class);
+		rules.addRule("body > div > div", Scene.class, (a, e, c) -> a.setRegular(true));
+		rules.addRule("body > div > div > head", SceneHeading.class);
 
-		gxr.addRule("speaker", Speaker.class);
-		gxr.addRule("stage", StageDirection.class);
-		gxr.addRule("p", Speech.class);
-		gxr.addRule("l", Speech.class);
+		rules.addRule("speaker", Speaker.class);
+		rules.addRule("stage", StageDirection.class);
+		rules.addRule("p", Speech.class);
+		rules.addRule("l", Speech.class);
 
-		gxr.addRule("sp", Utterance.class);
+		rules.addRule("sp", Utterance.class);
+	}
 
-		gxr.read(jcas, file);
+	@Override
+	public void getNext(final JCas jcas, InputStream file, Drama drama) throws IOException, CollectionException {
+		rules.read(jcas, file);
 
 		AnnotationUtil.trim(new ArrayList<Speaker>(JCasUtil.select(jcas, Speaker.class)));
 		AnnotationUtil.trim(new ArrayList<Figure>(JCasUtil.select(jcas, Figure.class)));
@@ -21,9 +21,9 @@ import de.unistuttgart.ims.drama.api.Speaker;
 import de.unistuttgart.ims.drama.api.Speech;
 import de.unistuttgart.ims.drama.api.StageDirection;
 import de.unistuttgart.ims.drama.api.Utterance;
-import de.unistuttgart.ims.uima.io.xml.GenericXmlReader;
 import de.unistuttgart.ims.uimautil.AnnotationUtil;
 import de.unistuttgart.quadrama.io.core.AbstractDramaUrlReader;
+import de.unistuttgart.quadrama.io.core.XmlRuleSet;
 
 public class MinimalStructureReader extends AbstractDramaUrlReader {
 
@@ -36,35 +36,33 @@ public class MinimalStructureReader extends AbstractDramaUrlReader {
 	@ConfigurationParameter(name = PARAM_VALIDATE, mandatory = false, defaultValue = "true")
 	boolean validate = true;
 
+	XmlRuleSet<Drama> rules;
+
 	@Override
 	public void initialize(UimaContext context) throws ResourceInitializationException {
 		super.initialize(context);
-	}
-
-	@Override
-	public void getNext(final JCas jcas, InputStream file, Drama drama) throws IOException, CollectionException {
 
-		GenericXmlReader<Drama> gxr = new GenericXmlReader<Drama>(Drama.class);
-		gxr.setTextRootSelector("TEI > text");
-		gxr.setPreserveWhitespace(false);
+		rules = new XmlRuleSet<Drama>(Drama.class);
+		rules.setTextRootSelector("TEI > text");
+		rules.setPreserveWhitespace(false);
 
-		gxr.addRule("speaker", Speaker.class);
-		gxr.addRule("stage", StageDirection.class);
-		gxr.addRule("p", Speech.class);
-		gxr.addRule("div[type=scene]", Scene.class);
+		rules.addRule("speaker", Speaker.class);
+		rules.addRule("stage", StageDirection.class);
+		rules.addRule("p", Speech.class);
+		rules.addRule("div[type=scene]", Scene.class);
 
-		gxr.addRule("sp", Utterance.class, (u, e) -> {
+		rules.addRule("sp", Utterance.class, (u, e, c) -> {
 			Collection<Speaker> speakers = JCasUtil.selectCovered(Speaker.class, u);
 			for (Speaker sp : speakers) {
 				String[] whos = e.attr("who").split(" ");
-				sp.setXmlId(new StringArray(jcas, whos.length));
-				sp.setCastFigure(new FSArray(jcas, whos.length));
+				sp.setXmlId(new StringArray(c.getJCas(), whos.length));
+				sp.setCastFigure(new FSArray(c.getJCas(), whos.length));
 				for (int i = 0; i < whos.length; i++) {
 					String xmlid = whos[i].substring(1);
 					sp.setXmlId(i, xmlid);
-					if (gxr.exists(xmlid)) {
-						sp.setCastFigure(i, (CastFigure) gxr.getAnnotation(xmlid).getValue());
-						u.setCastFigure((CastFigure) gxr.getAnnotation(xmlid).getValue());
+					if (c.exists(xmlid)) {
+						sp.setCastFigure(i, (CastFigure) c.get(xmlid));
+						u.setCastFigure((CastFigure) c.get(xmlid));
 					} else {
 						// TODO: create CastFigure on the fly
 					}
@@ -72,8 +70,11 @@ public class MinimalStructureReader extends AbstractDramaUrlReader {
 				}
 			}
 		});
+	}
 
-		gxr.read(jcas, file);
+	@Override
+	public void getNext(final JCas jcas, InputStream file, Drama drama) throws IOException, CollectionException {
+		rules.read(jcas, file);
 
 		AnnotationUtil.trim(new ArrayList<Speech>(JCasUtil.select(jcas, Speech.class)));
 		AnnotationUtil.trim(new ArrayList<Utterance>(JCasUtil.select(jcas, Utterance.class)));
@@ -0,0 +1,64 @@
+"""Reads tables written by de.unistuttgart.quadrama.io.core.ExportAsColumns.
+
+Columns are read lazily from a memory-mapped file. Integer columns are numpy
+arrays (missing values are -2147483648), string columns are returned as
+pandas Categoricals if pandas is available, and as a pair of (codes, values)
+otherwise (missing values have the code -1).
+
+    table = ColumnFile("ndtw.0.UtterancesWithTokens.columns")
+    table.names
+    table["Token.lemma"]
+"""
+
+import mmap
+import struct
+
+import numpy as np
+
+MAGIC = b"QDCOLS01"
+TYPE_INT = 0
+TYPE_STRING = 1
+
+
+class ColumnFile(object):
+
+    def __init__(self, path):
+        with open(path, "rb") as f:
+            self.buffer = mmap.mmap(f.fileno(), 0, access=mmap.ACCESS_READ)
+        if self.buffer[0:8] != MAGIC:
+            raise ValueError("%s is not a column file" % path)
+        self.rows, ncols = struct.unpack_from("<ii", self.buffer, 8)
+        self.columns = {}
+        self.names = []
+        for c in range(ncols):
+            entry = struct.unpack_from("<iiqqq", self.buffer, 16 + 32 * c)
+            ctype, dict_size, name_offset, data_offset, dict_offset = entry
+            length, = struct.unpack_from("<i", self.buffer, name_offset)
+            name = self.buffer[name_offset + 4:name_offset + 4 + length].decode("utf-8")
+            self.names.append(name)
+            self.columns[name] = (ctype, dict_size, data_offset, dict_offset)
+
+    def codes(self, name):
+        """The raw int32 values of a column, without copying"""
+        ctype, dict_size, data_offset, dict_offset = self.columns[name]
+        return np.frombuffer(self.buffer, dtype="<i4", count=self.rows, offset=data_offset)
+
+    def dictionary(self, name):
+        """The values of a string column, indexed by code"""
+        ctype, dict_size, data_offset, dict_offset = self.columns[name]
+        if ctype != TYPE_STRING:
+            raise ValueError("%s is not a string column" % name)
+        offsets = np.frombuffer(self.buffer, dtype="<i4", count=dict_size + 1, offset=dict_offset)
+        start = dict_offset + 4 * (dict_size + 1)
+        return [self.buffer[start + offsets[i]:start + offsets[i + 1]].decode("utf-8")
+                for i in range(dict_size)]
+
+    def __getitem__(self, name):
+        ctype = self.columns[name][0]
+        if ctype == TYPE_INT:
+            return self.codes(name)
+        try:
+            import pandas as pd
+            return pd.Categorical.from_codes(self.codes(name), self.dictionary(name))
+        except ImportError:
+            return self.codes(name), self.dictionary(name)
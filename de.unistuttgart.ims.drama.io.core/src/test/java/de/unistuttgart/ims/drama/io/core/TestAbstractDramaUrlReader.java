@@ -0,0 +1,271 @@
+package de.unistuttgart.ims.drama.io.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.uima.UIMAException;
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.pipeline.SimplePipeline;
+import org.apache.uima.jcas.JCas;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import de.unistuttgart.ims.drama.api.Drama;
+import de.unistuttgart.quadrama.io.core.AbstractDramaUrlReader;
+
+public class TestAbstractDramaUrlReader {
+	HttpServer server;
+	AtomicInteger flakyRequests = new AtomicInteger();
+	AtomicInteger headRequests = new AtomicInteger();
+	File urlList;
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/doc", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				send(exchange, 200, exchange.getRequestURI().getPath().getBytes(StandardCharsets.UTF_8));
+			}
+		});
+		server.createContext("/flaky", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				if (flakyRequests.incrementAndGet() <= 2)
+					send(exchange, 503, new byte[0]);
+				else
+					send(exchange, 200, "flaky".getBytes(StandardCharsets.UTF_8));
+			}
+		});
+		server.createContext("/gzip", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				GZIPOutputStream gzos = new GZIPOutputStream(baos);
+				gzos.write("compressed".getBytes(StandardCharsets.UTF_8));
+				gzos.close();
+				exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+				send(exchange, 200, baos.toByteArray());
+			}
+		});
+		server.createContext("/sized", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				// /sizedN has N characters, the first HEAD request fails
+				int length = Integer.parseInt(exchange.getRequestURI().getPath().substring(6));
+				if (!exchange.getRequestMethod().equals("HEAD")) {
+					char[] content = new char[length];
+					Arrays.fill(content, 'x');
+					send(exchange, 200, new String(content).getBytes(StandardCharsets.UTF_8));
+				} else if (headRequests.incrementAndGet() == 1) {
+					send(exchange, 503, new byte[0]);
+				} else {
+					exchange.getResponseHeaders().set("Content-Length", String.valueOf(length));
+					exchange.sendResponseHeaders(200, -1);
+					exchange.close();
+				}
+			}
+		});
+		server.createContext("/slow", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				// HEAD requests take longer than the timeout
+				if (exchange.getRequestMethod().equals("HEAD")) {
+					try {
+						Thread.sleep(1000);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					send(exchange, 200, new byte[0]);
+				} else {
+					send(exchange, 200, "slow".getBytes(StandardCharsets.UTF_8));
+				}
+			}
+		});
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+
+		String base = "http://localhost:" + server.getAddress().getPort();
+		StringBuilder b = new StringBuilder();
+		for (int i = 0; i < 10; i++)
+			b.append(base).append("/doc").append(i).append('\n');
+		b.append(base).append("/flaky\n");
+		b.append(base).append("/gzip\n");
+		urlList = File.createTempFile("urls", ".tsv");
+		urlList.deleteOnExit();
+		FileUtils.writeStringToFile(urlList, b.toString(), "UTF-8");
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	public void testPrefetching() throws UIMAException {
+		assertEquals(expected(), read(3));
+	}
+
+	@Test
+	public void testWithoutPrefetching() throws UIMAException {
+		assertEquals(expected(), read(0));
+	}
+
+	@Test
+	public void testDirectory() throws UIMAException, IOException {
+		File dir = Files.createTempDirectory("drama").toFile();
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 5; i++) {
+			FileUtils.writeStringToFile(new File(dir, i + ".xml"), "file " + i, "UTF-8");
+			expected.add("file " + i);
+		}
+		FileUtils.writeStringToFile(new File(dir, "ignored.txt"), "ignored", "UTF-8");
+		FileUtils.writeStringToFile(new File(dir, "empty.tei"), "", "UTF-8");
+		expected.add("");
+		Collections.sort(expected);
+
+		for (int prefetchDepth : new int[] { 0, 2 }) {
+			List<String> texts = read(dir, prefetchDepth);
+			Collections.sort(texts);
+			assertEquals(expected, texts);
+		}
+		FileUtils.deleteDirectory(dir);
+	}
+
+	@Test
+	public void testSharding() throws UIMAException, IOException {
+		File dir = Files.createTempDirectory("drama").toFile();
+		for (int i = 0; i < 20; i++)
+			FileUtils.writeStringToFile(new File(dir, i + ".xml"), "file " + i, "UTF-8");
+
+		for (File input : new File[] { urlList, dir }) {
+			List<String> all = read(input, 0);
+			List<String> union = new ArrayList<String>();
+			for (int shard = 0; shard < 3; shard++) {
+				List<String> texts = read(input, 0, 3, shard);
+				List<String> again = read(input, 2, 3, shard);
+				assertTrue(texts.size() < all.size());
+				Collections.sort(texts);
+				Collections.sort(again);
+				assertEquals(texts, again);
+				union.addAll(texts);
+			}
+			Collections.sort(all);
+			Collections.sort(union);
+			assertEquals(all, union);
+		}
+		FileUtils.deleteDirectory(dir);
+	}
+
+	@Test
+	public void testLargestFirst() throws UIMAException, IOException {
+		File dir = Files.createTempDirectory("drama").toFile();
+		int[] lengths = new int[] { 3, 10, 1, 7, 5 };
+		for (int i = 0; i < lengths.length; i++) {
+			char[] content = new char[lengths[i]];
+			Arrays.fill(content, 'x');
+			FileUtils.writeStringToFile(new File(dir, i + ".xml"), new String(content), "UTF-8");
+		}
+
+		List<String> texts = new ArrayList<String>();
+		for (JCas jcas : SimplePipeline.iteratePipeline(CollectionReaderFactory.createReaderDescription(
+				TextReader.class, TextReader.PARAM_INPUT, dir.getAbsolutePath(), TextReader.PARAM_LARGEST_FIRST,
+				true))) {
+			texts.add(jcas.getDocumentText());
+		}
+		assertEquals(5, texts.size());
+		for (int i = 1; i < texts.size(); i++)
+			assertTrue(texts.get(i - 1).length() > texts.get(i).length());
+		FileUtils.deleteDirectory(dir);
+	}
+
+	@Test
+	public void testLargestFirstOverHttp() throws UIMAException, IOException {
+		String base = "http://localhost:" + server.getAddress().getPort();
+		File sizedList = File.createTempFile("urls", ".tsv");
+		sizedList.deleteOnExit();
+		FileUtils.writeStringToFile(sizedList,
+				base + "/sized3\n" + base + "/slow\n" + base + "/sized10\n" + base + "/sized1\n" + base + "/sized7\n",
+				"UTF-8");
+
+		for (int prefetchDepth : new int[] { 0, 2 }) {
+			headRequests.set(0);
+			List<String> texts = new ArrayList<String>();
+			for (JCas jcas : SimplePipeline.iteratePipeline(CollectionReaderFactory.createReaderDescription(
+					TextReader.class, TextReader.PARAM_INPUT, sizedList.getAbsolutePath(),
+					TextReader.PARAM_LARGEST_FIRST, true, TextReader.PARAM_PREFETCH_DEPTH, prefetchDepth,
+					TextReader.PARAM_RETRY_DELAY, 10, TextReader.PARAM_TIMEOUT, 100))) {
+				texts.add(jcas.getDocumentText());
+			}
+			// the failed HEAD request has been retried, the slow one timed out
+			assertEquals(Arrays.asList("xxxxxxxxxx", "xxxxxxx", "xxx", "x", "slow"), texts);
+			assertEquals(5, headRequests.get());
+		}
+	}
+
+	List<String> expected() {
+		List<String> texts = new ArrayList<String>();
+		for (int i = 0; i < 10; i++)
+			texts.add("/doc" + i);
+		texts.add("flaky");
+		texts.add("compressed");
+		return texts;
+	}
+
+	List<String> read(int prefetchDepth) throws UIMAException {
+		return read(urlList, prefetchDepth);
+	}
+
+	List<String> read(File input, int prefetchDepth) throws UIMAException {
+		return read(input, prefetchDepth, 1, 0);
+	}
+
+	List<String> read(File input, int prefetchDepth, int shardCount, int shardIndex) throws UIMAException {
+		List<String> texts = new ArrayList<String>();
+		for (JCas jcas : SimplePipeline.iteratePipeline(CollectionReaderFactory.createReaderDescription(
+				TextReader.class, TextReader.PARAM_INPUT, input.getAbsolutePath(), TextReader.PARAM_PREFETCH_DEPTH,
+				prefetchDepth, TextReader.PARAM_RETRY_DELAY, 10, TextReader.PARAM_SHARD_COUNT, shardCount,
+				TextReader.PARAM_SHARD_INDEX, shardIndex))) {
+			texts.add(jcas.getDocumentText());
+		}
+		return texts;
+	}
+
+	static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+		exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+		OutputStream os = exchange.getResponseBody();
+		os.write(body);
+		os.close();
+	}
+
+	public static class TextReader extends AbstractDramaUrlReader {
+		@Override
+		public void getNext(JCas jcas, InputStream is, Drama drama) throws IOException, CollectionException {
+			jcas.setDocumentText(IOUtils.toString(is, "UTF-8"));
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package de.unistuttgart.ims.drama.io.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import de.unistuttgart.quadrama.io.core.BackgroundWriter;
+
+public class TestBackgroundWriter {
+
+	@Test
+	public void testSharedWriter() throws IOException {
+		File file = File.createTempFile("test", ".csv");
+		file.deleteOnExit();
+
+		BackgroundWriter w1 = BackgroundWriter.open(file, false, "header\n");
+		BackgroundWriter w2 = BackgroundWriter.open(file, false, "header\n");
+		assertSame(w1, w2);
+		for (int i = 0; i < 100; i++) {
+			w1.append("a" + i + "\n");
+			w2.append("b" + i + "\n");
+		}
+		w1.close();
+		w2.append("c\n");
+		w2.close();
+
+		StringBuilder expected = new StringBuilder("header\n");
+		for (int i = 0; i < 100; i++)
+			expected.append("a" + i + "\n" + "b" + i + "\n");
+		expected.append("c\n");
+		assertEquals(expected.toString(), FileUtils.readFileToString(file, "UTF-8"));
+	}
+
+	@Test
+	public void testGzip() throws IOException {
+		File file = File.createTempFile("test", ".csv.gz");
+		file.deleteOnExit();
+
+		BackgroundWriter w = BackgroundWriter.open(file, true, "header\n");
+		w.append("Grüße\n");
+		w.close();
+
+		GZIPInputStream is = new GZIPInputStream(new FileInputStream(file));
+		assertEquals("header\nGrüße\n", IOUtils.toString(is, "UTF-8"));
+		is.close();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testClose() throws IOException {
+		File file = File.createTempFile("test", ".csv");
+		file.deleteOnExit();
+
+		BackgroundWriter w = BackgroundWriter.open(file, false, null);
+		w.close();
+		w.close();
+	}
+}
@@ -0,0 +1,72 @@
+package de.unistuttgart.ims.drama.io.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Iterator;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.UIMAException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.AnnotationFactory;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.pipeline.SimplePipeline;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import de.unistuttgart.ims.drama.api.Speaker;
+import de.unistuttgart.ims.drama.api.Utterance;
+import de.unistuttgart.quadrama.io.core.BinaryCasReader;
+import de.unistuttgart.quadrama.io.core.ExportAsBinaryCas;
+
+public class TestBinaryCas {
+	File directory = new File("target/test-output/bcas");
+
+	@Before
+	public void setUp() throws Exception {
+		FileUtils.deleteDirectory(directory);
+	}
+
+	@Test
+	public void testWriteAndRead() throws UIMAException {
+		JCas jcas = JCasFactory.createJCas();
+		jcas.setDocumentText("ROMEO. Julia!");
+		DocumentMetaData.create(jcas).setDocumentId("test");
+		Speaker speaker = AnnotationFactory.createAnnotation(jcas, 0, 6, Speaker.class);
+		AnnotationFactory.createAnnotation(jcas, 0, 13, Utterance.class);
+		jcas.createView("tmp:Utterances").setDocumentText("Julia!");
+		jcas.createView("other").setDocumentText("other");
+
+		SimplePipeline.runPipeline(jcas, AnalysisEngineFactory.createEngineDescription(ExportAsBinaryCas.class,
+				ExportAsBinaryCas.PARAM_TARGET_LOCATION, directory.getPath(), ExportAsBinaryCas.PARAM_USE_DOCUMENT_ID,
+				true));
+		assertTrue(new File(directory, "test.bcas").exists());
+
+		Iterator<JCas> iter = SimplePipeline.iteratePipeline(CollectionReaderFactory.createReaderDescription(
+				BinaryCasReader.class, BinaryCasReader.PARAM_SOURCE_LOCATION, directory.getPath() + "/*.bcas"))
+				.iterator();
+		JCas read = iter.next();
+		assertFalse(iter.hasNext());
+		assertEquals(jcas.getDocumentText(), read.getDocumentText());
+		assertEquals("test", DocumentMetaData.get(read).getDocumentId());
+		assertEquals(1, JCasUtil.select(read, Utterance.class).size());
+		Speaker readSpeaker = JCasUtil.selectSingle(read, Speaker.class);
+		assertEquals(speaker.getBegin(), readSpeaker.getBegin());
+		assertEquals(speaker.getEnd(), readSpeaker.getEnd());
+
+		Iterator<CAS> views = read.getCas().getViewIterator();
+		int n = 0;
+		while (views.hasNext()) {
+			assertFalse(views.next().getViewName().startsWith("tmp:"));
+			n++;
+		}
+		assertEquals(2, n);
+	}
+}
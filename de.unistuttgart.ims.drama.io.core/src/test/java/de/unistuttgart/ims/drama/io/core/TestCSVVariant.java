@@ -0,0 +1,255 @@
+package de.unistuttgart.ims.drama.io.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.jcas.cas.StringArray;
+import org.apache.uima.jcas.cas.TOP;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Lemma;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.unistuttgart.ims.drama.api.CastFigure;
+import de.unistuttgart.ims.drama.api.DiscourseEntity;
+import de.unistuttgart.ims.drama.api.Drama;
+import de.unistuttgart.ims.drama.api.FigureMention;
+import de.unistuttgart.ims.drama.api.Speaker;
+import de.unistuttgart.ims.drama.api.Utterance;
+import de.unistuttgart.ims.drama.util.DramaIndex;
+import de.unistuttgart.ims.drama.util.DramaUtil;
+import de.unistuttgart.quadrama.io.core.CSVVariant;
+
+public class TestCSVVariant {
+
+	static final String TEXT = "GRAF Emilia und der Prinz kommen . BEIDE Der Graf sieht den Prinzen . DIENER Ja . "
+			+ "EMILIA PRINZ Emilia weint . Odoardo geht .";
+
+	JCas jcas;
+
+	@Before
+	public void setUp() throws UIMAException {
+		jcas = JCasFactory.createJCas();
+		jcas.setDocumentText(TEXT);
+		Drama drama = new Drama(jcas);
+		drama.setCollectionId("test");
+		drama.setDocumentId("d.0");
+		drama.addToIndexes();
+
+		Matcher matcher = Pattern.compile("\\S+").matcher(TEXT);
+		while (matcher.find())
+			addToken(matcher.start(), matcher.end());
+
+		CastFigure graf = castFigure("Graf", "graf");
+		CastFigure emilia = castFigure("Emilia", "emilia");
+		// a figure without names and ids
+		CastFigure prinz = new CastFigure(jcas);
+		prinz.addToIndexes();
+
+		new Utterance(jcas, 0, 35).addToIndexes();
+		addSpeaker(0, 4, graf);
+		addMention(5, 11, emilia);
+		// "der" is covered by both, the longer one is printed. "Prinz" is
+		// covered by both as well, but the longest has been printed already
+		addMention(12, 19, graf);
+		addMention(16, 25, prinz);
+		addMention(20, 25, graf);
+
+		// a speaker with several cast figures, such that the rows are repeated
+		new Utterance(jcas, 35, 70).addToIndexes();
+		addSpeaker(35, 40, graf, emilia);
+		// mentions of equal length covering "Graf", the first one is chosen
+		addMention(41, 49, graf);
+		addMention(45, 53, emilia);
+		addMention(45, 49, prinz);
+		// mentions without entity or with an entity that is not a cast figure
+		addMention(50, 55, new DiscourseEntity(jcas));
+		addMention(56, 67, (TOP[]) null);
+
+		// a speaker without cast figures
+		new Utterance(jcas, 70, 82).addToIndexes();
+		addSpeaker(70, 76, (CastFigure[]) null);
+		addMention(77, 79, graf);
+
+		// two speakers
+		new Utterance(jcas, 82, 124).addToIndexes();
+		addSpeaker(82, 88, emilia);
+		addSpeaker(89, 94, prinz);
+		addMention(95, 101, emilia);
+		addMention(110, 117, graf);
+	}
+
+	@Test
+	public void testUtterancesWithTokens() throws IOException {
+		String expected = convertWithIndex(jcas);
+		assertEquals(expected, convert(jcas));
+
+		// check that the cases above are actually exercised
+		assertTrue(expected.contains("test,d.0,0,35,Graf,graf,und,NN,und,25,Graf,graf\r\n"));
+		assertTrue(expected.contains("test,d.0,0,35,Graf,graf,Prinz,NN,prinz,25,,\r\n"));
+		assertTrue(expected.contains("test,d.0,35,70,Graf,graf,Der,NN,der,25,Graf,graf\r\n"));
+		assertTrue(expected.contains("test,d.0,35,70,Graf,graf,Graf,NN,graf,25,,\r\n"));
+		assertTrue(expected.contains("test,d.0,35,70,Emilia,emilia,Der,NN,der,25,,\r\n"));
+		assertTrue(expected.contains("test,d.0,82,124,Emilia,emilia,Emilia,NN,emilia,25,Emilia,emilia\r\n"));
+		assertTrue(expected.contains("test,d.0,82,124,,,Emilia,NN,emilia,25,,\r\n"));
+		assertFalse(expected.contains(",70,82,"));
+	}
+
+	static String convert(JCas jcas) throws IOException {
+		StringWriter sw = new StringWriter();
+		CSVPrinter p = new CSVPrinter(sw, CSVFormat.DEFAULT);
+		CSVVariant.UtterancesWithTokens.convert(jcas, p);
+		p.close();
+		return sw.toString();
+	}
+
+	/**
+	 * The previous implementation of {@link CSVVariant#UtterancesWithTokens},
+	 * using maps over the whole document. Used as reference. Unlike the
+	 * original, it skips speakers without cast figures instead of failing.
+	 */
+	static String convertWithIndex(JCas jcas) throws IOException {
+		StringWriter sw = new StringWriter();
+		CSVPrinter p = new CSVPrinter(sw, CSVFormat.DEFAULT);
+		Map<Token, Collection<FigureMention>> mentionMap = JCasUtil.indexCovering(jcas, Token.class,
+				FigureMention.class);
+		Drama drama = JCasUtil.selectSingle(jcas, Drama.class);
+		int length = JCasUtil.select(jcas, Token.class).size();
+		Set<FigureMention> used = new HashSet<FigureMention>();
+		DramaIndex index = new DramaIndex(jcas);
+		for (Utterance utterance : index.getUtterances()) {
+			for (Speaker speaker : DramaUtil.getSpeakers(index, utterance)) {
+				if (speaker.getCastFigure() == null)
+					continue;
+				for (int i = 0; i < speaker.getCastFigure().size(); i++) {
+					for (Token token : JCasUtil.selectCovered(Token.class, utterance)) {
+						p.print(drama.getCollectionId());
+						p.print(drama.getDocumentId());
+						p.print(utterance.getBegin());
+						p.print(utterance.getEnd());
+						try {
+							p.print(speaker.getCastFigure(i).getNames(0));
+						} catch (Exception e) {
+							p.print(null);
+						}
+						try {
+							p.print(speaker.getCastFigure(i).getXmlId(0));
+						} catch (Exception e) {
+							p.print(null);
+						}
+						p.print(token.getCoveredText());
+						p.print(token.getPos().getPosValue());
+						p.print(token.getLemma().getValue());
+						p.print(length);
+						if (mentionMap.containsKey(token)) {
+							FigureMention fm = selectLongest(mentionMap.get(token));
+							if (used.contains(fm) || fm.getEntity() == null) {
+								p.print(null);
+								p.print(null);
+							} else {
+								DiscourseEntity de = fm.getEntity(0);
+								CastFigure cf = null;
+								if (de instanceof CastFigure) {
+									cf = (CastFigure) de;
+								}
+								try {
+									p.print(cf == null ? null : cf.getNames(0));
+								} catch (Exception e) {
+									p.print(null);
+								}
+								try {
+									p.print(cf == null ? null : cf.getXmlId(0));
+								} catch (Exception e) {
+									p.print(null);
+								}
+								used.add(fm);
+							}
+						} else {
+							p.print(null);
+							p.print(null);
+						}
+						p.println();
+					}
+				}
+			}
+		}
+		p.close();
+		return sw.toString();
+	}
+
+	static FigureMention selectLongest(Collection<FigureMention> coll) {
+		int l = -1;
+		FigureMention fm = null;
+		for (FigureMention ment : coll) {
+			int cl = ment.getEnd() - ment.getBegin();
+			if (cl > l) {
+				l = cl;
+				fm = ment;
+			}
+		}
+		return fm;
+	}
+
+	void addToken(int begin, int end) {
+		String text = TEXT.substring(begin, end);
+		POS pos = new POS(jcas, begin, end);
+		pos.setPosValue(text.equals(".") ? "$." : "NN");
+		pos.addToIndexes();
+		Lemma lemma = new Lemma(jcas, begin, end);
+		lemma.setValue(text.toLowerCase());
+		lemma.addToIndexes();
+		Token token = new Token(jcas, begin, end);
+		token.setPos(pos);
+		token.setLemma(lemma);
+		token.addToIndexes();
+	}
+
+	CastFigure castFigure(String name, String id) {
+		CastFigure cf = new CastFigure(jcas);
+		cf.setNames(new StringArray(jcas, 1));
+		cf.setNames(0, name);
+		cf.setXmlId(new StringArray(jcas, 1));
+		cf.setXmlId(0, id);
+		cf.addToIndexes();
+		return cf;
+	}
+
+	void addSpeaker(int begin, int end, CastFigure... castFigures) {
+		Speaker speaker = new Speaker(jcas, begin, end);
+		if (castFigures != null)
+			speaker.setCastFigure(array(castFigures));
+		speaker.addToIndexes();
+	}
+
+	void addMention(int begin, int end, TOP... entities) {
+		FigureMention mention = new FigureMention(jcas, begin, end);
+		if (entities != null)
+			mention.setEntity(array(entities));
+		mention.addToIndexes();
+	}
+
+	FSArray array(TOP... elements) {
+		FSArray array = new FSArray(jcas, elements.length);
+		for (int i = 0; i < elements.length; i++)
+			array.set(i, elements[i]);
+		return array;
+	}
+}
@@ -0,0 +1,135 @@
+package de.unistuttgart.ims.drama.io.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import de.unistuttgart.quadrama.io.core.CSVVariant;
+import de.unistuttgart.quadrama.io.core.ColumnarTable;
+
+public class TestColumnarTable {
+
+	@Test
+	public void testWrite() throws IOException {
+		ColumnarTable table = new ColumnarTable(String.class, Integer.class, String.class);
+		printRow(table, "drama", "begin", "Token.pos");
+		printRow(table, "rjmw.0", 0, "NN");
+		printRow(table, "rjmw.0", 5, null);
+		printRow(table, "rjmw.0", null, "NN");
+		printRow(table, "rjmw.0", 12, "VVFIN");
+		assertEquals(4, table.getRowCount());
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		table.write(baos);
+		ByteBuffer b = ByteBuffer.wrap(baos.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(0, b.limit() % 8);
+		assertEquals(ColumnarTable.MAGIC, string(b, 0, 8));
+		assertEquals(4, b.getInt(8));
+		assertEquals(3, b.getInt(12));
+
+		// drama
+		assertEquals(ColumnarTable.TYPE_STRING, b.getInt(16));
+		assertEquals(1, b.getInt(20));
+		assertEquals("drama", name(b, 0));
+		assertEquals("0,0,0,0", data(b, 0, 4));
+		assertEquals("rjmw.0", entry(b, 0, 0));
+
+		// begin
+		assertEquals(ColumnarTable.TYPE_INT, b.getInt(48));
+		assertEquals("begin", name(b, 1));
+		assertEquals("0,5," + ColumnarTable.NULL_INT + ",12", data(b, 1, 4));
+
+		// pos
+		assertEquals(ColumnarTable.TYPE_STRING, b.getInt(80));
+		assertEquals(2, b.getInt(84));
+		assertEquals("Token.pos", name(b, 2));
+		assertEquals("0," + ColumnarTable.NULL_CODE + ",0,1", data(b, 2, 4));
+		assertEquals("NN", entry(b, 2, 0));
+		assertEquals("VVFIN", entry(b, 2, 1));
+	}
+
+	@Test
+	public void testNullColumns() throws IOException {
+		ColumnarTable table = new ColumnarTable(String.class, Integer.class);
+		printRow(table, "Mentioned.figure_id", "length");
+		printRow(table, null, null);
+		printRow(table, null, null);
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		table.write(baos);
+		ByteBuffer b = ByteBuffer.wrap(baos.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+
+		// the type does not depend on the values
+		assertEquals(ColumnarTable.TYPE_STRING, b.getInt(16));
+		assertEquals(0, b.getInt(20));
+		assertEquals(ColumnarTable.NULL_CODE + "," + ColumnarTable.NULL_CODE, data(b, 0, 2));
+		assertEquals(ColumnarTable.TYPE_INT, b.getInt(48));
+		assertEquals(ColumnarTable.NULL_INT + "," + ColumnarTable.NULL_INT, data(b, 1, 2));
+	}
+
+	@Test
+	public void testVariantColumnTypes() throws IOException {
+		for (CSVVariant variant : CSVVariant.values()) {
+			ColumnarTable table = new ColumnarTable(variant.getColumnTypes());
+			variant.header(table);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testIntegerColumn() {
+		ColumnarTable table = new ColumnarTable(Integer.class);
+		printRow(table, "begin");
+		printRow(table, "rjmw.0");
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRowLength() {
+		ColumnarTable table = new ColumnarTable(String.class, Integer.class);
+		printRow(table, "drama", "begin");
+		printRow(table, "rjmw.0");
+	}
+
+	static void printRow(ColumnarTable table, Object... values) {
+		for (Object value : values)
+			table.print(value);
+		table.println();
+	}
+
+	static String string(ByteBuffer b, long offset, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++)
+			bytes[i] = b.get((int) offset + i);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	static String name(ByteBuffer b, int column) {
+		long offset = b.getLong(16 + 32 * column + 8);
+		return string(b, offset + 4, b.getInt((int) offset));
+	}
+
+	static String data(ByteBuffer b, int column, int rows) {
+		int offset = (int) b.getLong(16 + 32 * column + 16);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < rows; i++) {
+			if (i > 0)
+				sb.append(',');
+			sb.append(b.getInt(offset + 4 * i));
+		}
+		return sb.toString();
+	}
+
+	static String entry(ByteBuffer b, int column, int code) {
+		int size = b.getInt(16 + 32 * column + 4);
+		int offset = (int) b.getLong(16 + 32 * column + 24);
+		int start = offset + 4 * (size + 1);
+		int begin = b.getInt(offset + 4 * code);
+		int end = b.getInt(offset + 4 * code + 4);
+		return string(b, start + begin, end - begin);
+	}
+}
@@ -0,0 +1,102 @@
+package de.unistuttgart.ims.drama.io.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.ART;
+import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.NN;
+import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.unistuttgart.quadrama.io.core.XmlRuleSet;
+import de.unistuttgart.quadrama.io.core.type.XMLElement;
+
+public class TestXmlRuleSet {
+
+	JCas jcas;
+	XmlRuleSet<DocumentMetaData> rules;
+
+	@Before
+	public void setUp() throws UIMAException {
+		jcas = JCasFactory.createJCas();
+		rules = new XmlRuleSet<DocumentMetaData>(DocumentMetaData.class);
+		rules.setTextRootSelector("text > body");
+		rules.addGlobalRule("text > head > title:first-child", (d, e, c) -> d.setDocumentTitle(e.text()));
+		rules.addRule("s", Sentence.class);
+		rules.addRule("pos", POS.class, (anno, e, c) -> {
+			if (e.hasAttr("pos"))
+				anno.setPosValue(e.attr("pos"));
+		});
+	}
+
+	@Test
+	public void testRead() throws UIMAException, IOException {
+		String xmlString = "<text><head><title>The Dog Story</title><title>bla</title></head><body><s><pos pos=\"det\">the</pos> <pos pos=\"nn\">dog</pos> <pos pos=\"v\">barks</pos></s> <s><pos>The</pos> <pos>cat</pos> <pos>too</pos></s></body></text>";
+		rules.read(jcas, IOUtils.toInputStream(xmlString, "UTF-8"));
+
+		assertEquals("the dog barks The cat too\n", jcas.getDocumentText());
+		assertEquals(2, JCasUtil.select(jcas, Sentence.class).size());
+		assertEquals(6, JCasUtil.select(jcas, POS.class).size());
+		assertEquals("det", JCasUtil.selectByIndex(jcas, POS.class, 0).getPosValue());
+		assertEquals("nn", JCasUtil.selectByIndex(jcas, POS.class, 1).getPosValue());
+		assertEquals(9, JCasUtil.select(jcas, XMLElement.class).size());
+		assertEquals("The Dog Story", DocumentMetaData.get(jcas).getDocumentTitle());
+	}
+
+	@Test
+	public void testReuse() throws UIMAException, IOException {
+		String xmlString1 = "<text><head><title>One</title></head><body><s xml:id=\"s1\"><pos>A</pos></s></body></text>";
+		String xmlString2 = "<text><head><title>Two</title></head><body><s xml:id=\"s2\"><pos>B</pos> <pos>C</pos></s></body></text>";
+
+		XmlRuleSet.Context context = rules.read(jcas, IOUtils.toInputStream(xmlString1, "UTF-8"));
+		assertTrue(context.exists("s1"));
+		assertEquals("One", DocumentMetaData.get(jcas).getDocumentTitle());
+
+		jcas.reset();
+		context = rules.read(jcas, IOUtils.toInputStream(xmlString2, "UTF-8"));
+		assertFalse(context.exists("s1"));
+		assertTrue(context.exists("s2"));
+		assertEquals("B C\n", jcas.getDocumentText());
+		assertEquals(2, JCasUtil.select(jcas, POS.class).size());
+		assertEquals("Two", DocumentMetaData.get(jcas).getDocumentTitle());
+	}
+
+	@Test
+	public void testReferences() throws UIMAException, IOException {
+		String xmlString = "<text><body><s><pos ref=\"#n\">the</pos> <pos xml:id=\"n\">dog</pos></s> <s>barks</s></body></text>";
+		rules.addRule("body *[xml:id]", NN.class);
+		rules.addRule("s > *[ref]", ART.class, (anno, e, c) -> {
+			// refers to an element later in the document
+			assertTrue(c.exists(e.attr("ref").substring(1)));
+		});
+		rules.read(jcas, IOUtils.toInputStream(xmlString, "UTF-8"));
+
+		assertEquals(2, JCasUtil.select(jcas, Sentence.class).size());
+		assertEquals(1, JCasUtil.select(jcas, NN.class).size());
+		assertEquals("dog", JCasUtil.selectSingle(jcas, NN.class).getCoveredText());
+		assertEquals("the", JCasUtil.selectSingle(jcas, ART.class).getCoveredText());
+	}
+
+	@Test
+	public void testAttributesInPseudoSelectors() throws UIMAException, IOException {
+		String xmlString = "<text><body><s><pos ref=\"#n\">the</pos> <pos xml:id=\"n\">dog</pos></s> <s>barks</s></body></text>";
+		// the elements matched do not need to have a ref attribute
+		rules.addRule("s > *:not([ref])", NN.class);
+		rules.addRule("body > *:has([ref])", ART.class);
+		rules.read(jcas, IOUtils.toInputStream(xmlString, "UTF-8"));
+
+		assertEquals("dog", JCasUtil.selectSingle(jcas, NN.class).getCoveredText());
+		assertEquals("the dog", JCasUtil.selectSingle(jcas, ART.class).getCoveredText());
+	}
+}
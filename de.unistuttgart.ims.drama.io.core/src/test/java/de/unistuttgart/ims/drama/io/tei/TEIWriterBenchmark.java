@@ -0,0 +1,51 @@
+package de.unistuttgart.ims.drama.io.tei;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+
+import de.unistuttgart.quadrama.io.core.type.XMLElement;
+import de.unistuttgart.quadrama.io.tei.TEIWriter;
+
+/**
+ * Compares the time needed by {@link TEIWriter} with the previous
+ * implementation that inserts tags into a string (see
+ * {@link TestTEIWriter#writeWithInsert(JCas)}).
+ *
+ * Usage: <code>TEIWriterBenchmark [iterations] [GerDraCor id ...]</code>
+ */
+public class TEIWriterBenchmark {
+
+	public static void main(String[] args) throws UIMAException, IOException {
+		int iterations = (args.length > 0 ? Integer.valueOf(args[0]) : 10);
+		String[] ids = (args.length > 1 ? Arrays.copyOfRange(args, 1, args.length)
+				: new String[] { "ndtw.0", "qfxf.0", "rjmw.0" });
+
+		for (String id : ids) {
+			JCas jcas = TestTEIWriter.readPlay(id);
+
+			// the first runs are not measured
+			int warmup = Math.min(3, iterations);
+			long timeInsert = 0;
+			long timeStream = 0;
+			for (int i = 0; i < warmup + iterations; i++) {
+				long start = System.nanoTime();
+				TestTEIWriter.writeWithInsert(jcas);
+				long middle = System.nanoTime();
+				TestTEIWriter.write(jcas);
+				long end = System.nanoTime();
+				if (i >= warmup) {
+					timeInsert += middle - start;
+					timeStream += end - middle;
+				}
+			}
+
+			System.out.println(id + ": " + JCasUtil.select(jcas, XMLElement.class).size() + " elements, insert: "
+					+ (timeInsert / iterations / 1000000) + " ms, streaming: " + (timeStream / iterations / 1000000)
+					+ " ms");
+		}
+	}
+}
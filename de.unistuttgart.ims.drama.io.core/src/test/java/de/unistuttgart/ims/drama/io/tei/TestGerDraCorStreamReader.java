@@ -0,0 +1,136 @@
+package de.unistuttgart.ims.drama.io.tei;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.pipeline.SimplePipeline;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.junit.Test;
+
+import de.unistuttgart.ims.drama.api.Act;
+import de.unistuttgart.ims.drama.api.ActHeading;
+import de.unistuttgart.ims.drama.api.Author;
+import de.unistuttgart.ims.drama.api.CastFigure;
+import de.unistuttgart.ims.drama.api.Drama;
+import de.unistuttgart.ims.drama.api.DramatisPersonae;
+import de.unistuttgart.ims.drama.api.Figure;
+import de.unistuttgart.ims.drama.api.FrontMatter;
+import de.unistuttgart.ims.drama.api.MainMatter;
+import de.unistuttgart.ims.drama.api.Mention;
+import de.unistuttgart.ims.drama.api.Scene;
+import de.unistuttgart.ims.drama.api.SceneHeading;
+import de.unistuttgart.ims.drama.api.Speaker;
+import de.unistuttgart.ims.drama.api.Speech;
+import de.unistuttgart.ims.drama.api.StageDirection;
+import de.unistuttgart.ims.drama.api.Utterance;
+import de.unistuttgart.ims.drama.io.TestGenerics;
+import de.unistuttgart.quadrama.io.core.type.XMLElement;
+import de.unistuttgart.quadrama.io.tei.GerDraCorReader;
+import de.unistuttgart.quadrama.io.tei.GerDraCorStreamReader;
+
+public class TestGerDraCorStreamReader {
+
+	@SuppressWarnings("unchecked")
+	static List<Class<? extends Annotation>> types = Arrays.asList(Act.class, ActHeading.class, Scene.class,
+			SceneHeading.class, Speaker.class, Utterance.class, Speech.class, StageDirection.class, Figure.class,
+			DramatisPersonae.class, FrontMatter.class, MainMatter.class, Mention.class, XMLElement.class);
+
+	@Test
+	public void testNdtw0() throws UIMAException {
+		JCas jcas = compare("src/test/resources/gerdracor/ndtw.0.xml");
+
+		TestGenerics.checkMinimalStructure(jcas);
+		TestGenerics.checkMetadata(jcas);
+
+		assertEquals("ndtw.0", JCasUtil.selectSingle(jcas, Drama.class).getDocumentId());
+		assertEquals(54991, jcas.getDocumentText().length());
+		assertEquals(14, JCasUtil.select(jcas, CastFigure.class).size());
+	}
+
+	@Test
+	public void testQfxf0() throws UIMAException {
+		JCas jcas = compare("src/test/resources/gerdracor/qfxf.0.xml");
+
+		TestGenerics.checkMinimalStructure(jcas);
+		TestGenerics.checkMetadata(jcas);
+		TestGenerics.checkSanity(jcas);
+
+		assertEquals(122999, jcas.getDocumentText().length());
+		assertEquals(1838, JCasUtil.selectSingle(jcas, Drama.class).getDatePrinted());
+		assertEquals(1832, JCasUtil.selectSingle(jcas, Drama.class).getDatePremiere());
+	}
+
+	@Test
+	public void testRjmw0() throws UIMAException {
+		JCas jcas = compare("src/test/resources/gerdracor/rjmw.0.xml");
+
+		TestGenerics.checkMinimalStructure(jcas);
+		TestGenerics.checkMetadata(jcas);
+		TestGenerics.checkSanity(jcas);
+
+		assertEquals(170841, jcas.getDocumentText().length());
+		Author a = JCasUtil.selectSingle(jcas, Author.class);
+		assertEquals("Lessing, Gotthold Ephraim", a.getName());
+		assertEquals("118572121", a.getPnd());
+
+		for (Speaker speaker : JCasUtil.select(jcas, Speaker.class)) {
+			assertNotNull(speaker.getCastFigure());
+			assertNotNull(speaker.getCastFigure(0));
+		}
+	}
+
+	@Test
+	public void testR0n20() throws UIMAException {
+		JCas jcas = compare("src/test/resources/gerdracor/r0n2.0.xml");
+
+		TestGenerics.checkMetadata(jcas);
+		TestGenerics.checkMinimalStructure(jcas);
+		assertEquals(24, JCasUtil.select(jcas, Scene.class).size());
+	}
+
+	/**
+	 * Reads the file with both readers and checks that the results agree.
+	 *
+	 * @return The CAS produced by {@link GerDraCorStreamReader}
+	 */
+	static JCas compare(String file) throws UIMAException {
+		JCas expected = SimplePipeline.iteratePipeline(CollectionReaderFactory
+				.createReaderDescription(GerDraCorReader.class, GerDraCorReader.PARAM_INPUT, file)).iterator().next();
+		JCas actual = SimplePipeline.iteratePipeline(CollectionReaderFactory
+				.createReaderDescription(GerDraCorStreamReader.class, GerDraCorStreamReader.PARAM_INPUT, file))
+				.iterator().next();
+
+		assertEquals(expected.getDocumentText(), actual.getDocumentText());
+		assertEquals(expected.getDocumentLanguage(), actual.getDocumentLanguage());
+
+		Drama eDrama = JCasUtil.selectSingle(expected, Drama.class);
+		Drama aDrama = JCasUtil.selectSingle(actual, Drama.class);
+		assertEquals(eDrama.getDocumentId(), aDrama.getDocumentId());
+		assertEquals(eDrama.getDocumentTitle(), aDrama.getDocumentTitle());
+		assertEquals(eDrama.getDatePrinted(), aDrama.getDatePrinted());
+		assertEquals(eDrama.getDateWritten(), aDrama.getDateWritten());
+		assertEquals(eDrama.getDatePremiere(), aDrama.getDatePremiere());
+
+		for (Class<? extends Annotation> type : types)
+			assertEquals(type.getSimpleName(), spans(expected, type), spans(actual, type));
+		assertEquals(JCasUtil.select(expected, CastFigure.class).size(),
+				JCasUtil.select(actual, CastFigure.class).size());
+		assertEquals(JCasUtil.select(expected, Author.class).size(), JCasUtil.select(actual, Author.class).size());
+		return actual;
+	}
+
+	static List<String> spans(JCas jcas, Class<? extends Annotation> type) {
+		List<String> spans = new ArrayList<String>();
+		for (Annotation a : JCasUtil.select(jcas, type))
+			spans.add(a.getBegin() + "-" + a.getEnd());
+		return spans;
+	}
+}
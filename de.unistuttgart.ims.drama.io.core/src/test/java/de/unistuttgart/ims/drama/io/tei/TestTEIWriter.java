@@ -0,0 +1,135 @@
+package de.unistuttgart.ims.drama.io.tei;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.AnnotationFactory;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.pipeline.SimplePipeline;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.junit.Test;
+
+import de.unistuttgart.ims.drama.api.Scene;
+import de.unistuttgart.ims.drama.api.Speaker;
+import de.unistuttgart.ims.drama.api.Speech;
+import de.unistuttgart.ims.drama.api.Utterance;
+import de.unistuttgart.quadrama.io.core.type.XMLElement;
+import de.unistuttgart.quadrama.io.tei.AnnotationChooser;
+import de.unistuttgart.quadrama.io.tei.GerDraCorReader;
+import de.unistuttgart.quadrama.io.tei.TEIWriter;
+
+public class TestTEIWriter {
+
+	@Test
+	public void testSimple() throws UIMAException, IOException {
+		JCas jcas = JCasFactory.createJCas();
+		jcas.setDocumentText("the dog barks");
+		createElement(jcas, 0, 13, "s", "");
+		createElement(jcas, 0, 3, "w", " pos=\"det\"");
+		createElement(jcas, 4, 7, "w", "");
+		createElement(jcas, 7, 7, "lb", "");
+		createElement(jcas, 8, 13, "w", "");
+
+		assertEquals(
+				"<?xml version=\"1.0\" encoding=\"UTF-8\"?><s><w pos=\"det\">the</w> <w>dog</w><lb/> <w>barks</w></s>",
+				write(jcas));
+		assertEquals(writeWithInsert(jcas), write(jcas));
+	}
+
+	@Test
+	public void testPlays() throws UIMAException, IOException {
+		for (String id : new String[] { "ndtw.0", "qfxf.0", "rjmw.0" }) {
+			JCas jcas = readPlay(id);
+			assertEquals(writeWithInsert(jcas), write(jcas));
+		}
+	}
+
+	static JCas readPlay(String id) throws UIMAException {
+		JCas jcas = SimplePipeline.iteratePipeline(CollectionReaderFactory.createReaderDescription(
+				GerDraCorReader.class, GerDraCorReader.PARAM_INPUT, "src/test/resources/gerdracor/" + id + ".xml"))
+				.iterator().next();
+		addElements(jcas, Scene.class, "div");
+		addElements(jcas, Utterance.class, "sp");
+		addElements(jcas, Speaker.class, "speaker");
+		addElements(jcas, Speech.class, "l");
+		return jcas;
+	}
+
+	static String write(JCas jcas) throws IOException {
+		StringWriter sw = new StringWriter();
+		TEIWriter.write(jcas, sw);
+		return sw.toString();
+	}
+
+	static <T extends Annotation> void addElements(JCas jcas, Class<T> cl, String tag) {
+		for (T anno : JCasUtil.select(jcas, cl)) {
+			createElement(jcas, anno.getBegin(), anno.getEnd(), tag, "");
+		}
+	}
+
+	static XMLElement createElement(JCas jcas, int begin, int end, String tag, String attributes) {
+		XMLElement elm = AnnotationFactory.createAnnotation(jcas, begin, end, XMLElement.class);
+		elm.setTag(tag);
+		elm.setAttributes(attributes);
+		return elm;
+	}
+
+	/**
+	 * The previous implementation of {@link TEIWriter}, inserting tags into a
+	 * {@link StringBuilder}. Used as reference.
+	 */
+	static String writeWithInsert(JCas jcas) {
+		StringBuilder b = new StringBuilder(jcas.getDocumentText());
+
+		Collection<XMLElement> htmls = JCasUtil.select(jcas, XMLElement.class);
+		Map<Integer, List<XMLElement>> positions = new HashMap<Integer, List<XMLElement>>();
+
+		for (XMLElement h : htmls) {
+			if (!positions.containsKey(h.getBegin())) {
+				positions.put(h.getBegin(), new LinkedList<XMLElement>());
+			}
+			positions.get(h.getBegin()).add(h);
+			if (h.getBegin() != h.getEnd()) {
+
+				if (!positions.containsKey(h.getEnd())) {
+					positions.put(h.getEnd(), new LinkedList<XMLElement>());
+				}
+				positions.get(h.getEnd()).add(h);
+			}
+
+		}
+
+		for (int i = b.length() + 10; i >= 0; i--) {
+			final int currentPos = i;
+			if (positions.containsKey(i)) {
+				TreeSet<XMLElement> ts = new TreeSet<XMLElement>(new AnnotationChooser(currentPos));
+				ts.addAll(positions.get(i));
+				for (XMLElement h : ts) {
+					if (h.getEnd() == h.getBegin()) {
+						b.insert(i, "<" + h.getTag() + h.getAttributes() + "/>");
+					} else {
+						if (h.getEnd() == i) {
+							b.insert(i, "</" + h.getTag() + ">");
+						} else if (h.getBegin() == i) {
+							b.insert(i, "<" + h.getTag() + h.getAttributes() + ">");
+						}
+					}
+				}
+			}
+		}
+		b.insert(0, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		return b.toString();
+	}
+}
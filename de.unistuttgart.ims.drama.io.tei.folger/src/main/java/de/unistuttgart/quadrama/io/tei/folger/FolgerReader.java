@@ -18,6 +18,7 @@ import de.unistuttgart.ims.drama.api.Drama;
 import de.unistuttgart.ims.uima.io.xml.Visitor;
 import de.unistuttgart.ims.uima.io.xml.type.XMLElement;
 import de.unistuttgart.quadrama.io.core.AbstractDramaUrlReader;
+import de.unistuttgart.quadrama.io.core.ElementMapVisitor;
 
 public class FolgerReader extends AbstractDramaUrlReader {
 
@@ -37,7 +38,7 @@ public class FolgerReader extends AbstractDramaUrlReader {
 
 	}
 
-	public class FolgerVisitor extends Visitor {
+	public class FolgerVisitor extends ElementMapVisitor {
 
 		public FolgerVisitor(JCas jcas) {
 			super(jcas);
@@ -64,7 +65,7 @@ public class FolgerReader extends AbstractDramaUrlReader {
 					anno.setCls(elm.attr("type"));
 				else
 					anno.setCls(elm.className());
-				annotationMap.put(elm.cssSelector(), anno);
+				elementMap.put(elm, anno);
 				if (elm.isBlock() || ArrayUtils.contains(blockElements, elm.tagName()))
 					builder.add("\n");
 
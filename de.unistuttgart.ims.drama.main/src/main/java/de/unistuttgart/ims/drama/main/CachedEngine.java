@@ -0,0 +1,304 @@
+package de.unistuttgart.ims.drama.main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.CASRuntimeException;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.InvalidXMLException;
+import org.apache.uima.util.Level;
+import org.apache.uima.util.XMLInputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Runs a delegate analysis engine and stores the resulting CAS on disk, in
+ * UIMA's compressed binary format (form 6). The key of a cache entry is a hash
+ * over the CAS before the delegate runs (i.e., the document as it comes from
+ * the reader) and the descriptor of the delegate, including its configuration
+ * parameters and type system. If an entry exists, the CAS is restored from it
+ * and the delegate is not run.
+ *
+ * The cache is all or nothing: Either the entire delegate is skipped, or it is
+ * run completely. Changes in the code of the delegate components are not
+ * detected, and neither are changes in files they read, apart from the
+ * descriptor (e.g., a model file that is replaced under the same name). The
+ * cache directory needs to be cleared manually in these cases, the delegate
+ * should therefore only contain deterministic steps whose data do not change
+ * between runs. When the cache grows
+ * beyond {@link #PARAM_CACHE_SIZE}, the entries that have not been used for the
+ * longest time are removed. Several instances, e.g., in a
+ * {@link ParallelPipeline}, can use the same directory.
+ *
+ * The size of the cache is determined once when the first instance for a
+ * directory is initialized, and then updated with each entry written. The
+ * directory is only scanned again when the size exceeds the limit. Entries
+ * written by other processes are therefore not noticed until then.
+ *
+ * @since 1.0.1
+ */
+public class CachedEngine extends JCasAnnotator_ImplBase {
+
+	public static final String PARAM_DELEGATE = "Delegate";
+	public static final String PARAM_CACHE_DIRECTORY = "Cache Directory";
+
+	/**
+	 * The maximal size of the cache directory, in megabytes
+	 */
+	public static final String PARAM_CACHE_SIZE = "Cache Size";
+
+	static final String SUFFIX = ".bcas";
+
+	/**
+	 * The size of each cache directory in use, in bytes, shared by all
+	 * instances within the JVM
+	 */
+	static final ConcurrentMap<String, AtomicLong> cacheSizes = new ConcurrentHashMap<String, AtomicLong>();
+
+	@ConfigurationParameter(name = PARAM_DELEGATE)
+	String delegateDescription;
+
+	@ConfigurationParameter(name = PARAM_CACHE_DIRECTORY)
+	String cacheDirectoryName;
+
+	@ConfigurationParameter(name = PARAM_CACHE_SIZE, mandatory = false, defaultValue = "10240")
+	int cacheSize;
+
+	AnalysisEngine delegate;
+	File cacheDirectory;
+	byte[] configurationHash;
+	AtomicLong usedSpace;
+
+	int hits = 0;
+	int misses = 0;
+
+	@Override
+	public void initialize(final UimaContext context) throws ResourceInitializationException {
+		super.initialize(context);
+		cacheDirectory = new File(cacheDirectoryName);
+		if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs())
+			throw new ResourceInitializationException();
+
+		try {
+			String key = cacheDirectory.getCanonicalPath();
+			usedSpace = cacheSizes.get(key);
+			if (usedSpace == null) {
+				AtomicLong size = new AtomicLong(size(listEntries()));
+				usedSpace = cacheSizes.putIfAbsent(key, size);
+				if (usedSpace == null)
+					usedSpace = size;
+			}
+		} catch (IOException e) {
+			throw new ResourceInitializationException(e);
+		}
+
+		try {
+			AnalysisEngineDescription description = UIMAFramework.getXMLParser()
+					.parseAnalysisEngineDescription(new XMLInputSource(
+							new ByteArrayInputStream(delegateDescription.getBytes(StandardCharsets.UTF_8)), null));
+			delegate = AnalysisEngineFactory.createEngine(description);
+			configurationHash = newDigest().digest(delegateDescription.getBytes(StandardCharsets.UTF_8));
+		} catch (InvalidXMLException e) {
+			throw new ResourceInitializationException(e);
+		}
+	}
+
+	@Override
+	public void process(JCas jcas) throws AnalysisEngineProcessException {
+		CAS cas = jcas.getCas();
+		byte[] input;
+		try {
+			input = serialize(cas);
+		} catch (IOException | ResourceInitializationException e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+		MessageDigest digest = newDigest();
+		digest.update(configurationHash);
+		File file = new File(cacheDirectory, hex(digest.digest(input)) + SUFFIX);
+
+		if (file.exists()) {
+			try {
+				read(file, cas);
+				file.setLastModified(System.currentTimeMillis());
+				hits++;
+				return;
+			} catch (IOException | CASRuntimeException e) {
+				getLogger().log(Level.WARNING, "Could not read cache entry " + file.getName() + ": " + e.getMessage());
+				long length = file.length();
+				if (file.delete())
+					usedSpace.addAndGet(-length);
+				Serialization.deserializeCAS(cas, new ByteArrayInputStream(input));
+			}
+		}
+		misses++;
+		delegate.process(jcas);
+
+		try {
+			write(file, cas);
+			if (usedSpace.addAndGet(file.length()) > cacheSize * 1024L * 1024L)
+				evict();
+		} catch (IOException | ResourceInitializationException e) {
+			getLogger().log(Level.WARNING, "Could not write cache entry " + file.getName() + ": " + e.getMessage());
+		}
+	}
+
+	@Override
+	public void collectionProcessComplete() throws AnalysisEngineProcessException {
+		super.collectionProcessComplete();
+		delegate.collectionProcessComplete();
+		getLogger().log(Level.INFO, "Annotation cache: " + hits + " hits, " + misses + " misses.");
+	}
+
+	@Override
+	public void destroy() {
+		delegate.destroy();
+		super.destroy();
+	}
+
+	/**
+	 * Removes the least recently used entries until the cache fits into its
+	 * size. The size is determined anew from the directory, as other
+	 * instances may have written the same entries.
+	 */
+	protected void evict() {
+		synchronized (usedSpace) {
+			long maxSize = cacheSize * 1024L * 1024L;
+			if (usedSpace.get() <= maxSize)
+				return;
+			File[] files = listEntries();
+			long size = size(files);
+			if (size > maxSize) {
+				Arrays.sort(files, new Comparator<File>() {
+					@Override
+					public int compare(File o1, File o2) {
+						return Long.compare(o1.lastModified(), o2.lastModified());
+					}
+				});
+				for (int i = 0; i < files.length && size > maxSize; i++) {
+					long length = files[i].length();
+					if (files[i].delete())
+						size -= length;
+				}
+			}
+			usedSpace.set(size);
+		}
+	}
+
+	protected File[] listEntries() {
+		File[] files = cacheDirectory.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File f) {
+				return f.getName().endsWith(SUFFIX);
+			}
+		});
+		return (files == null ? new File[0] : files);
+	}
+
+	protected static long size(File[] files) {
+		long size = 0;
+		for (File f : files)
+			size += f.length();
+		return size;
+	}
+
+	protected static byte[] serialize(CAS cas) throws IOException, ResourceInitializationException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		Serialization.serializeWithCompression(cas, bos, cas.getTypeSystem());
+		return bos.toByteArray();
+	}
+
+	protected static void read(File file, CAS cas) throws IOException {
+		InputStream is = null;
+		try {
+			is = new BufferedInputStream(new FileInputStream(file));
+			Serialization.deserializeCAS(cas, is);
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+
+	protected void write(File file, CAS cas) throws IOException, ResourceInitializationException {
+		// entries are renamed into place, such that other instances never see
+		// an incomplete file
+		File tmpFile = File.createTempFile(file.getName(), ".tmp", cacheDirectory);
+		OutputStream os = null;
+		try {
+			os = new BufferedOutputStream(new FileOutputStream(tmpFile));
+			Serialization.serializeWithCompression(cas, os, cas.getTypeSystem());
+		} finally {
+			IOUtils.closeQuietly(os);
+		}
+		if (!tmpFile.renameTo(file)) {
+			tmpFile.delete();
+			throw new IOException("Could not rename " + tmpFile);
+		}
+	}
+
+	protected static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	protected static String hex(byte[] bytes) {
+		StringBuilder b = new StringBuilder(2 * bytes.length);
+		for (byte by : bytes)
+			b.append(String.format("%02x", by));
+		return b.toString();
+	}
+
+	/**
+	 * @param delegate
+	 *            The analysis engine whose results are cached
+	 * @param cacheDirectory
+	 *            The cache directory
+	 * @param cacheSize
+	 *            The maximal size of the cache directory, in megabytes
+	 * @return A description of the caching engine
+	 * @throws ResourceInitializationException
+	 *             If the delegate cannot be described in XML
+	 */
+	public static AnalysisEngineDescription getDescription(AnalysisEngineDescription delegate, File cacheDirectory,
+			int cacheSize) throws ResourceInitializationException {
+		StringWriter writer = new StringWriter();
+		try {
+			delegate.toXML(writer);
+		} catch (SAXException | IOException e) {
+			throw new ResourceInitializationException(e);
+		}
+		return AnalysisEngineFactory.createEngineDescription(CachedEngine.class, PARAM_DELEGATE, writer.toString(),
+				PARAM_CACHE_DIRECTORY, cacheDirectory.getAbsolutePath(), PARAM_CACHE_SIZE, cacheSize);
+	}
+}
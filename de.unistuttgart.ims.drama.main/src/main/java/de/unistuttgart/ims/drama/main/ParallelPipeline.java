@@ -0,0 +1,218 @@
+package de.unistuttgart.ims.drama.main;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.metadata.MetaDataObject;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.Level;
+import org.apache.uima.util.Logger;
+
+import de.unistuttgart.ims.drama.api.Drama;
+
+/**
+ * Runs a collection reader and an aggregate analysis engine on several
+ * threads. Each thread holds its own instance of the aggregate and its own
+ * CAS. Documents are handed out one by one by the shared reader, such that
+ * fast threads simply process more documents. If processing a single document
+ * fails, the error is logged and the thread continues with the next document.
+ * If a thread fails entirely, e.g., because the reader fails, the other
+ * threads are stopped, and the engines are destroyed once all threads have
+ * returned.
+ *
+ * Since each thread takes the next document as soon as it is idle, the
+ * threads finish at most the processing time of one document apart. To keep
+ * this difference small, the reader should deliver the largest documents
+ * first (see {@link de.unistuttgart.quadrama.io.core.AbstractDramaUrlReader#PARAM_LARGEST_FIRST}).
+ *
+ * @since 1.0.1
+ */
+public class ParallelPipeline {
+
+	static Logger logger = UIMAFramework.getLogger(ParallelPipeline.class);
+
+	/**
+	 * Runs the pipeline.
+	 *
+	 * @param readerDescription
+	 *            The reader
+	 * @param aggregateDescription
+	 *            The analysis engine that is instantiated once per thread
+	 * @param threads
+	 *            The number of threads
+	 * @return The number of documents that could not be processed
+	 * @throws UIMAException
+	 *             If the components cannot be initialized
+	 * @throws IOException
+	 *             If the reader fails
+	 */
+	public static int runPipeline(CollectionReaderDescription readerDescription,
+			AnalysisEngineDescription aggregateDescription, int threads) throws UIMAException, IOException {
+		final CollectionReader reader = CollectionReaderFactory.createReader(readerDescription);
+
+		AnalysisEngine[] engines = new AnalysisEngine[threads];
+		CAS[] cases = new CAS[threads];
+		for (int i = 0; i < threads; i++) {
+			engines[i] = AnalysisEngineFactory.createEngine(aggregateDescription);
+			List<MetaDataObject> metaData = Arrays.asList(reader.getMetaData(), engines[i].getMetaData());
+			if (i == 0)
+				cases[i] = CasCreationUtils.createCas(metaData);
+			else
+				cases[i] = CasCreationUtils.createCas(metaData, cases[0].getTypeSystem(), null);
+		}
+		reader.typeSystemInit(cases[0].getTypeSystem());
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>(threads);
+		for (int i = 0; i < threads; i++) {
+			futures.add(executor.submit(new Worker(reader, engines[i], cases[i])));
+		}
+		executor.shutdown();
+
+		int failed = 0;
+		try {
+			for (Future<Integer> future : futures)
+				failed += future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			abort(executor, reader, engines);
+			throw new UIMAException(e);
+		} catch (ExecutionException e) {
+			abort(executor, reader, engines);
+			throw new UIMAException(e.getCause());
+		}
+
+		// all workers have finished normally
+		try {
+			for (AnalysisEngine engine : engines)
+				engine.collectionProcessComplete();
+			reader.close();
+		} finally {
+			destroy(reader, engines);
+		}
+		if (failed > 0)
+			logger.log(Level.WARNING, failed + " documents could not be processed.");
+		return failed;
+	}
+
+	/**
+	 * Stops the workers after one of them has failed, and waits until all of
+	 * them have returned before the engines and the reader are destroyed, as
+	 * the other workers may still be using them.
+	 * <code>collectionProcessComplete()</code> is not called, because the
+	 * collection has not been processed completely.
+	 */
+	static void abort(ExecutorService executor, CollectionReader reader, AnalysisEngine[] engines) {
+		executor.shutdownNow();
+		boolean interrupted = Thread.interrupted();
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES))
+				logger.log(Level.WARNING, "Waiting for the remaining documents to be processed.");
+		} catch (InterruptedException e) {
+			// the engines are still in use, and cannot be destroyed
+			Thread.currentThread().interrupt();
+			return;
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		try {
+			reader.close();
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Could not close the reader: " + e.getMessage(), e);
+		}
+		destroy(reader, engines);
+	}
+
+	/**
+	 * Destroys all engines and the reader. A failure to destroy one of them is
+	 * logged, and does not keep the others from being destroyed.
+	 */
+	static void destroy(CollectionReader reader, AnalysisEngine[] engines) {
+		for (AnalysisEngine engine : engines) {
+			try {
+				engine.destroy();
+			} catch (RuntimeException e) {
+				logger.log(Level.WARNING, "Could not destroy analysis engine: " + e.getMessage(), e);
+			}
+		}
+		try {
+			reader.destroy();
+		} catch (RuntimeException e) {
+			logger.log(Level.WARNING, "Could not destroy the reader: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Pulls documents from the shared reader until it is exhausted, or the
+	 * thread is interrupted because another worker has failed.
+	 */
+	static class Worker implements Callable<Integer> {
+		CollectionReader reader;
+		AnalysisEngine engine;
+		CAS cas;
+
+		Worker(CollectionReader reader, AnalysisEngine engine, CAS cas) {
+			this.reader = reader;
+			this.engine = engine;
+			this.cas = cas;
+		}
+
+		@Override
+		public Integer call() throws IOException, CollectionException {
+			int failed = 0;
+			while (!Thread.currentThread().isInterrupted()) {
+				cas.reset();
+				synchronized (reader) {
+					if (!reader.hasNext())
+						return failed;
+					try {
+						reader.getNext(cas);
+					} catch (CollectionException | IOException e) {
+						logger.log(Level.SEVERE, "Could not read document: " + e.getMessage(), e);
+						failed++;
+						continue;
+					}
+				}
+				try {
+					engine.process(cas);
+				} catch (Exception e) {
+					logger.log(Level.SEVERE, "Could not process document " + getDocumentUri(cas) + ": " + e.getMessage(),
+							e);
+					failed++;
+				}
+			}
+			return failed;
+		}
+
+		static String getDocumentUri(CAS cas) {
+			try {
+				JCas jcas = cas.getJCas();
+				if (JCasUtil.exists(jcas, Drama.class))
+					return JCasUtil.selectSingle(jcas, Drama.class).getDocumentUri();
+			} catch (Exception e) {
+				// we're only collecting information for the log message
+			}
+			return "(unknown)";
+		}
+	}
+}
@@ -8,6 +8,7 @@ import java.io.FilenameFilter;
 import org.apache.uima.collection.CollectionReaderDescription;
 import org.apache.uima.fit.factory.AggregateBuilder;
 import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.factory.ResourceCreationSpecifierFactory;
 import org.apache.uima.fit.pipeline.SimplePipeline;
 import org.apache.uima.resource.ResourceInitializationException;
 
@@ -30,7 +31,11 @@ import de.unistuttgart.quadrama.core.SceneActAnnotator;
 import de.unistuttgart.quadrama.core.SetReferenceDate;
 import de.unistuttgart.quadrama.core.SpeakerIdentifier;
 import de.unistuttgart.quadrama.io.core.AbstractDramaUrlReader;
+import de.unistuttgart.quadrama.io.core.CSVVariant;
+import de.unistuttgart.quadrama.io.core.ExportAsAggregatedCSV;
+import de.unistuttgart.quadrama.io.core.ExportAsBinaryCas;
 import de.unistuttgart.quadrama.io.core.ExportAsCSV;
+import de.unistuttgart.quadrama.io.core.ExportAsColumns;
 import de.unistuttgart.quadrama.io.tei.CoreTeiReader;
 import de.unistuttgart.quadrama.io.tei.GerDraCorReader;
 import de.unistuttgart.quadrama.io.tei.MapFiguresToCastFigures;
@@ -51,7 +56,23 @@ public class TEI2XMI {
 
 		AggregateBuilder builder = new AggregateBuilder();
 
-		builder.add(D.getWrappedSegmenterDescription(BreakIteratorSegmenter.class));
+		// the expensive linguistic analysis, the results of which can be
+		// cached. These steps only depend on the text and the speeches from
+		// the reader, and on no external data besides their models.
+		AggregateBuilder analysis = new AggregateBuilder();
+		analysis.add(D.getWrappedSegmenterDescription(BreakIteratorSegmenter.class));
+		analysis.add(createEngineDescription(StanfordPosTagger.class));
+		analysis.add(createEngineDescription(MateLemmatizer.class));
+		if (!options.isSkipNER())
+			analysis.add(createEngineDescription(StanfordNamedEntityRecognizer.class));
+		if (options.getCacheDirectory() != null)
+			builder.add(CachedEngine.getDescription(analysis.createAggregateDescription(), options.getCacheDirectory(),
+					options.getCacheSize()));
+		else
+			builder.add(analysis.createAggregateDescription());
+
+		// steps that read files which may change between runs (metadata,
+		// models, rules) are never cached
 		if (options.getCorpus() == Corpus.TURM) {
 			builder.add(createEngineDescription(SceneActAnnotator.class));
 		}
@@ -66,24 +87,31 @@ public class TEI2XMI {
 			builder.add(createEngineDescription(MapFiguresToCastFigures.class));
 		}
 		if (options.getDlinaDirectory() != null) {
-			builder.add(createEngineDescription(ReadDlinaMetadata.class, ReadDlinaMetadata.PARAM_DLINA_DIRECTORY,
-					options.getDlinaDirectory()));
+			if (options.getDlinaIndex() != null)
+				builder.add(createEngineDescription(ReadDlinaMetadata.class, ReadDlinaMetadata.PARAM_DLINA_DIRECTORY,
+						options.getDlinaDirectory(), ReadDlinaMetadata.PARAM_INDEX_FILE, options.getDlinaIndex()));
+			else
+				builder.add(createEngineDescription(ReadDlinaMetadata.class, ReadDlinaMetadata.PARAM_DLINA_DIRECTORY,
+						options.getDlinaDirectory()));
 			builder.add(createEngineDescription(SetReferenceDate.class));
 		}
 		if (options.getGenderModel() != null) {
 			builder.add(ClearTkGenderAnnotator.getEngineDescription(options.getGenderModel().getAbsolutePath()));
 		}
-		builder.add(createEngineDescription(StanfordPosTagger.class));
-		builder.add(createEngineDescription(MateLemmatizer.class));
-		if (!options.isSkipNER())
-			builder.add(createEngineDescription(StanfordNamedEntityRecognizer.class));
 		builder.add(createEngineDescription(FigureMentionDetection.class));
 		builder.add(SceneActAnnotator.getDescription());
 
 		if (options.getOutput() != null)
 			builder.add(createEngineDescription(XmiWriter.class, XmiWriter.PARAM_TARGET_LOCATION, options.getOutput()));
+		if (options.getBinaryOutput() != null)
+			builder.add(createEngineDescription(ExportAsBinaryCas.class, ExportAsBinaryCas.PARAM_TARGET_LOCATION,
+					options.getBinaryOutput()));
 
-		if (options.getCSVOutput() != null) {
+		if (options.getCSVOutput() != null && options.isAggregateCSV()) {
+			builder.add(createEngineDescription(ExportAsAggregatedCSV.class,
+					ExportAsAggregatedCSV.PARAM_OUTPUT_DIRECTORY, options.getCSVOutput().getAbsolutePath(),
+					ExportAsAggregatedCSV.PARAM_COMPRESS, options.isCompressCSV()));
+		} else if (options.getCSVOutput() != null) {
 			builder.add(createEngineDescription(ExportAsCSV.class, ExportAsCSV.PARAM_TARGET_LOCATION,
 					options.getCSVOutput(), ExportAsCSV.PARAM_CSV_VARIANT_NAME, "UtterancesWithTokens"));
 			builder.add(createEngineDescription(ExportAsCSV.class, ExportAsCSV.PARAM_TARGET_LOCATION,
@@ -93,18 +121,24 @@ public class TEI2XMI {
 			builder.add(createEngineDescription(ExportAsCSV.class, ExportAsCSV.PARAM_TARGET_LOCATION,
 					options.getCSVOutput(), ExportAsCSV.PARAM_CSV_VARIANT_NAME, "Characters"));
 		}
-		SimplePipeline.runPipeline(reader, builder.createAggregateDescription());
+		if (options.getColumnOutput() != null) {
+			for (CSVVariant variant : CSVVariant.values())
+				builder.add(createEngineDescription(ExportAsColumns.class, ExportAsColumns.PARAM_TARGET_LOCATION,
+						options.getColumnOutput(), ExportAsColumns.PARAM_VARIANT_NAME, variant.name()));
+		}
+		if (options.getThreads() > 1)
+			ParallelPipeline.runPipeline(reader, builder.createAggregateDescription(), options.getThreads());
+		else
+			SimplePipeline.runPipeline(reader, builder.createAggregateDescription());
 
-		if (options.isDoCleanup())
-			for (File f : options.getOutput().listFiles(new FilenameFilter() {
+		if (options.isDoCleanup() && options.getOutput() != null)
+			XmlCleanup.cleanUp(options.getOutput().listFiles(new FilenameFilter() {
 
 				@Override
 				public boolean accept(File dir, String name) {
 					return name.endsWith("xmi");
 				}
-			})) {
-				XmlCleanup.cleanUp(f);
-			}
+			}), Runtime.getRuntime().availableProcessors());
 	}
 
 	@SuppressWarnings("unchecked")
@@ -126,6 +160,16 @@ public class TEI2XMI {
 		@Option(defaultToNull = true)
 		File getDlinaDirectory();
 
+		/**
+		 * File in which the dates found in the dlina directory are kept
+		 * between runs, such that only new or changed files in the directory
+		 * are parsed. Should not be placed in the dlina directory.
+		 * 
+		 * @return A file
+		 */
+		@Option(longName = "dlinaIndex", defaultToNull = true)
+		File getDlinaIndex();
+
 		@Option(defaultToNull = true)
 		String getCollectionId();
 
@@ -159,9 +203,129 @@ public class TEI2XMI {
 		@Option(longName = "csvOutput", defaultToNull = true)
 		File getCSVOutput();
 
+		/**
+		 * Write one CSV file per variant for the entire collection, instead
+		 * of one per play and variant.
+		 * 
+		 * @return True, if aggregated files should be written
+		 */
+		@Option(longName = "aggregateCsv")
+		boolean isAggregateCSV();
+
+		/**
+		 * Compress the aggregated CSV files with gzip.
+		 * 
+		 * @return True, if the files should be compressed
+		 */
+		@Option(longName = "compressCsv")
+		boolean isCompressCSV();
+
+		/**
+		 * Storage of the binary column files (see
+		 * {@link de.unistuttgart.quadrama.io.core.ColumnarTable}). Should be a
+		 * directory.
+		 * 
+		 * @return A directory
+		 */
+		@Option(longName = "columnOutput", defaultToNull = true)
+		File getColumnOutput();
+
+		/**
+		 * Storage of the CAS files in UIMA's compressed binary format. Should
+		 * be a directory. Temporary views are not written, such that no
+		 * cleanup is needed. The files can be read with
+		 * {@link de.unistuttgart.quadrama.io.core.BinaryCasReader}.
+		 * 
+		 * @return A directory
+		 */
+		@Option(longName = "binaryOutput", defaultToNull = true)
+		File getBinaryOutput();
+
+		/**
+		 * Number of parallel pipeline instances. Each instance runs the full
+		 * aggregate on its own CAS.
+		 * 
+		 * @return The number of threads
+		 */
+		@Option(defaultValue = "1")
+		int getThreads();
+
+		/**
+		 * Number of plays that are loaded in the background while the
+		 * current one is processed. 0 disables prefetching.
+		 * 
+		 * @return The number of plays
+		 */
+		@Option(defaultValue = "0")
+		int getPrefetch();
+
+		/**
+		 * Directory in which the results of the linguistic analysis
+		 * (segmentation, part of speech tagging, lemmatization and named
+		 * entity recognition) are cached. If a play and the configuration of
+		 * these steps are unchanged, they are not run again. All other steps
+		 * are always run.
+		 * 
+		 * @return A directory
+		 */
+		@Option(defaultToNull = true)
+		File getCacheDirectory();
+
+		/**
+		 * Maximal size of the cache directory, in megabytes
+		 * 
+		 * @return The size
+		 */
+		@Option(defaultValue = "10240")
+		int getCacheSize();
+
+		/**
+		 * Number of shards into which the corpus is split, e.g., to process
+		 * it on several machines. The assignment of plays to shards does not
+		 * change between runs.
+		 * 
+		 * @return The number of shards
+		 */
+		@Option(defaultValue = "1")
+		int getShardCount();
+
+		/**
+		 * The shard that is processed, starting with 0
+		 * 
+		 * @return The shard
+		 */
+		@Option(defaultValue = "0")
+		int getShardIndex();
+
+		/**
+		 * Process the largest plays first. Useful with more than one thread,
+		 * such that no thread is left with a large play at the end of the
+		 * run.
+		 * 
+		 * @return True, if the plays should be sorted by size
+		 */
+		@Option
+		boolean isLargestFirst();
+
 	}
 
 	protected static CollectionReaderDescription getReader(MyOptions options) throws ResourceInitializationException {
+		CollectionReaderDescription readerDescription = getCorpusReader(options);
+		if (options.getPrefetch() > 0)
+			ResourceCreationSpecifierFactory.setConfigurationParameters(readerDescription,
+					AbstractDramaUrlReader.PARAM_PREFETCH_DEPTH, options.getPrefetch());
+		if (options.getShardCount() > 1)
+			ResourceCreationSpecifierFactory.setConfigurationParameters(readerDescription,
+					AbstractDramaUrlReader.PARAM_SHARD_COUNT, options.getShardCount(),
+					AbstractDramaUrlReader.PARAM_SHARD_INDEX, options.getShardIndex());
+		if (options.isLargestFirst())
+			ResourceCreationSpecifierFactory.setConfigurationParameters(readerDescription,
+					AbstractDramaUrlReader.PARAM_LARGEST_FIRST, true);
+		return readerDescription;
+	}
+
+	protected static CollectionReaderDescription getCorpusReader(MyOptions options)
+			throws ResourceInitializationException {
 		switch (options.getCorpus()) {
 		case GERDRACOR:
 			return CollectionReaderFactory.createReaderDescription(GerDraCorReader.class,
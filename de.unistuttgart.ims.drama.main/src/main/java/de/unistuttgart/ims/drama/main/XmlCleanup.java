@@ -1,60 +1,310 @@
 package de.unistuttgart.ims.drama.main;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import com.lexicalscope.jewel.cli.CliFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
 
-import nu.xom.Builder;
-import nu.xom.Document;
-import nu.xom.Element;
-import nu.xom.Nodes;
-import nu.xom.ParsingException;
-import nu.xom.XPathContext;
+import com.lexicalscope.jewel.cli.CliFactory;
 
+/**
+ * Removes temporary views (i.e., sofas whose id starts with <code>tmp:</code>)
+ * from XMI files, together with all feature structures in these views. The
+ * files are processed as streams in two passes, such that memory usage does
+ * not depend on the file size: The first pass collects the ids of the
+ * temporary sofas (which UIMA writes after the annotations), the second pass
+ * copies the file without them. The result is written to a temporary file,
+ * which then replaces the original file. Files without temporary views are
+ * not rewritten.
+ */
 public class XmlCleanup {
 
-	public static void cleanUp(File file) {
-		Set<String> toRemove = new HashSet<String>();
+	static final String NS_XMI = "http://www.omg.org/XMI";
+	static final String NS_CAS = "http:///uima/cas.ecore";
+
+	public static void cleanUp(File file) throws IOException {
+		try {
+			// factories are not guaranteed to be thread-safe, and files are
+			// cleaned up in parallel
+			XMLInputFactory inputFactory = createInputFactory();
+			Set<String> toRemove = findTemporarySofas(inputFactory, file);
+			if (toRemove.isEmpty())
+				return;
+
+			File tmpFile = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+			try {
+				filter(inputFactory, file, tmpFile, toRemove);
+				try {
+					Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+							StandardCopyOption.ATOMIC_MOVE);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+			} finally {
+				tmpFile.delete();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException(file.getName(), e);
+		}
+	}
+
+	/**
+	 * Cleans up several files in parallel.
+	 *
+	 * @param files
+	 *            The files
+	 * @param threads
+	 *            The number of threads
+	 * @throws IOException
+	 *             If one of the files cannot be cleaned up. The other files
+	 *             are processed nevertheless.
+	 */
+	public static void cleanUp(File[] files, int threads) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>(files.length);
+		for (final File file : files)
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws IOException {
+					cleanUp(file);
+					return null;
+				}
+			}));
+		executor.shutdown();
 
-		XPathContext xpc = new XPathContext();
-		xpc.addNamespace("xmi", "http://www.omg.org/XMI");
-		xpc.addNamespace("cas", "http:///uima/cas.ecore");
+		IOException exception = null;
+		for (Future<Void> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				executor.shutdownNow();
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+				if (exception == null)
+					exception = (e.getCause() instanceof IOException ? (IOException) e.getCause()
+							: new IOException(e.getCause()));
+			}
+		}
+		if (exception != null)
+			throw exception;
+	}
+
+	static XMLInputFactory createInputFactory() {
+		XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+		inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		return inputFactory;
+	}
 
+	/**
+	 * @return The xmi:ids of the sofas whose id starts with <code>tmp:</code>
+	 */
+	static Set<String> findTemporarySofas(XMLInputFactory inputFactory, File file) throws IOException, XMLStreamException {
+		Set<String> ids = new HashSet<String>();
+		InputStream is = null;
+		XMLStreamReader reader = null;
 		try {
-			Builder parser = new Builder();
-			Document doc = parser.build(file);
-			Nodes nodes_sofa = doc.query("/xmi:XMI/cas:Sofa", xpc);
-			for (int i = 0; i < nodes_sofa.size(); i++) {
-				Element node_sofa = (Element) nodes_sofa.get(i);
-				String sofaName = node_sofa.getAttributeValue("sofaID");
-				if (sofaName.startsWith("tmp:")) {
-					String sofaId = node_sofa.getAttributeValue("id", "http://www.omg.org/XMI");
-					toRemove.add(sofaId);
+			is = new BufferedInputStream(new FileInputStream(file));
+			reader = inputFactory.createXMLStreamReader(is);
+			int depth = 0;
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					depth++;
+					if (depth == 2 && NS_CAS.equals(reader.getNamespaceURI()) && "Sofa".equals(reader.getLocalName())) {
+						String sofaId = reader.getAttributeValue(null, "sofaID");
+						if (sofaId != null && sofaId.startsWith("tmp:"))
+							ids.add(reader.getAttributeValue(NS_XMI, "id"));
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					depth--;
 				}
 			}
-			for (String id : toRemove) {
-				Nodes nodes_toRemove = doc.query("//*[@sofa=" + id + "]|//*[@xmi:id=" + id + "]", xpc);
-				for (int i = 0; i < nodes_toRemove.size(); i++) {
-					Element e = (Element) nodes_toRemove.get(i);
-					e.getParent().removeChild(e);
+		} finally {
+			if (reader != null)
+				reader.close();
+			IOUtils.closeQuietly(is);
+		}
+		return ids;
+	}
+
+	/**
+	 * Copies the XML file, leaving out all elements (including their
+	 * children) that have one of the ids as <code>xmi:id</code> or
+	 * <code>sofa</code> attribute.
+	 */
+	static void filter(XMLInputFactory inputFactory, File source, File target, Set<String> ids)
+			throws IOException, XMLStreamException {
+		InputStream is = null;
+		XMLStreamReader reader = null;
+		Writer w = null;
+		try {
+			is = new BufferedInputStream(new FileInputStream(source));
+			reader = inputFactory.createXMLStreamReader(is);
+			w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(target), StandardCharsets.UTF_8));
+			w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+
+			// an open start tag, which is closed with "/>" if the element is
+			// empty
+			boolean startTagOpen = false;
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (startTagOpen && event != XMLStreamConstants.END_ELEMENT)
+					w.write('>');
+				switch (event) {
+				case XMLStreamConstants.START_ELEMENT:
+					if (ids.contains(reader.getAttributeValue(null, "sofa"))
+							|| ids.contains(reader.getAttributeValue(NS_XMI, "id"))) {
+						skipElement(reader);
+						startTagOpen = false;
+						continue;
+					}
+					writeStartTag(reader, w);
+					startTagOpen = true;
+					continue;
+				case XMLStreamConstants.END_ELEMENT:
+					if (startTagOpen)
+						w.write("/>");
+					else {
+						w.write("</");
+						w.write(qname(reader.getPrefix(), reader.getLocalName()));
+						w.write('>');
+					}
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					escape(reader.getText(), false, w);
+					break;
+				case XMLStreamConstants.COMMENT:
+					w.write("<!--");
+					w.write(reader.getText());
+					w.write("-->");
+					break;
+				case XMLStreamConstants.PROCESSING_INSTRUCTION:
+					w.write("<?");
+					w.write(reader.getPITarget());
+					if (reader.getPIData() != null && !reader.getPIData().isEmpty()) {
+						w.write(' ');
+						w.write(reader.getPIData());
+					}
+					w.write("?>");
+					break;
+				default:
+					break;
 				}
+				startTagOpen = false;
+			}
+		} finally {
+			if (reader != null)
+				reader.close();
+			IOUtils.closeQuietly(is);
+			IOUtils.closeQuietly(w);
+		}
+	}
+
+	static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (event == XMLStreamConstants.END_ELEMENT)
+				depth--;
+		}
+	}
+
+	static void writeStartTag(XMLStreamReader reader, Writer w) throws IOException {
+		w.write('<');
+		w.write(qname(reader.getPrefix(), reader.getLocalName()));
+		for (int i = 0; i < reader.getNamespaceCount(); i++) {
+			w.write(' ');
+			w.write(qname("xmlns", reader.getNamespacePrefix(i)));
+			w.write("=\"");
+			escape(reader.getNamespaceURI(i), true, w);
+			w.write('"');
+		}
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			w.write(' ');
+			w.write(qname(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)));
+			w.write("=\"");
+			escape(reader.getAttributeValue(i), true, w);
+			w.write('"');
+		}
+	}
+
+	static String qname(String prefix, String localName) {
+		if (localName == null || localName.isEmpty())
+			return prefix;
+		if (prefix == null || prefix.isEmpty())
+			return localName;
+		return prefix + ":" + localName;
+	}
+
+	/**
+	 * Escapes markup characters. In attribute values, line breaks and tabs
+	 * are escaped as well, because they would otherwise be normalized to
+	 * spaces when the file is read.
+	 */
+	static void escape(String s, boolean attribute, Writer w) throws IOException {
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '&':
+				w.write("&amp;");
+				break;
+			case '<':
+				w.write("&lt;");
+				break;
+			case '>':
+				w.write("&gt;");
+				break;
+			case '"':
+				w.write(attribute ? "&quot;" : "\"");
+				break;
+			case '\n':
+				w.write(attribute ? "&#10;" : "\n");
+				break;
+			case '\r':
+				w.write("&#13;");
+				break;
+			case '\t':
+				w.write(attribute ? "&#9;" : "\t");
+				break;
+			default:
+				w.write(c);
 			}
-			FileWriter fw = new FileWriter(file);
-			fw.write(doc.toXML());
-			fw.flush();
-			fw.close();
-		} catch (ParsingException ex) {
-			System.err.println("Cafe con Leche is malformed today. How embarrassing!");
-		} catch (IOException ex) {
-			System.err.println("Could not connect to Cafe con Leche. The site may be down.");
 		}
 	}
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
 		Options options = CliFactory.parseArguments(Options.class, args);
 		cleanUp(options.getInput());
 	}
@@ -0,0 +1,150 @@
+package de.unistuttgart.ims.drama.main;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.component.JCasCollectionReader_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.util.Progress;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestParallelPipeline {
+
+	@Before
+	public void setUp() {
+		Recorder.processed.clear();
+		Recorder.active.set(0);
+		Recorder.completed.set(0);
+		Recorder.destroyedWhileActive.set(false);
+	}
+
+	@Test
+	public void testRunPipeline() throws UIMAException, IOException {
+		int failed = ParallelPipeline.runPipeline(
+				CollectionReaderFactory.createReaderDescription(Documents.class, Documents.PARAM_COUNT, 20),
+				AnalysisEngineFactory.createEngineDescription(Recorder.class, Recorder.PARAM_FAILING, "doc7"), 3);
+
+		// the failing document is counted, all others are processed once
+		assertEquals(1, failed);
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 20; i++)
+			if (i != 7)
+				expected.add("doc" + i);
+		List<String> processed = new ArrayList<String>(Recorder.processed);
+		Collections.sort(expected);
+		Collections.sort(processed);
+		assertEquals(expected, processed);
+		assertEquals(3, Recorder.completed.get());
+	}
+
+	@Test
+	public void testFailingWorker() throws UIMAException, IOException {
+		try {
+			ParallelPipeline.runPipeline(
+					CollectionReaderFactory.createReaderDescription(Documents.class, Documents.PARAM_COUNT, 20),
+					AnalysisEngineFactory.createEngineDescription(Recorder.class, Recorder.PARAM_ERROR, "doc2"), 3);
+			fail();
+		} catch (UIMAException e) {
+			assertTrue(e.getCause() instanceof Error);
+		}
+
+		// the engines are destroyed only after all workers have returned
+		assertFalse(Recorder.destroyedWhileActive.get());
+		assertEquals(0, Recorder.completed.get());
+		assertTrue(Recorder.processed.size() < 20);
+	}
+
+	public static class Documents extends JCasCollectionReader_ImplBase {
+		public static final String PARAM_COUNT = "Count";
+
+		@ConfigurationParameter(name = PARAM_COUNT)
+		int count;
+
+		int next = 0;
+
+		@Override
+		public boolean hasNext() throws IOException, CollectionException {
+			return next < count;
+		}
+
+		@Override
+		public Progress[] getProgress() {
+			return null;
+		}
+
+		@Override
+		public void getNext(JCas jcas) throws IOException, CollectionException {
+			jcas.setDocumentText("doc" + next++);
+		}
+	}
+
+	/**
+	 * Records the processed documents. Processing takes some time, such that
+	 * the workers overlap.
+	 */
+	public static class Recorder extends JCasAnnotator_ImplBase {
+		public static final String PARAM_FAILING = "Failing";
+		public static final String PARAM_ERROR = "Error";
+
+		static List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+		static AtomicInteger active = new AtomicInteger();
+		static AtomicInteger completed = new AtomicInteger();
+		static AtomicBoolean destroyedWhileActive = new AtomicBoolean();
+
+		@ConfigurationParameter(name = PARAM_FAILING, mandatory = false)
+		String failing;
+
+		@ConfigurationParameter(name = PARAM_ERROR, mandatory = false)
+		String error;
+
+		@Override
+		public void process(JCas jcas) throws AnalysisEngineProcessException {
+			active.incrementAndGet();
+			try {
+				String text = jcas.getDocumentText();
+				if (text.equals(error))
+					throw new Error(text);
+				try {
+					Thread.sleep(20);
+				} catch (InterruptedException e) {
+					// finish the document, as an engine would that does not
+					// check for interrupts
+				}
+				if (text.equals(failing))
+					throw new AnalysisEngineProcessException(new IllegalArgumentException(text));
+				processed.add(text);
+			} finally {
+				active.decrementAndGet();
+			}
+		}
+
+		@Override
+		public void collectionProcessComplete() throws AnalysisEngineProcessException {
+			completed.incrementAndGet();
+		}
+
+		@Override
+		public void destroy() {
+			if (active.get() > 0)
+				destroyedWhileActive.set(true);
+			super.destroy();
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package de.unistuttgart.ims.drama.main;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.cas.impl.XmiCasDeserializer;
+import org.apache.uima.cas.impl.XmiCasSerializer;
+import org.apache.uima.fit.factory.AnnotationFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+public class TestXmlCleanup {
+
+	static final String TEXT = "Emilia. Gräfin Orsina: \"Tür & Tor\" <ja>\n\tß€ — 𝔄";
+
+	File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("xmlcleanup").toFile();
+		directory.deleteOnExit();
+	}
+
+	@Test
+	public void testCleanUp() throws UIMAException, IOException, SAXException, XMLStreamException {
+		JCas jcas = createJCas();
+		JCas tmpView = jcas.createView("tmp:utterances");
+		tmpView.setDocumentText("Gräfin Orsina");
+		AnnotationFactory.createAnnotation(tmpView, 0, 6, Annotation.class);
+		AnnotationFactory.createAnnotation(tmpView, 7, 13, Annotation.class);
+		File file = write(jcas, "tmp.xmi");
+
+		Set<String> tmpSofas = XmlCleanup.findTemporarySofas(XmlCleanup.createInputFactory(), file);
+		assertEquals(1, tmpSofas.size());
+		String tmpSofa = tmpSofas.iterator().next();
+		assertTrue(read(file).contains("sofa=\"" + tmpSofa + "\""));
+
+		XmlCleanup.cleanUp(file);
+
+		// the sofa, its view and the annotations in it are gone
+		String xmi = read(file);
+		assertFalse(xmi.contains("tmp:utterances"));
+		assertFalse(xmi.contains("xmi:id=\"" + tmpSofa + "\""));
+		assertFalse(xmi.contains("sofa=\"" + tmpSofa + "\""));
+		assertTrue(XmlCleanup.findTemporarySofas(XmlCleanup.createInputFactory(), file).isEmpty());
+
+		// the remaining views are unchanged
+		JCas cleaned = JCasFactory.createJCas();
+		InputStream is = new FileInputStream(file);
+		try {
+			XmiCasDeserializer.deserialize(is, cleaned.getCas());
+		} finally {
+			is.close();
+		}
+		assertEquals(viewNames(createJCas()), viewNames(cleaned));
+		assertEquals(TEXT, cleaned.getDocumentText());
+		assertEquals("Anmerkung", cleaned.getView("notes").getDocumentText());
+		assertEquals(coveredTexts(jcas), coveredTexts(cleaned));
+		assertEquals(coveredTexts(jcas.getView("notes")), coveredTexts(cleaned.getView("notes")));
+	}
+
+	@Test
+	public void testWithoutTemporaryViews() throws UIMAException, IOException, SAXException {
+		File file = write(createJCas(), "plain.xmi");
+		byte[] before = Files.readAllBytes(file.toPath());
+		long lastModified = file.lastModified();
+
+		XmlCleanup.cleanUp(new File[] { file }, 2);
+
+		assertArrayEquals(before, Files.readAllBytes(file.toPath()));
+		assertEquals(lastModified, file.lastModified());
+	}
+
+	static JCas createJCas() throws UIMAException {
+		JCas jcas = JCasFactory.createJCas();
+		jcas.setDocumentText(TEXT);
+		AnnotationFactory.createAnnotation(jcas, 0, 6, Annotation.class);
+		AnnotationFactory.createAnnotation(jcas, 8, 21, Annotation.class);
+		JCas notes = jcas.createView("notes");
+		notes.setDocumentText("Anmerkung");
+		AnnotationFactory.createAnnotation(notes, 0, 9, Annotation.class);
+		return jcas;
+	}
+
+	File write(JCas jcas, String name) throws IOException, SAXException {
+		File file = new File(directory, name);
+		file.deleteOnExit();
+		OutputStream os = new FileOutputStream(file);
+		try {
+			XmiCasSerializer.serialize(jcas.getCas(), os);
+		} finally {
+			os.close();
+		}
+		return file;
+	}
+
+	static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+	static List<String> coveredTexts(JCas jcas) {
+		List<String> texts = new ArrayList<String>();
+		for (Annotation annotation : jcas.getAnnotationIndex())
+			texts.add(annotation.getCoveredText());
+		return texts;
+	}
+
+	static List<String> viewNames(JCas jcas) throws UIMAException {
+		List<String> names = new ArrayList<String>();
+		for (Iterator<JCas> iter = jcas.getViewIterator(); iter.hasNext();)
+			names.add(iter.next().getViewName());
+		return names;
+	}
+}
@@ -0,0 +1,121 @@
+package de.unistuttgart.ims.drama.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+
+import de.unistuttgart.ims.drama.api.CastFigure;
+import de.unistuttgart.ims.drama.api.Figure;
+import de.unistuttgart.ims.drama.api.Speaker;
+import de.unistuttgart.ims.drama.api.Speech;
+import de.unistuttgart.ims.drama.api.Utterance;
+
+/**
+ * This class holds the relations between utterances, speakers, speeches and
+ * figures of a document. It is built once per CAS, afterwards, all lookups are
+ * done without querying the CAS indexes. The index reflects the state of the
+ * CAS at the time of its creation, if annotations are added or features are
+ * changed, a new index needs to be built.
+ *
+ * @since 1.0.1
+ */
+public class DramaIndex {
+	List<Utterance> utterances;
+	Map<Utterance, List<Speaker>> speakers = new HashMap<Utterance, List<Speaker>>();
+	Map<Utterance, List<Speech>> speeches = new HashMap<Utterance, List<Speech>>();
+	Map<Figure, List<Utterance>> figureUtterances = new HashMap<Figure, List<Utterance>>();
+	Map<CastFigure, List<Utterance>> castFigureUtterances = new HashMap<CastFigure, List<Utterance>>();
+
+	public DramaIndex(JCas jcas) {
+		utterances = new ArrayList<Utterance>(JCasUtil.select(jcas, Utterance.class));
+		Map<Utterance, Collection<Speaker>> speakerMap = JCasUtil.indexCovered(jcas, Utterance.class, Speaker.class);
+		Map<Utterance, Collection<Speech>> speechMap = JCasUtil.indexCovered(jcas, Utterance.class, Speech.class);
+
+		for (Utterance utterance : utterances) {
+			List<Speaker> uSpeakers = toList(speakerMap.get(utterance));
+			speakers.put(utterance, uSpeakers);
+			speeches.put(utterance, toList(speechMap.get(utterance)));
+
+			if (!uSpeakers.isEmpty())
+				add(figureUtterances, uSpeakers.get(0).getFigure(), utterance);
+			for (Speaker speaker : uSpeakers) {
+				if (speaker.getCastFigure() != null)
+					for (int i = 0; i < speaker.getCastFigure().size(); i++)
+						add(castFigureUtterances, speaker.getCastFigure(i), utterance);
+			}
+		}
+	}
+
+	/**
+	 * @return All utterances, in document order
+	 */
+	public List<Utterance> getUtterances() {
+		return Collections.unmodifiableList(utterances);
+	}
+
+	/**
+	 * @param utterance
+	 *            The utterance
+	 * @return The speakers covered by the utterance
+	 */
+	public List<Speaker> getSpeakers(Utterance utterance) {
+		return get(speakers, utterance);
+	}
+
+	/**
+	 * @param utterance
+	 *            The utterance
+	 * @return The speeches covered by the utterance
+	 */
+	public List<Speech> getSpeeches(Utterance utterance) {
+		return get(speeches, utterance);
+	}
+
+	/**
+	 * @param figure
+	 *            The figure
+	 * @return All utterances in which the first speaker refers to figure
+	 */
+	public List<Utterance> getUtterances(Figure figure) {
+		return get(figureUtterances, figure);
+	}
+
+	/**
+	 * @param figure
+	 *            The cast figure
+	 * @return All utterances in which one of the speakers refers to figure
+	 */
+	public List<Utterance> getUtterances(CastFigure figure) {
+		return get(castFigureUtterances, figure);
+	}
+
+	private static <K, V> void add(Map<K, List<V>> map, K key, V value) {
+		List<V> list = map.get(key);
+		if (list == null) {
+			list = new ArrayList<V>();
+			map.put(key, list);
+		}
+		// several speakers of an utterance may refer to the same figure
+		if (list.isEmpty() || list.get(list.size() - 1) != value)
+			list.add(value);
+	}
+
+	private static <K, V> List<V> get(Map<K, List<V>> map, K key) {
+		List<V> list = map.get(key);
+		if (list == null)
+			return Collections.emptyList();
+		return Collections.unmodifiableList(list);
+	}
+
+	private static <T> List<T> toList(Collection<T> coll) {
+		if (coll == null)
+			return new ArrayList<T>(0);
+		return new ArrayList<T>(coll);
+	}
+}
@@ -46,6 +46,25 @@ public class DramaUtil {
 		return ret;
 	}
 
+	/**
+	 * Returns the speeches of all utterances in which the first speaker refers
+	 * to figure.
+	 * 
+	 * @param index
+	 *            The index of the document
+	 * @param figure
+	 *            The figure
+	 * @return A list of speeches
+	 * @since 1.0.1
+	 */
+	public static Collection<Speech> getSpeeches(DramaIndex index, Figure figure) {
+		List<Speech> ret = new LinkedList<Speech>();
+		for (Utterance u : index.getUtterances(figure)) {
+			ret.addAll(index.getSpeeches(u));
+		}
+		return ret;
+	}
+
 	public static Collection<Speaker> getSpeakers(Utterance utterance) {
 		try {
 			return JCasUtil.selectCovered(Speaker.class, utterance);
@@ -54,6 +73,10 @@ public class DramaUtil {
 		}
 	}
 
+	public static Collection<Speaker> getSpeakers(DramaIndex index, Utterance utterance) {
+		return index.getSpeakers(utterance);
+	}
+
 	public static Speaker getFirstSpeaker(Utterance utterance) {
 		try {
 			return JCasUtil.selectCovered(Speaker.class, utterance).get(0);
@@ -62,6 +85,13 @@ public class DramaUtil {
 		}
 	}
 
+	public static Speaker getFirstSpeaker(DramaIndex index, Utterance utterance) {
+		List<Speaker> speakers = index.getSpeakers(utterance);
+		if (speakers.isEmpty())
+			return null;
+		return speakers.get(0);
+	}
+
 	public static Collection<Figure> getFigures(Utterance u) {
 		Collection<Speaker> s = getSpeakers(u);
 		Collection<Figure> f = new LinkedList<Figure>();
@@ -81,6 +111,15 @@ public class DramaUtil {
 		return f;
 	}
 
+	public static Collection<CastFigure> getCastFigures(DramaIndex index, Utterance u) {
+		Collection<CastFigure> f = new LinkedList<CastFigure>();
+		for (Speaker speaker : index.getSpeakers(u)) {
+			for (int i = 0; i < speaker.getCastFigure().size(); i++)
+				f.add(speaker.getCastFigure(i));
+		}
+		return f;
+	}
+
 	public static Figure getFirstFigure(Utterance u) {
 		Speaker s = getFirstSpeaker(u);
 		if (s != null)
@@ -95,14 +134,24 @@ public class DramaUtil {
 		List<Utterance> fullUtterances = new ArrayList<Utterance>();
 		while (baseIterator.hasNext()) {
 			Utterance utt = baseIterator.next();
-			if (!JCasUtil.selectCovered(jcas, Speaker.class, utt).isEmpty()
-					&& JCasUtil.selectCovered(jcas, Speaker.class, utt).get(0).getFigure() != null)
+			List<Speaker> speakers = JCasUtil.selectCovered(jcas, Speaker.class, utt);
+			if (!speakers.isEmpty() && speakers.get(0).getFigure() != null)
 				fullUtterances.add(utt);
 		}
 		return fullUtterances;
 
 	}
 
+	public static Collection<Utterance> selectFullUtterances(DramaIndex index) {
+		List<Utterance> fullUtterances = new ArrayList<Utterance>();
+		for (Utterance utt : index.getUtterances()) {
+			Speaker speaker = getFirstSpeaker(index, utt);
+			if (speaker != null && speaker.getFigure() != null)
+				fullUtterances.add(utt);
+		}
+		return fullUtterances;
+	}
+
 	public static FigureType assignFigureType(JCas jcas, Figure figure, String cl, String value) {
 		FigureType ft = AnnotationFactory.createAnnotation(jcas, figure.getBegin(), figure.getBegin() + 1,
 				FigureType.class);
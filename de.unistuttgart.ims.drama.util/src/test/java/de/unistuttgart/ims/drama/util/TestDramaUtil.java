@@ -6,15 +6,18 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 
 import org.apache.uima.fit.factory.AnnotationFactory;
 import org.apache.uima.fit.factory.JCasFactory;
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
 import org.junit.Test;
 
 import de.unistuttgart.ims.drama.api.Author;
+import de.unistuttgart.ims.drama.api.CastFigure;
 import de.unistuttgart.ims.drama.api.Drama;
 import de.unistuttgart.ims.drama.api.Figure;
 import de.unistuttgart.ims.drama.api.FigureType;
@@ -62,6 +65,40 @@ public class TestDramaUtil {
 		sp = DramaUtil.getSpeeches(jcas, figure[1]);
 		assertEquals(2, sp.size());
 
+		DramaIndex index = new DramaIndex(jcas);
+		assertEquals(DramaUtil.getSpeeches(jcas, figure[0]), DramaUtil.getSpeeches(index, figure[0]));
+		assertEquals(DramaUtil.getSpeeches(jcas, figure[1]), DramaUtil.getSpeeches(index, figure[1]));
+		assertEquals(0, DramaUtil.getSpeeches(index, null).size());
+		for (Utterance u : utterances) {
+			assertEquals(DramaUtil.getSpeakers(u), DramaUtil.getSpeakers(index, u));
+			assertEquals(DramaUtil.getFirstSpeaker(u), DramaUtil.getFirstSpeaker(index, u));
+		}
+		assertEquals(2, index.getUtterances(figure[0]).size());
+		assertEquals(1, index.getUtterances(figure[1]).size());
+	}
+
+	@Test
+	public void testDramaIndexCastFigures() throws Exception {
+		JCas jcas = JCasFactory.createJCas();
+		jcas.setDocumentText("Lorem ipsum dolor sit amet, consetetur sadipscing");
+
+		CastFigure[] figures = new CastFigure[] { new CastFigure(jcas), new CastFigure(jcas) };
+		Utterance u1 = AnnotationFactory.createAnnotation(jcas, 0, 11, Utterance.class);
+		Utterance u2 = AnnotationFactory.createAnnotation(jcas, 12, 26, Utterance.class);
+		Speaker s1 = AnnotationFactory.createAnnotation(jcas, 0, 5, Speaker.class);
+		s1.setCastFigure(new FSArray(jcas, 2));
+		s1.setCastFigure(0, figures[0]);
+		s1.setCastFigure(1, figures[1]);
+		Speaker s2 = AnnotationFactory.createAnnotation(jcas, 12, 17, Speaker.class);
+		s2.setCastFigure(new FSArray(jcas, 1));
+		s2.setCastFigure(0, figures[1]);
+
+		DramaIndex index = new DramaIndex(jcas);
+		assertEquals(DramaUtil.getCastFigures(u1), DramaUtil.getCastFigures(index, u1));
+		assertEquals(DramaUtil.getCastFigures(u2), DramaUtil.getCastFigures(index, u2));
+		assertEquals(Arrays.asList(u1), index.getUtterances(figures[0]));
+		assertEquals(Arrays.asList(u1, u2), index.getUtterances(figures[1]));
+		assertEquals(0, DramaUtil.selectFullUtterances(index).size());
 	}
 
 	@Test
@@ -89,6 +126,8 @@ public class TestDramaUtil {
 		iter.next();
 		assertFalse(iter.hasNext());
 
+		assertEquals(DramaUtil.selectFullUtterances(jcas), DramaUtil.selectFullUtterances(new DramaIndex(jcas)));
+
 	}
 
 	@Test